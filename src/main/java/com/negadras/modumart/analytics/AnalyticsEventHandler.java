@@ -72,6 +72,17 @@ public class AnalyticsEventHandler {
         analyticsService.recordOrderCancelled(event.orderId(), event.customerId());
     }
     
+    @EventListener
+    @Async
+    public void handleOrdersStatusChanged(OrdersStatusChangedEvent event) {
+        logger.debug("Processing OrdersStatusChangedEvent for analytics: status={}, orders={}",
+                    event.status(), event.orders().size());
+        BigDecimal amount = event.orders().stream()
+                .map(OrderSummary::totalAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        analyticsService.recordOrdersStatusChanged(event.status(), event.orders().size(), amount);
+    }
+    
     // === Customer Events ===
     
     @EventListener
@@ -90,6 +101,14 @@ public class AnalyticsEventHandler {
         analyticsService.recordProductCreated(event.productId(), "UNKNOWN");
     }
     
+    @EventListener
+    @Async
+    public void handleProductsImported(ProductsImportedEvent event) {
+        logger.debug("Processing ProductsImportedEvent for analytics: importId={}, products={}", 
+                    event.importId(), event.productIds().size());
+        analyticsService.recordProductsImported(event.importId(), event.productIds().size());
+    }
+    
     @EventListener
     @Async
     public void handleProductStockReduced(ProductStockReducedEvent event) {
@@ -101,8 +120,9 @@ public class AnalyticsEventHandler {
     @EventListener
     @Async
     public void handleProductOutOfStock(ProductOutOfStockEvent event) {
-        logger.debug("Processing ProductOutOfStockEvent for analytics: productId={}", event.productId());
-        analyticsService.recordProductOutOfStock(event.productId());
+        logger.debug("Processing ProductOutOfStockEvent for analytics: orderId={}, shortages={}", 
+                    event.orderId(), event.shortages().size());
+        event.shortages().forEach(shortage -> analyticsService.recordProductOutOfStock(shortage.productId()));
     }
     
     // === Payment Events ===
@@ -123,6 +143,17 @@ public class AnalyticsEventHandler {
         analyticsService.recordPaymentFailed(event.paymentId(), event.orderId(), event.reason());
     }
     
+    @EventListener
+    @Async
+    public void handlePaymentsCaptured(PaymentsCapturedEvent event) {
+        logger.debug("Processing PaymentsCapturedEvent for analytics: completed={}, failed={}",
+                    event.completed().size(), event.failed().size());
+        BigDecimal revenue = event.completed().stream()
+                .map(PaymentCompletedEvent::amount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        analyticsService.recordPaymentsCaptured(event.completed().size(), revenue, event.failed().size());
+    }
+    
     @EventListener
     @Async
     public void handlePaymentRefunded(PaymentRefundedEvent event) {
@@ -140,6 +171,13 @@ public class AnalyticsEventHandler {
         analyticsService.recordShipmentCreated(event.shipmentId(), event.orderId());
     }
     
+    @EventListener
+    @Async
+    public void handleShipmentsCreated(ShipmentsCreatedEvent event) {
+        logger.debug("Processing ShipmentsCreatedEvent for analytics: shipments={}", event.shipments().size());
+        analyticsService.recordShipmentsCreated(event.shipments().size());
+    }
+    
     @EventListener
     @Async
     public void handleShipmentDelivered(ShipmentDeliveredEvent event) {
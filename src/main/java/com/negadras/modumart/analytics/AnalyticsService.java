@@ -1,5 +1,7 @@
 package com.negadras.modumart.analytics;
 
+import com.negadras.modumart.orders.OrderStatus;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -59,6 +61,22 @@ public class AnalyticsService {
                     Map.of("orderId", orderId, "customerId", customerId));
     }
     
+    public void recordOrdersStatusChanged(OrderStatus status, int orderCount, BigDecimal totalAmount) {
+        BigDecimal count = BigDecimal.valueOf(orderCount);
+        Map<String, Object> metadata = Map.of("orderCount", orderCount);
+        switch (status) {
+            case CONFIRMED -> recordMetric("ORDERS", "orders_confirmed", count, "daily", metadata);
+            case PAID -> {
+                recordMetric("REVENUE", "order_revenue", totalAmount, "daily", metadata);
+                recordMetric("ORDERS", "orders_paid", count, "daily", metadata);
+            }
+            case SHIPPED -> recordMetric("FULFILLMENT", "orders_shipped", count, "daily", metadata);
+            case DELIVERED -> recordMetric("FULFILLMENT", "orders_delivered", count, "daily", metadata);
+            case CANCELLED -> recordMetric("ORDERS", "orders_cancelled", count, "daily", metadata);
+            default -> { }
+        }
+    }
+    
     public void recordCustomerRegistered(Long customerId, String email) {
         recordMetric("CUSTOMERS", "customers_registered", BigDecimal.ONE, "daily",
                     Map.of("customerId", customerId, "email", email));
@@ -69,6 +87,11 @@ public class AnalyticsService {
                     Map.of("productId", productId, "category", category));
     }
     
+    public void recordProductsImported(String importId, int productCount) {
+        recordMetric("CATALOG", "products_created", BigDecimal.valueOf(productCount), "daily",
+                    Map.of("importId", importId));
+    }
+    
     public void recordProductStockReduced(Long productId, Integer quantityReduced) {
         recordMetric("INVENTORY", "stock_reduced", BigDecimal.valueOf(quantityReduced), "daily",
                     Map.of("productId", productId));
@@ -91,6 +114,17 @@ public class AnalyticsService {
                     Map.of("paymentId", paymentId, "orderId", orderId, "reason", reason));
     }
     
+    public void recordPaymentsCaptured(int completedCount, BigDecimal revenue, int failedCount) {
+        Map<String, Object> metadata = Map.of("completedCount", completedCount, "failedCount", failedCount);
+        if (completedCount > 0) {
+            recordMetric("PAYMENTS", "payments_completed", BigDecimal.valueOf(completedCount), "daily", metadata);
+            recordMetric("REVENUE", "payment_revenue", revenue, "daily", metadata);
+        }
+        if (failedCount > 0) {
+            recordMetric("PAYMENTS", "payments_failed", BigDecimal.valueOf(failedCount), "daily", metadata);
+        }
+    }
+    
     public void recordPaymentRefunded(Long paymentId, Long orderId, BigDecimal amount) {
         recordMetric("PAYMENTS", "payments_refunded", BigDecimal.ONE, "daily",
                     Map.of("paymentId", paymentId, "orderId", orderId));
@@ -103,6 +137,11 @@ public class AnalyticsService {
                     Map.of("shipmentId", shipmentId, "orderId", orderId));
     }
     
+    public void recordShipmentsCreated(int shipmentCount) {
+        recordMetric("SHIPPING", "shipments_created", BigDecimal.valueOf(shipmentCount), "daily",
+                    Map.of("shipmentCount", shipmentCount));
+    }
+    
     public void recordShipmentDelivered(Long shipmentId, Long orderId) {
         recordMetric("SHIPPING", "shipments_delivered", BigDecimal.ONE, "daily",
                     Map.of("shipmentId", shipmentId, "orderId", orderId));
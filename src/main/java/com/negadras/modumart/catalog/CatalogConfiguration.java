@@ -0,0 +1,274 @@
+package com.negadras.modumart.catalog;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Configuration
+public class CatalogConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.catalog.hot-inventory")
+    public HotInventoryProperties hotInventoryProperties() {
+        return new HotInventoryProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.catalog.product-cache")
+    public ProductCacheProperties productCacheProperties() {
+        return new ProductCacheProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.catalog.search")
+    public SearchProperties searchProperties() {
+        return new SearchProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.catalog.import")
+    public ImportProperties importProperties() {
+        return new ImportProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.catalog.export")
+    public ExportProperties exportProperties() {
+        return new ExportProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.catalog.reservations")
+    public ReservationProperties reservationProperties() {
+        return new ReservationProperties();
+    }
+
+    public static class HotInventoryProperties {
+        private boolean enabled = false;
+        private Set<Long> products = new HashSet<>();
+        private int leaseSize = 100;
+        private Duration leaseTimeout = Duration.ofMinutes(1);
+        private Duration renewInterval = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Set<Long> getProducts() {
+            return products;
+        }
+
+        public void setProducts(Set<Long> products) {
+            this.products = products;
+        }
+
+        public int getLeaseSize() {
+            return leaseSize;
+        }
+
+        public void setLeaseSize(int leaseSize) {
+            this.leaseSize = leaseSize;
+        }
+
+        public Duration getLeaseTimeout() {
+            return leaseTimeout;
+        }
+
+        public void setLeaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+        }
+
+        public Duration getRenewInterval() {
+            return renewInterval;
+        }
+
+        public void setRenewInterval(Duration renewInterval) {
+            this.renewInterval = renewInterval;
+        }
+    }
+
+    public static class ProductCacheProperties {
+        private long maximumSize = 10_000;
+        private Duration timeToLive = Duration.ofMinutes(10);
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    public static class SearchProperties {
+        private boolean inMemoryIndex = true;
+        private int minQueryLength = 2;
+        private int maxCandidates = 10_000;
+        private Duration rebuildInterval = Duration.ofMinutes(5);
+
+        public boolean isInMemoryIndex() {
+            return inMemoryIndex;
+        }
+
+        public void setInMemoryIndex(boolean inMemoryIndex) {
+            this.inMemoryIndex = inMemoryIndex;
+        }
+
+        public int getMinQueryLength() {
+            return minQueryLength;
+        }
+
+        public void setMinQueryLength(int minQueryLength) {
+            this.minQueryLength = minQueryLength;
+        }
+
+        public int getMaxCandidates() {
+            return maxCandidates;
+        }
+
+        public void setMaxCandidates(int maxCandidates) {
+            this.maxCandidates = maxCandidates;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
+    public static class ImportProperties {
+        private int batchSize = 1000;
+        private int maxReportedErrors = 1000;
+        private int maxConcurrentImports = 1;
+        private int maxQueuedImports = 4;
+        private Duration reportRetention = Duration.ofHours(1);
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxReportedErrors() {
+            return maxReportedErrors;
+        }
+
+        public void setMaxReportedErrors(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        public int getMaxConcurrentImports() {
+            return maxConcurrentImports;
+        }
+
+        public void setMaxConcurrentImports(int maxConcurrentImports) {
+            this.maxConcurrentImports = maxConcurrentImports;
+        }
+
+        public int getMaxQueuedImports() {
+            return maxQueuedImports;
+        }
+
+        public void setMaxQueuedImports(int maxQueuedImports) {
+            this.maxQueuedImports = maxQueuedImports;
+        }
+
+        public Duration getReportRetention() {
+            return reportRetention;
+        }
+
+        public void setReportRetention(Duration reportRetention) {
+            this.reportRetention = reportRetention;
+        }
+    }
+
+    public static class ExportProperties {
+        private int maxConcurrentExports = 4;
+        private Duration timeout = Duration.ofMinutes(10);
+
+        public int getMaxConcurrentExports() {
+            return maxConcurrentExports;
+        }
+
+        public void setMaxConcurrentExports(int maxConcurrentExports) {
+            this.maxConcurrentExports = maxConcurrentExports;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    public static class ReservationProperties {
+        private Duration ttl = Duration.ofMinutes(30);
+        private Duration heldTtl = Duration.ofHours(24);
+        private Duration expiryInterval = Duration.ofSeconds(1);
+        private int expiryBatchSize = 500;
+        private Duration catchUpInterval = Duration.ofMinutes(1);
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getHeldTtl() {
+            return heldTtl;
+        }
+
+        public void setHeldTtl(Duration heldTtl) {
+            this.heldTtl = heldTtl;
+        }
+
+        public Duration getExpiryInterval() {
+            return expiryInterval;
+        }
+
+        public void setExpiryInterval(Duration expiryInterval) {
+            this.expiryInterval = expiryInterval;
+        }
+
+        public int getExpiryBatchSize() {
+            return expiryBatchSize;
+        }
+
+        public void setExpiryBatchSize(int expiryBatchSize) {
+            this.expiryBatchSize = expiryBatchSize;
+        }
+
+        public Duration getCatchUpInterval() {
+            return catchUpInterval;
+        }
+
+        public void setCatchUpInterval(Duration catchUpInterval) {
+            this.catchUpInterval = catchUpInterval;
+        }
+    }
+}
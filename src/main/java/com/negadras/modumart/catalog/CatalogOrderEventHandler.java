@@ -1,67 +1,97 @@
 package com.negadras.modumart.catalog;
 
 import com.negadras.modumart.orders.OrderCancelledEvent;
+import com.negadras.modumart.orders.OrderConfirmedEvent;
 import com.negadras.modumart.orders.OrderCreatedEvent;
 import com.negadras.modumart.orders.OrderItem;
+import com.negadras.modumart.orders.OrderPaidEvent;
+import com.negadras.modumart.orders.OrderStatus;
+import com.negadras.modumart.orders.OrderSummary;
+import com.negadras.modumart.orders.OrdersStatusChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Component
 public class CatalogOrderEventHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(CatalogOrderEventHandler.class);
 
-    private final ProductRepository productRepository;
-    private final ApplicationEventPublisher eventPublisher;
+    private final ProductService productService;
 
-    public CatalogOrderEventHandler(ProductRepository productRepository, ApplicationEventPublisher eventPublisher) {
-        this.productRepository = productRepository;
-        this.eventPublisher = eventPublisher;
+    public CatalogOrderEventHandler(ProductService productService) {
+        this.productService = productService;
     }
 
     @EventListener
     public void handleOrderCreated(OrderCreatedEvent event) {
         logger.info("Processing order created event for order: {}", event.orderId());
 
-        for (OrderItem item : event.items()) {
-            reduceProductStock(item.productId(), item.quantity());
+        if (productService.reserveStock(event.orderId(), quantities(event.items()))) {
+            logger.info("Stock reduced for order: {}", event.orderId());
+        } else {
+            logger.warn("Stock could not be reserved for order: {}", event.orderId());
         }
+    }
 
-        logger.info("Stock reduced for order: {}", event.orderId());
+    @EventListener
+    public void handleOrderConfirmed(OrderConfirmedEvent event) {
+        productService.holdReservations(List.of(event.orderId()));
     }
 
     @EventListener
     public void handleOrderCancelled(OrderCancelledEvent event) {
         logger.info("Processing order cancelled event for order: {}", event.orderId());
 
-        // Note: In a real system, we need to get the order items from the cancelled order
-        // For demo purposes, we'll emit an event indicating the order was cancelled
-        eventPublisher.publishEvent(new OrderStockRestorationNeededEvent(event.orderId()));
+        if (productService.restoreStock(event.orderId())) {
+            logger.info("Stock restored for order: {}", event.orderId());
+        } else {
+            logger.info("No stock reservation to restore for order: {}", event.orderId());
+        }
+    }
 
-        logger.info("Order cancellation processed for order: {}", event.orderId());
+    @EventListener
+    public void handleOrderPaid(OrderPaidEvent event) {
+        commitPaidOrder(event.orderId(), event.customerId());
     }
 
-    private void reduceProductStock(Long productId, Integer quantity) {
-        productRepository.findById(productId).ifPresentOrElse(
-            product -> {
-                if (product.stock() >= quantity) {
-                    Product updated = product.withStock(product.stock() - quantity);
-                    productRepository.save(updated);
-                    logger.debug("Reduced stock for product {} by {} units. New stock: {}",
-                            productId, quantity, updated.stock());
-                } else {
-                    logger.warn("Insufficient stock for product {}. Available: {}, Requested: {}",
-                            productId, product.stock(), quantity);
-                    eventPublisher.publishEvent(new ProductOutOfStockEvent(productId, product.stock(), quantity));
-                }
-            },
-            () -> {
-                logger.error("Product not found: {}", productId);
-                eventPublisher.publishEvent(new ProductNotFoundEvent(productId));
+    @EventListener
+    public void handleOrdersStatusChanged(OrdersStatusChangedEvent event) {
+        List<Long> orderIds = event.orders().stream().map(OrderSummary::id).toList();
+        if (event.status() == OrderStatus.CONFIRMED) {
+            productService.holdReservations(orderIds);
+        } else if (event.status() == OrderStatus.PAID) {
+            int committed = productService.commitReservations(orderIds);
+            if (committed < orderIds.size()) {
+                // Already committed reservations are left as they are
+                event.orders().forEach(order -> commitPaidOrder(order.id(), order.customerId()));
             }
-        );
+            logger.info("Stock reservations committed for {} paid orders", orderIds.size());
+        } else if (event.status() == OrderStatus.CANCELLED) {
+            List<Long> restored = productService.restoreStock(orderIds);
+            logger.info("Stock restored for {} of {} cancelled orders", restored.size(), orderIds.size());
+        }
+    }
+
+    /**
+     * Keeps the payment of an order whose stock is gone: the customer has been charged by now,
+     * so the shortfall is recorded and published rather than failing the payment.
+     */
+    private void commitPaidOrder(Long orderId, Long customerId) {
+        if (productService.commitPaidOrder(orderId, customerId)) {
+            logger.info("Stock reservation committed for order: {}", orderId);
+        } else {
+            logger.warn("Order {} was paid but its stock is no longer available", orderId);
+        }
+    }
+
+    private static Map<Long, Integer> quantities(Collection<OrderItem> items) {
+        return items.stream().collect(Collectors.toMap(OrderItem::productId, OrderItem::quantity, Integer::sum));
     }
 }
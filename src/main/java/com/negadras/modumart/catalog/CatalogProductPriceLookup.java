@@ -0,0 +1,30 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.orders.ProductPriceLookup;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prices order lines from the product cache, loading the products it misses with a single
+ * IN query per order.
+ */
+@Component
+public class CatalogProductPriceLookup implements ProductPriceLookup {
+
+    private final ProductCache productCache;
+
+    public CatalogProductPriceLookup(ProductCache productCache) {
+        this.productCache = productCache;
+    }
+
+    @Override
+    public Map<Long, ProductPrice> findPrices(Collection<Long> productIds) {
+        Map<Long, ProductPrice> prices = new HashMap<>(productIds.size() * 2);
+        productCache.getAll(productIds).values().forEach(product ->
+                prices.put(product.id(), new ProductPrice(product.id(), product.name(), product.price())));
+        return prices;
+    }
+}
@@ -0,0 +1,18 @@
+package com.negadras.modumart.catalog;
+
+import java.math.BigDecimal;
+
+public record CategoryFacet(
+        String category,
+        long totalProducts,
+        long inStockProducts,
+        BigDecimal minPrice,
+        BigDecimal maxPrice
+) {
+    boolean matches(CategoryFacet other) {
+        return totalProducts == other.totalProducts
+                && inStockProducts == other.inStockProducts
+                && minPrice.compareTo(other.minPrice) == 0
+                && maxPrice.compareTo(other.maxPrice) == 0;
+    }
+}
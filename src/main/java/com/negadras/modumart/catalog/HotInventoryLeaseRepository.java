@@ -0,0 +1,76 @@
+package com.negadras.modumart.catalog;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Stock leases that let a node sell hot products without touching their products row.
+ *
+ * Leased units are moved out of the products table when the lease is granted. Units sold
+ * from a lease are the reservation lines that reference it, so a lease can be closed
+ * correctly by any node, including after the node that held it has crashed.
+ */
+public interface HotInventoryLeaseRepository {
+
+    /**
+     * Moves up to {@code quantity} units of a product's stock into a new lease held by {@code nodeId}.
+     *
+     * @return the granted lease, empty when the product has no stock left
+     */
+    Optional<Grant> grantLease(Long productId, String nodeId, int quantity, LocalDateTime now);
+
+    /**
+     * Moves up to {@code quantity} more units of the product's stock into an open lease.
+     * The lease must be locked with {@link #lockOpenLease} in the same transaction.
+     *
+     * @return the number of units added
+     */
+    int extendLease(Long leaseId, Long productId, int quantity, LocalDateTime now);
+
+    /**
+     * Locks a lease against concurrent closing.
+     *
+     * @return false if the lease has been closed
+     */
+    boolean lockOpenLease(Long leaseId);
+
+    /**
+     * Takes a shared lock on the given leases, so they can't be closed before the current
+     * transaction has recorded what it sells from them.
+     *
+     * @return the ids of the leases that are still open
+     */
+    Set<Long> lockOpenLeasesForSale(Collection<Long> leaseIds);
+
+    /**
+     * Marks the open leases of a node as alive.
+     *
+     * @return the ids of the node's leases that are still open
+     */
+    Set<Long> renewLeases(String nodeId, LocalDateTime now);
+
+    /**
+     * Locks the open leases of a node, waiting for sales in progress to finish.
+     */
+    List<Long> lockNodeLeases(String nodeId);
+
+    /**
+     * Locks up to {@code limit} open leases that haven't been renewed since {@code renewedBefore},
+     * skipping leases that are locked by sales in progress.
+     */
+    List<Long> lockExpiredLeases(LocalDateTime renewedBefore, int limit);
+
+    /**
+     * Closes locked leases and returns their unsold units to the products table.
+     *
+     * @return the units returned per product
+     */
+    SortedMap<Long, Integer> closeLeases(Collection<Long> leaseIds, LocalDateTime now);
+
+    record Grant(Long leaseId, int quantity) {
+    }
+}
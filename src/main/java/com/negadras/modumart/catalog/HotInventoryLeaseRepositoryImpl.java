@@ -0,0 +1,125 @@
+package com.negadras.modumart.catalog;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+class HotInventoryLeaseRepositoryImpl implements HotInventoryLeaseRepository {
+
+    private static final String GRANTED_STOCK_CTE =
+            "WITH granted AS (" +
+            "UPDATE products p SET stock = p.stock - g.quantity, updated_at = CURRENT_TIMESTAMP " +
+            "FROM (SELECT id, LEAST(stock, ?) AS quantity FROM products WHERE id = ? AND stock > 0 FOR UPDATE) g " +
+            "WHERE p.id = g.id RETURNING p.id, g.quantity) ";
+
+    private static final String GRANT_LEASE_SQL = GRANTED_STOCK_CTE +
+            "INSERT INTO hot_inventory_leases (product_id, node_id, quantity, created_at, renewed_at) " +
+            "SELECT id, ?, quantity, ?, ? FROM granted RETURNING id, quantity";
+
+    private static final String EXTEND_LEASE_SQL = GRANTED_STOCK_CTE +
+            "UPDATE hot_inventory_leases l SET quantity = l.quantity + g.quantity, renewed_at = ? " +
+            "FROM granted g WHERE l.id = ? RETURNING g.quantity";
+
+    private static final String LOCK_OPEN_LEASE_SQL =
+            "SELECT id FROM hot_inventory_leases WHERE id = ? AND closed_at IS NULL FOR UPDATE";
+
+    private static final String LOCK_OPEN_LEASES_FOR_SALE_SQL =
+            "SELECT id FROM hot_inventory_leases WHERE id = ANY(?) AND closed_at IS NULL FOR SHARE";
+
+    private static final String RENEW_LEASES_SQL =
+            "UPDATE hot_inventory_leases SET renewed_at = ? WHERE node_id = ? AND closed_at IS NULL RETURNING id";
+
+    private static final String LOCK_NODE_LEASES_SQL =
+            "SELECT id FROM hot_inventory_leases WHERE node_id = ? AND closed_at IS NULL ORDER BY id FOR UPDATE";
+
+    private static final String LOCK_EXPIRED_LEASES_SQL =
+            "SELECT id FROM hot_inventory_leases WHERE closed_at IS NULL AND renewed_at < ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    // Runs as its own statement after the leases are locked, so every sale that held a lease
+    // has committed and is visible to this statement's snapshot
+    private static final String CLOSE_LEASES_SQL =
+            "WITH sold AS (" +
+            "SELECT l.id, l.product_id, l.quantity, COALESCE(SUM(r.quantity), 0) AS sold " +
+            "FROM hot_inventory_leases l LEFT JOIN stock_reservation_lines r ON r.lease_id = l.id " +
+            "WHERE l.id = ANY(?) AND l.closed_at IS NULL GROUP BY l.id), " +
+            "closed AS (" +
+            "UPDATE hot_inventory_leases l SET quantity = s.sold, closed_at = ? FROM sold s " +
+            "WHERE l.id = s.id RETURNING s.product_id, s.quantity - s.sold AS unsold), " +
+            "returned AS (" +
+            "SELECT product_id, SUM(unsold)::integer AS unsold FROM closed GROUP BY product_id HAVING SUM(unsold) > 0), " +
+            "restocked AS (" +
+            "UPDATE products p SET stock = p.stock + r.unsold, updated_at = CURRENT_TIMESTAMP " +
+            "FROM returned r WHERE p.id = r.product_id) " +
+            "SELECT product_id, unsold FROM returned";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    HotInventoryLeaseRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Grant> grantLease(Long productId, String nodeId, int quantity, LocalDateTime now) {
+        Timestamp timestamp = Timestamp.valueOf(now);
+        return jdbcTemplate.query(GRANT_LEASE_SQL,
+                (rs, rowNum) -> new Grant(rs.getLong("id"), rs.getInt("quantity")),
+                quantity, productId, nodeId, timestamp, timestamp).stream().findFirst();
+    }
+
+    @Override
+    public int extendLease(Long leaseId, Long productId, int quantity, LocalDateTime now) {
+        return jdbcTemplate.query(EXTEND_LEASE_SQL, (rs, rowNum) -> rs.getInt("quantity"),
+                quantity, productId, Timestamp.valueOf(now), leaseId).stream().findFirst().orElse(0);
+    }
+
+    @Override
+    public boolean lockOpenLease(Long leaseId) {
+        return !jdbcTemplate.queryForList(LOCK_OPEN_LEASE_SQL, Long.class, leaseId).isEmpty();
+    }
+
+    @Override
+    public Set<Long> lockOpenLeasesForSale(Collection<Long> leaseIds) {
+        return new HashSet<>(jdbcTemplate.query(LOCK_OPEN_LEASES_FOR_SALE_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", leaseIds.toArray())),
+                (rs, rowNum) -> rs.getLong("id")));
+    }
+
+    @Override
+    public Set<Long> renewLeases(String nodeId, LocalDateTime now) {
+        return new HashSet<>(jdbcTemplate.query(RENEW_LEASES_SQL, (rs, rowNum) -> rs.getLong("id"),
+                Timestamp.valueOf(now), nodeId));
+    }
+
+    @Override
+    public List<Long> lockNodeLeases(String nodeId) {
+        return jdbcTemplate.queryForList(LOCK_NODE_LEASES_SQL, Long.class, nodeId);
+    }
+
+    @Override
+    public List<Long> lockExpiredLeases(LocalDateTime renewedBefore, int limit) {
+        return jdbcTemplate.queryForList(LOCK_EXPIRED_LEASES_SQL, Long.class, Timestamp.valueOf(renewedBefore), limit);
+    }
+
+    @Override
+    public SortedMap<Long, Integer> closeLeases(Collection<Long> leaseIds, LocalDateTime now) {
+        SortedMap<Long, Integer> returned = new TreeMap<>();
+        jdbcTemplate.query(CLOSE_LEASES_SQL,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", leaseIds.toArray()));
+                    ps.setTimestamp(2, Timestamp.valueOf(now));
+                },
+                rs -> {
+                    returned.put(rs.getLong("product_id"), rs.getInt("unsold"));
+                });
+        return returned;
+    }
+}
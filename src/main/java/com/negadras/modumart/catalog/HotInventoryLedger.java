@@ -0,0 +1,315 @@
+package com.negadras.modumart.catalog;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stock ledger for flash-sale products.
+ *
+ * Products flagged in {@code modumart.catalog.hot-inventory.products} are sold from a stock
+ * lease: a block of units this node has moved out of the products table, so the database stays
+ * the authority on how many units exist and several nodes can sell the same product without
+ * overselling it. A reservation takes units from the lease with a CAS loop and records the
+ * lease on its reservation lines, which are the durable record of what was sold. Units taken by
+ * a transaction that rolls back go back to the lease.
+ *
+ * Leases are topped up in the background when they run low, renewed on a fixed schedule and
+ * closed on shutdown. Any node closes leases that stopped being renewed, returning the units
+ * that no reservation line accounts for, so a crashed node's leases are recovered without it.
+ * Until a product has a lease, and whenever its lease can't cover an order line, the line is
+ * reserved against the products table as usual. The products table holds the stock that is
+ * not leased, so a product update sets the stock available besides the open leases.
+ *
+ * The ledger only exists when {@code modumart.catalog.hot-inventory.enabled} is set, so a node
+ * without it runs no refill thread and no lease maintenance.
+ */
+@Component
+@ConditionalOnProperty(prefix = "modumart.catalog.hot-inventory", name = "enabled", havingValue = "true")
+public class HotInventoryLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotInventoryLedger.class);
+
+    private static final int RECLAIM_BATCH_SIZE = 100;
+
+    private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final ProductFacetIndex productFacetIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogConfiguration.HotInventoryProperties properties;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+    private final Set<Long> refilling = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refillExecutor;
+
+    public HotInventoryLedger(ProductRepository productRepository, ProductCache productCache,
+                              ProductFacetIndex productFacetIndex, TransactionTemplate transactionTemplate,
+                              CatalogConfiguration.HotInventoryProperties properties) {
+        this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.productFacetIndex = productFacetIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.refillExecutor = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("hot-inventory-refill").daemon().factory());
+    }
+
+    public boolean isHot(Long productId) {
+        return properties.getProducts().contains(productId);
+    }
+
+    /**
+     * Drops the local lease of a deleted product. Its lease rows are deleted with the product.
+     */
+    public void untrack(Long productId) {
+        leases.remove(productId);
+    }
+
+    /**
+     * Returns the subset of the given order lines that refer to hot products.
+     */
+    public SortedMap<Long, Integer> hotLines(SortedMap<Long, Integer> lines) {
+        SortedMap<Long, Integer> hot = new TreeMap<>();
+        lines.forEach((productId, quantity) -> {
+            if (isHot(productId)) {
+                hot.put(productId, quantity);
+            }
+        });
+        return hot;
+    }
+
+    /**
+     * Takes as many of the given lines as this node's leases can cover. Lines left out must
+     * be reserved against the products table. The taken units go back to their leases unless
+     * the current transaction commits; call {@link #release} to give them back earlier.
+     */
+    public Reservation reserve(SortedMap<Long, Integer> lines) {
+        Reservation reservation = new Reservation();
+        lines.forEach((productId, quantity) -> {
+            Lease lease = leases.get(productId);
+            if (lease != null && lease.tryTake(quantity)) {
+                reservation.quantities.put(productId, quantity);
+                reservation.leases.put(productId, lease);
+            }
+            if (lease == null || lease.available.get() < refillThreshold()) {
+                requestRefill(productId);
+            }
+        });
+        if (!reservation.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(reservation);
+                    }
+                }
+            });
+        }
+        return reservation;
+    }
+
+    /**
+     * Keeps only the lines whose lease is still open, giving back the others and dropping their
+     * closed leases.
+     *
+     * @param openLeaseIds the leases locked for the sale with {@link ProductRepository#lockOpenLeasesForSale}
+     */
+    public void retainOpenLeases(Reservation reservation, Set<Long> openLeaseIds) {
+        reservation.leases.entrySet().removeIf(line -> {
+            Lease lease = line.getValue();
+            if (openLeaseIds.contains(lease.id)) {
+                return false;
+            }
+            leases.remove(line.getKey(), lease);
+            reservation.quantities.remove(line.getKey());
+            return true;
+        });
+    }
+
+    /**
+     * Gives the units of a reservation back to their leases. Releasing twice has no effect.
+     */
+    public void release(Reservation reservation) {
+        if (reservation.released.compareAndSet(false, true)) {
+            reservation.quantities.forEach((productId, quantity) ->
+                    reservation.leases.get(productId).available.addAndGet(quantity));
+        }
+    }
+
+    /**
+     * Adds the units this node holds in its lease to the stock read from the products table.
+     */
+    public Product overlay(Product product) {
+        Lease lease = leases.get(product.id());
+        return lease != null ? product.withStock(product.stock() + lease.available.get()) : product;
+    }
+
+    /**
+     * Renews this node's leases, drops the ones another node has closed, closes leases that
+     * have not been renewed in time and tops up leases that are running low.
+     */
+    @Scheduled(fixedDelayString = "${modumart.catalog.hot-inventory.renew-interval:PT10S}")
+    public void maintainLeases() {
+        try {
+            if (!leases.isEmpty()) {
+                Set<Long> open = productRepository.renewLeases(nodeId, LocalDateTime.now());
+                leases.entrySet().removeIf(lease -> !open.contains(lease.getValue().id));
+            }
+            reclaimExpiredLeases();
+        } catch (DataAccessException e) {
+            logger.error("Failed to maintain hot inventory leases: {}", e.getMessage());
+        }
+        leases.forEach((productId, lease) -> {
+            if (lease.available.get() < refillThreshold()) {
+                requestRefill(productId);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void closeLeases() {
+        refillExecutor.shutdownNow();
+        if (leases.isEmpty()) {
+            return;
+        }
+        leases.clear();
+        try {
+            SortedMap<Long, Integer> returned = transactionTemplate.execute(status ->
+                    productRepository.closeLeases(productRepository.lockNodeLeases(nodeId), LocalDateTime.now()));
+            logger.info("Closed hot inventory leases, returning stock of {} products", returned.size());
+        } catch (DataAccessException e) {
+            logger.error("Failed to close hot inventory leases, they will be reclaimed once they expire: {}",
+                    e.getMessage());
+        }
+    }
+
+    private void reclaimExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        SortedMap<Long, Integer> returned = transactionTemplate.execute(status -> {
+            List<Long> expired = productRepository.lockExpiredLeases(now.minus(properties.getLeaseTimeout()),
+                    RECLAIM_BATCH_SIZE);
+            return expired.isEmpty() ? new TreeMap<>() : productRepository.closeLeases(expired, now);
+        });
+        if (!returned.isEmpty()) {
+            productCache.invalidateAll(returned.keySet());
+            returned.forEach(productFacetIndex::adjustStock);
+            logger.warn("Reclaimed expired hot inventory leases, returning {} units of {} products",
+                    returned.values().stream().mapToInt(Integer::intValue).sum(), returned.size());
+        }
+    }
+
+    private void requestRefill(Long productId) {
+        if (refilling.add(productId)) {
+            refillExecutor.execute(() -> {
+                try {
+                    refill(productId);
+                } finally {
+                    refilling.remove(productId);
+                }
+            });
+        }
+    }
+
+    private void refill(Long productId) {
+        Lease lease = leases.get(productId);
+        int wanted = properties.getLeaseSize() - (lease != null ? lease.available.get() : 0);
+        if (wanted <= 0) {
+            return;
+        }
+        try {
+            if (lease == null) {
+                transactionTemplate.execute(status ->
+                        productRepository.grantLease(productId, nodeId, wanted, LocalDateTime.now()))
+                        .ifPresent(grant -> {
+                            leases.put(productId, new Lease(grant.leaseId(), grant.quantity()));
+                            productCache.invalidate(productId);
+                            productFacetIndex.adjustStock(productId, -grant.quantity());
+                        });
+                return;
+            }
+            Integer granted = transactionTemplate.execute(status -> productRepository.lockOpenLease(lease.id)
+                    ? productRepository.extendLease(lease.id, productId, wanted, LocalDateTime.now())
+                    : null);
+            if (granted == null) {
+                leases.remove(productId, lease);
+            } else if (granted > 0) {
+                lease.available.addAndGet(granted);
+                productCache.invalidate(productId);
+                productFacetIndex.adjustStock(productId, -granted);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Failed to lease stock of hot product {}: {}", productId, e.getMessage());
+        }
+    }
+
+    private int refillThreshold() {
+        return Math.max(1, properties.getLeaseSize() / 2);
+    }
+
+    /**
+     * Units of hot products taken from this node's leases for one order.
+     */
+    public static final class Reservation {
+
+        private final SortedMap<Long, Integer> quantities = new TreeMap<>();
+        private final Map<Long, Lease> leases = new HashMap<>();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        public SortedMap<Long, Integer> quantities() {
+            return quantities;
+        }
+
+        public Map<Long, Long> leaseIds() {
+            Map<Long, Long> leaseIds = new HashMap<>();
+            leases.forEach((productId, lease) -> leaseIds.put(productId, lease.id));
+            return leaseIds;
+        }
+
+        public boolean isEmpty() {
+            return quantities.isEmpty();
+        }
+    }
+
+    private static final class Lease {
+
+        private final long id;
+        private final AtomicInteger available;
+
+        private Lease(long id, int quantity) {
+            this.id = id;
+            this.available = new AtomicInteger(quantity);
+        }
+
+        private boolean tryTake(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+    }
+}
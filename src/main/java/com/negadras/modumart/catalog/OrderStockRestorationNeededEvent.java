@@ -1,4 +0,0 @@
-package com.negadras.modumart.catalog;
-
-public record OrderStockRestorationNeededEvent(Long orderId) {
-}
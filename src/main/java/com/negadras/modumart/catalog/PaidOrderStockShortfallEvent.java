@@ -0,0 +1,7 @@
+package com.negadras.modumart.catalog;
+
+import java.util.List;
+
+public record PaidOrderStockShortfallEvent(Long orderId, Long customerId,
+                                           List<ProductOutOfStockEvent.Shortage> shortages) {
+}
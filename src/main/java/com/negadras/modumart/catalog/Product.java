@@ -12,13 +12,14 @@ public record Product(
         String description,
         BigDecimal price,
         Integer stock,
-        String category
+        String category,
+        String sku
 ) {
     public Product withId(Long id) {
-        return new Product(id, name, description, price, stock, category);
+        return new Product(id, name, description, price, stock, category, sku);
     }
     
     public Product withStock(Integer newStock) {
-        return new Product(id, name, description, price, newStock, category);
+        return new Product(id, name, description, price, newStock, category, sku);
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.negadras.modumart.catalog;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bounded read-through cache of products keyed by id.
+ *
+ * Entries expire after {@code modumart.catalog.product-cache.time-to-live} and the least
+ * recently used ones are evicted beyond {@code maximum-size}. Concurrent misses for the same
+ * id share a single load. Invalidations issued inside a transaction take effect once it
+ * commits, so a read racing the write can't cache the row it is replacing. Hit, miss and
+ * eviction counts are published as {@code cache.*} metrics tagged {@code cache=products}.
+ */
+@Component
+public class ProductCache {
+
+    private final LoadingCache<Long, Product> products;
+
+    public ProductCache(ProductRepository productRepository,
+                        CatalogConfiguration.ProductCacheProperties properties,
+                        MeterRegistry meterRegistry) {
+        this.products = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Product load(Long id) {
+                        return productRepository.findById(id).orElse(null);
+                    }
+
+                    @Override
+                    public Map<Long, Product> loadAll(Set<? extends Long> ids) {
+                        Map<Long, Product> loaded = new HashMap<>(ids.size() * 2);
+                        productRepository.findAllById(Set.copyOf(ids)).forEach(product -> loaded.put(product.id(), product));
+                        return loaded;
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "products");
+    }
+
+    public Optional<Product> get(Long id) {
+        return Optional.ofNullable(products.get(id));
+    }
+
+    /**
+     * Returns the cached products among the given ids, loading all missing ones with one query.
+     * Products that don't exist are absent from the result.
+     */
+    public Map<Long, Product> getAll(Collection<Long> ids) {
+        return products.getAll(ids);
+    }
+
+    public void invalidate(Long id) {
+        afterCommit(() -> products.invalidate(id));
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        Set<Long> invalidated = Set.copyOf(ids);
+        afterCommit(() -> products.invalidateAll(invalidated));
+    }
+
+    @EventListener
+    public void handleProductCreated(ProductCreatedEvent event) {
+        invalidate(event.productId());
+    }
+
+    @EventListener
+    public void handleProductStockReduced(ProductStockReducedEvent event) {
+        invalidate(event.productId());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
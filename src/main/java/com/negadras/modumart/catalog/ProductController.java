@@ -1,9 +1,20 @@
 package com.negadras.modumart.catalog;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -11,14 +22,43 @@ import java.util.List;
 public class ProductController {
     
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ObjectMapper objectMapper;
     
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService,
+                             ObjectMapper objectMapper) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.objectMapper = objectMapper;
     }
     
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public ProductPage getProducts(@RequestParam(required = false) Long after,
+                                   @RequestParam(required = false) Integer limit) {
+        return productService.getProducts(after, limit);
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        return ndjson(out -> exportAsNdjson(null, false, out));
+    }
+    
+    @GetMapping("/facets")
+    public List<CategoryFacet> getCategoryFacets() {
+        return productService.getCategoryFacets();
+    }
+    
+    @GetMapping("/search")
+    public ProductSearchResults searchProducts(@RequestParam String q,
+                                               @RequestParam(required = false) Integer page,
+                                               @RequestParam(required = false) Integer size) {
+        return productService.searchProducts(q, page, size);
+    }
+    
+    @GetMapping("/search/autocomplete")
+    public List<String> autocomplete(@RequestParam String prefix,
+                                     @RequestParam(required = false) Integer limit) {
+        return productService.autocompleteProductNames(prefix, limit);
     }
     
     @GetMapping("/{id}")
@@ -34,6 +74,23 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
     
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ProductImportReport> importCsv(InputStream body) throws IOException {
+        return importAccepted(productImportService.importCsv(body));
+    }
+    
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ProductImportReport> importNdjson(InputStream body) throws IOException {
+        return importAccepted(productImportService.importNdjson(body));
+    }
+    
+    @GetMapping("/import/{importId}")
+    public ResponseEntity<ProductImportReport> getImport(@PathVariable String importId) {
+        return productImportService.getImport(importId)
+                .map(report -> ResponseEntity.ok(report))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product product) {
         return productService.updateProduct(id, product)
@@ -48,13 +105,26 @@ public class ProductController {
     }
     
     @GetMapping("/category/{category}")
-    public List<Product> getProductsByCategory(@PathVariable String category) {
-        return productService.getProductsByCategory(category);
+    public ProductPage getProductsByCategory(@PathVariable String category,
+                                             @RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Integer limit) {
+        return productService.getProductsByCategory(category, after, limit);
+    }
+    
+    @GetMapping(value = "/category/{category}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProductsByCategory(@PathVariable String category) {
+        return ndjson(out -> exportAsNdjson(category, false, out));
     }
     
     @GetMapping("/in-stock")
-    public List<Product> getProductsInStock() {
-        return productService.getProductsInStock();
+    public ProductPage getProductsInStock(@RequestParam(required = false) Long after,
+                                          @RequestParam(required = false) Integer limit) {
+        return productService.getProductsInStock(after, limit);
+    }
+    
+    @GetMapping(value = "/in-stock/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProductsInStock() {
+        return ndjson(out -> exportAsNdjson(null, true, out));
     }
     
     @PutMapping("/{id}/reduce-stock")
@@ -62,4 +132,39 @@ public class ProductController {
         boolean reduced = productService.reduceStock(id, quantity);
         return reduced ? ResponseEntity.ok().build() : ResponseEntity.badRequest().build();
     }
-}
\ No newline at end of file
+    
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> handleExportsOrImportsBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .build();
+    }
+    
+    private static ResponseEntity<ProductImportReport> importAccepted(ProductImportReport report) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/products/import/" + report.importId()))
+                .body(report);
+    }
+    
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        // A bare StreamingResponseBody is written without a Content-Type
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    private void exportAsNdjson(String category, boolean inStockOnly, OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out);
+        try {
+            productService.exportProducts(category, inStockOnly, product -> {
+                try {
+                    buffered.write(objectMapper.writeValueAsBytes(product));
+                    buffered.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+    }
+}
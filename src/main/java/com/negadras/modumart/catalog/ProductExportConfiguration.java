@@ -0,0 +1,43 @@
+package com.negadras.modumart.catalog;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs NDJSON product exports, the application's only asynchronous MVC handlers, on their own
+ * bounded thread pool. A long export therefore never occupies the shared task executor that
+ * runs the {@code @Async} event listeners. When every export thread is busy, further exports
+ * are rejected instead of queued.
+ *
+ * The pool is deliberately not a bean: an {@code Executor} bean would replace the executor
+ * Spring Boot auto-configures for {@code @Async}.
+ */
+@Configuration
+class ProductExportConfiguration implements WebMvcConfigurer, DisposableBean {
+
+    private final CatalogConfiguration.ExportProperties properties;
+    private final ThreadPoolTaskExecutor exportExecutor = new ThreadPoolTaskExecutor();
+
+    ProductExportConfiguration(CatalogConfiguration.ExportProperties properties) {
+        this.properties = properties;
+        exportExecutor.setCorePoolSize(properties.getMaxConcurrentExports());
+        exportExecutor.setMaxPoolSize(properties.getMaxConcurrentExports());
+        exportExecutor.setQueueCapacity(0);
+        exportExecutor.setThreadNamePrefix("product-export-");
+        exportExecutor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(exportExecutor);
+        configurer.setDefaultTimeout(properties.getTimeout().toMillis());
+    }
+
+    @Override
+    public void destroy() {
+        exportExecutor.shutdown();
+    }
+}
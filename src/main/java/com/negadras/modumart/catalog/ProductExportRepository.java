@@ -0,0 +1,18 @@
+package com.negadras.modumart.catalog;
+
+import java.util.function.Consumer;
+
+/**
+ * Streams products from a database cursor without materializing the result.
+ */
+public interface ProductExportRepository {
+
+    /**
+     * Passes every matching product to {@code action} in id order. Must be called inside a
+     * transaction so the driver can use a server-side cursor.
+     *
+     * @param category only products in this category, or {@code null} for all categories
+     * @param inStockOnly only products with stock left
+     */
+    void streamProducts(String category, boolean inStockOnly, Consumer<Product> action);
+}
@@ -0,0 +1,46 @@
+package com.negadras.modumart.catalog;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+class ProductExportRepositoryImpl implements ProductExportRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductExportRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    @Override
+    public void streamProducts(String category, boolean inStockOnly, Consumer<Product> action) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, name, description, price, stock, category, sku FROM products WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (category != null) {
+            sql.append(" AND category = ?");
+            args.add(category);
+        }
+        if (inStockOnly) {
+            sql.append(" AND stock > 0");
+        }
+        sql.append(" ORDER BY id");
+
+        RowCallbackHandler handler = rs -> action.accept(new Product(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getBigDecimal("price"),
+                rs.getInt("stock"),
+                rs.getString("category"),
+                rs.getString("sku")));
+        jdbcTemplate.query(sql.toString(), handler, args.toArray());
+    }
+}
@@ -0,0 +1,303 @@
+package com.negadras.modumart.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Per-category product counts and price ranges, maintained incrementally in memory.
+ *
+ * {@link ProductService} reports every create, update, delete and stock change, and
+ * {@link HotInventoryLedger} reports the stock it leases, so the index follows the stock held
+ * in the products table. Changes are applied once the reporting transaction commits. The index
+ * is rebuilt from the products table at startup and whenever a periodic comparison against a
+ * database aggregate finds drift. A rebuild swaps in a fresh index and then re-reads the
+ * products changed while it was being built, so those changes aren't lost.
+ */
+@Component
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Entry> products = new HashMap<>();
+    private final Map<String, Accumulator> categories = new HashMap<>();
+    private Set<Long> changedDuringRebuild;
+
+    public ProductFacetIndex(ProductRepository productRepository, TransactionTemplate transactionTemplate) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            if (changedDuringRebuild != null) {
+                return;
+            }
+            changedDuringRebuild = new HashSet<>();
+        }
+        Map<Long, Entry> rebuiltProducts = new HashMap<>();
+        Map<String, Accumulator> rebuiltCategories = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    productRepository.streamProducts(null, false, product -> {
+                        Entry entry = Entry.of(product);
+                        rebuiltProducts.put(product.id(), entry);
+                        rebuiltCategories.computeIfAbsent(entry.category(), ignored -> new Accumulator()).add(entry);
+                    }));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        Set<Long> changed;
+        synchronized (this) {
+            products.clear();
+            products.putAll(rebuiltProducts);
+            categories.clear();
+            categories.putAll(rebuiltCategories);
+            changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+        }
+
+        // The stream may have read these products before or after their change, so take them
+        // from the database again rather than replaying their deltas
+        refresh(changed);
+        logger.info("Product facets built for {} products in {} categories, {} refreshed after changes",
+                rebuiltProducts.size(), rebuiltCategories.size(), changed.size());
+    }
+
+    public synchronized List<CategoryFacet> getFacets() {
+        List<CategoryFacet> facets = new ArrayList<>(categories.size());
+        categories.forEach((category, accumulator) -> facets.add(accumulator.toFacet(category)));
+        facets.sort(Comparator.comparing(CategoryFacet::category, Comparator.nullsLast(Comparator.naturalOrder())));
+        return facets;
+    }
+
+    public void put(Product product) {
+        afterCommit(product.id(), () -> putEntry(product));
+    }
+
+    public void remove(Long productId) {
+        afterCommit(productId, () -> removeEntry(productId));
+    }
+
+    public void adjustStock(Long productId, int delta) {
+        afterCommit(productId, () -> {
+            Entry previous = products.get(productId);
+            if (previous == null) {
+                return;
+            }
+            Entry updated = new Entry(previous.category(), previous.price(), previous.stock() + delta);
+            products.put(productId, updated);
+            categories.get(previous.category()).restock(previous, updated);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.catalog.facets.consistency-check-interval:PT15M}",
+               initialDelayString = "${modumart.catalog.facets.consistency-check-interval:PT15M}")
+    public void scheduledConsistencyCheck() {
+        checkConsistency();
+    }
+
+    /**
+     * Compares the in-memory facets with a database aggregate and rebuilds on any difference.
+     *
+     * Categories that changed in memory while the aggregate ran are skipped, since the aggregate
+     * may or may not include those changes. A change can also be committed before the aggregate
+     * and applied after it, so a difference only counts as drift if a second comparison finds
+     * it too.
+     *
+     * @return the categories that were inconsistent
+     */
+    public List<String> checkConsistency() {
+        List<String> inconsistent = compare(null);
+        if (!inconsistent.isEmpty()) {
+            inconsistent = compare(inconsistent);
+        }
+        if (!inconsistent.isEmpty()) {
+            logger.warn("Product facets drifted for categories {}; rebuilding", inconsistent);
+            rebuild();
+        }
+        return inconsistent;
+    }
+
+    /**
+     * @param candidates the categories to compare, or null for all of them
+     * @return the compared categories that differ and didn't change while the aggregate ran
+     */
+    private List<String> compare(List<String> candidates) {
+        Map<String, Observation> before = observe();
+        Map<String, CategoryFacet> expected = new HashMap<>();
+        productRepository.aggregateCategoryFacets().forEach(facet -> expected.put(facet.category(), facet));
+        Map<String, Observation> after = observe();
+        if (before == null || after == null) {
+            // A rebuild was in progress and replaces what the comparison would look at
+            return List.of();
+        }
+
+        Set<String> categoryNames = new HashSet<>(expected.keySet());
+        categoryNames.addAll(before.keySet());
+        categoryNames.addAll(after.keySet());
+        List<String> inconsistent = new ArrayList<>();
+        for (String category : categoryNames) {
+            if (candidates != null && !candidates.contains(category)) {
+                continue;
+            }
+            Observation observed = after.get(category);
+            if (!Objects.equals(before.get(category), observed)) {
+                continue;
+            }
+            CategoryFacet facet = expected.get(category);
+            if (observed == null || facet == null || !observed.facet().matches(facet)) {
+                inconsistent.add(category);
+            }
+        }
+        return inconsistent;
+    }
+
+    private synchronized Map<String, Observation> observe() {
+        if (changedDuringRebuild != null) {
+            return null;
+        }
+        Map<String, Observation> observations = new HashMap<>();
+        categories.forEach((category, accumulator) -> observations.put(category,
+                new Observation(accumulator, accumulator.version, accumulator.toFacet(category))));
+        return observations;
+    }
+
+    private void refresh(Set<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Product> current = new HashMap<>();
+        productRepository.findAllById(productIds).forEach(product -> current.put(product.id(), product));
+        synchronized (this) {
+            productIds.forEach(productId -> {
+                Product product = current.get(productId);
+                if (product != null) {
+                    putEntry(product);
+                } else {
+                    removeEntry(productId);
+                }
+            });
+        }
+    }
+
+    private void putEntry(Product product) {
+        removeEntry(product.id());
+        Entry entry = Entry.of(product);
+        products.put(product.id(), entry);
+        categories.computeIfAbsent(entry.category(), ignored -> new Accumulator()).add(entry);
+    }
+
+    private void removeEntry(Long productId) {
+        Entry previous = products.remove(productId);
+        if (previous != null) {
+            Accumulator accumulator = categories.get(previous.category());
+            accumulator.remove(previous);
+            if (accumulator.total == 0) {
+                categories.remove(previous.category());
+            }
+        }
+    }
+
+    private synchronized void apply(Long productId, Runnable change) {
+        change.run();
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    private void afterCommit(Long productId, Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(productId, change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(productId, change);
+            }
+        });
+    }
+
+    /**
+     * A category's accumulator as seen at one moment. Accumulators compare by identity, so two
+     * observations are equal only if the category wasn't changed or recreated in between.
+     */
+    private record Observation(Accumulator accumulator, long version, CategoryFacet facet) {
+    }
+
+    private record Entry(String category, BigDecimal price, int stock) {
+
+        static Entry of(Product product) {
+            return new Entry(product.category(), product.price(), product.stock() != null ? product.stock() : 0);
+        }
+
+        boolean inStock() {
+            return stock > 0;
+        }
+    }
+
+    private static final class Accumulator {
+
+        private long total;
+        private long inStock;
+        private long version;
+        private final TreeMap<BigDecimal, Integer> prices = new TreeMap<>();
+
+        void add(Entry entry) {
+            version++;
+            total++;
+            if (entry.inStock()) {
+                inStock++;
+            }
+            prices.merge(entry.price(), 1, Integer::sum);
+        }
+
+        void remove(Entry entry) {
+            version++;
+            total--;
+            if (entry.inStock()) {
+                inStock--;
+            }
+            prices.computeIfPresent(entry.price(), (price, count) -> count > 1 ? count - 1 : null);
+        }
+
+        void restock(Entry previous, Entry updated) {
+            version++;
+            if (previous.inStock() != updated.inStock()) {
+                inStock += updated.inStock() ? 1 : -1;
+            }
+        }
+
+        CategoryFacet toFacet(String category) {
+            BigDecimal min = prices.isEmpty() ? null : prices.firstKey();
+            BigDecimal max = prices.isEmpty() ? null : prices.lastKey();
+            return new CategoryFacet(category, total, inStock, min, max);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.negadras.modumart.catalog;
+
+import java.util.List;
+
+public interface ProductFacetRepository {
+
+    /**
+     * Computes per-category facets directly from the products table.
+     */
+    List<CategoryFacet> aggregateCategoryFacets();
+}
@@ -0,0 +1,28 @@
+package com.negadras.modumart.catalog;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+class ProductFacetRepositoryImpl implements ProductFacetRepository {
+
+    private static final String AGGREGATE_SQL =
+            "SELECT category, COUNT(*) AS total, COUNT(*) FILTER (WHERE stock > 0) AS in_stock, " +
+            "MIN(price) AS min_price, MAX(price) AS max_price FROM products GROUP BY category";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductFacetRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<CategoryFacet> aggregateCategoryFacets() {
+        return jdbcTemplate.query(AGGREGATE_SQL, (rs, rowNum) -> new CategoryFacet(
+                rs.getString("category"),
+                rs.getLong("total"),
+                rs.getLong("in_stock"),
+                rs.getBigDecimal("min_price"),
+                rs.getBigDecimal("max_price")));
+    }
+}
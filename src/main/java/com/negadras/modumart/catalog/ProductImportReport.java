@@ -0,0 +1,27 @@
+package com.negadras.modumart.catalog;
+
+import java.util.List;
+
+/**
+ * Progress and outcome of a bulk product import. At most a bounded number of row errors are
+ * kept; {@code errorsTruncated} is set when more rows failed than are listed.
+ */
+public record ProductImportReport(
+        String importId,
+        Status status,
+        long rowsRead,
+        long inserted,
+        long updated,
+        long failed,
+        List<RowError> errors,
+        boolean errorsTruncated
+) {
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    public record RowError(long row, String message) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.negadras.modumart.catalog;
+
+import java.util.List;
+
+/**
+ * JDBC batch writes used by the bulk product import.
+ */
+public interface ProductImportRepository {
+
+    /**
+     * Inserts all products in one JDBC batch, updating the existing product instead where the
+     * SKU is already taken.
+     *
+     * @return the id of each product and whether it was inserted, in the order of {@code products}
+     */
+    List<Upsert> upsertAllBySku(List<Product> products);
+
+    record Upsert(Long id, boolean inserted) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.negadras.modumart.catalog;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+class ProductImportRepositoryImpl implements ProductImportRepository {
+
+    // xmax is only set on a row version written by an update, so it tells inserts apart
+    private static final String UPSERT_SQL =
+            "INSERT INTO products (sku, name, description, price, stock, category) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (sku) DO UPDATE SET name = EXCLUDED.name, description = EXCLUDED.description, " +
+            "price = EXCLUDED.price, stock = EXCLUDED.stock, category = EXCLUDED.category, " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "RETURNING id, (xmax = 0) AS inserted";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ProductImportRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Upsert> upsertAllBySku(List<Product> products) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Upsert>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(UPSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Product product : products) {
+                    ps.setString(1, product.sku());
+                    ps.setString(2, product.name());
+                    ps.setString(3, product.description());
+                    ps.setBigDecimal(4, product.price());
+                    ps.setInt(5, product.stock() != null ? product.stock() : 0);
+                    ps.setString(6, product.category());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                List<Upsert> upserts = new ArrayList<>(products.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        upserts.add(new Upsert(keys.getLong("id"), keys.getBoolean("inserted")));
+                    }
+                }
+                return upserts;
+            }
+        });
+    }
+}
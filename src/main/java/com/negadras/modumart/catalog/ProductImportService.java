@@ -0,0 +1,425 @@
+package com.negadras.modumart.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams a CSV or NDJSON product feed into the products table.
+ *
+ * The upload is spooled to a temporary file and imported in the background on a small
+ * dedicated pool of {@code modumart.catalog.import.max-concurrent-imports} threads; callers
+ * poll {@link #getImport} for the report. Rows are parsed one at a time and written in JDBC
+ * batches of {@code modumart.catalog.import.batch-size}, keyed on the SKU: a row whose SKU is
+ * new inserts a product, a row whose SKU exists updates it, so a feed can be imported again.
+ * Each batch commits on its own and publishes a single {@link ProductsImportedEvent} for the
+ * products it created, so heap use stays constant no matter how large the feed is. If a batch
+ * is rejected, its rows are retried one by one to pinpoint the failing rows. Reports of
+ * finished imports are kept for {@code report-retention}.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    private static final int RETAINED_REPORTS = 100;
+
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogConfiguration.ImportProperties properties;
+    private final ThreadPoolTaskExecutor importExecutor;
+
+    private final Map<String, ImportProgress> runningImports = new ConcurrentHashMap<>();
+    private final Cache<String, ProductImportReport> finishedImports;
+
+    public ProductImportService(ProductRepository productRepository, ProductService productService,
+                                TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                CatalogConfiguration.ImportProperties properties) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.finishedImports = Caffeine.newBuilder()
+                .maximumSize(RETAINED_REPORTS)
+                .expireAfterWrite(properties.getReportRetention())
+                .build();
+
+        this.importExecutor = new ThreadPoolTaskExecutor();
+        importExecutor.setCorePoolSize(properties.getMaxConcurrentImports());
+        importExecutor.setMaxPoolSize(properties.getMaxConcurrentImports());
+        importExecutor.setQueueCapacity(properties.getMaxQueuedImports());
+        importExecutor.setThreadNamePrefix("product-import-");
+        importExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdown();
+    }
+
+    public Optional<ProductImportReport> getImport(String importId) {
+        ImportProgress progress = runningImports.get(importId);
+        return progress != null
+                ? Optional.of(progress.toReport())
+                : Optional.ofNullable(finishedImports.getIfPresent(importId));
+    }
+
+    /**
+     * Accepts a CSV feed for import in the background.
+     *
+     * @return the report of the import, still running
+     * @throws TaskRejectedException if too many imports are already running or waiting
+     */
+    public ProductImportReport importCsv(InputStream body) throws IOException {
+        return startImport(body, new CsvRowReader());
+    }
+
+    /**
+     * Accepts an NDJSON feed for import in the background.
+     *
+     * @return the report of the import, still running
+     * @throws TaskRejectedException if too many imports are already running or waiting
+     */
+    public ProductImportReport importNdjson(InputStream body) throws IOException {
+        return startImport(body, new NdjsonRowReader());
+    }
+
+    private ProductImportReport startImport(InputStream body, RowReader rowReader) throws IOException {
+        // The request body is gone once the request completes, so keep the feed on disk instead
+        Path feed = Files.createTempFile("product-import-", ".feed");
+        ImportProgress progress = new ImportProgress(UUID.randomUUID().toString(), properties.getMaxReportedErrors());
+        try {
+            Files.copy(body, feed, StandardCopyOption.REPLACE_EXISTING);
+            runningImports.put(progress.importId, progress);
+            importExecutor.execute(() -> runImport(progress, feed, rowReader));
+        } catch (IOException | RuntimeException e) {
+            runningImports.remove(progress.importId);
+            Files.deleteIfExists(feed);
+            throw e;
+        }
+        return progress.toReport();
+    }
+
+    private void runImport(ImportProgress progress, Path feed, RowReader rowReader) {
+        logger.info("Starting product import {}", progress.importId);
+        List<Long> rowNumbers = new ArrayList<>(properties.getBatchSize());
+        List<Product> batch = new ArrayList<>(properties.getBatchSize());
+        try (BufferedReader reader = Files.newBufferedReader(feed, StandardCharsets.UTF_8)) {
+            rowReader.open(reader);
+            ParsedRow row;
+            while ((row = rowReader.next(reader)) != null) {
+                progress.rowsRead.incrementAndGet();
+                String error = row.error() != null ? row.error() : validate(row.product());
+                if (error != null) {
+                    progress.fail(row.row(), error);
+                    continue;
+                }
+                rowNumbers.add(row.row());
+                batch.add(row.product());
+                if (batch.size() >= properties.getBatchSize()) {
+                    writeBatch(progress, rowNumbers, batch);
+                    rowNumbers.clear();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(progress, rowNumbers, batch);
+            }
+            progress.status = ProductImportReport.Status.COMPLETED;
+        } catch (IOException | RuntimeException e) {
+            // Whatever ends the import early, its report must not stay RUNNING
+            logger.error("Product import {} aborted: {}", progress.importId, e.getMessage(), e);
+            progress.status = ProductImportReport.Status.FAILED;
+        } finally {
+            ProductImportReport report = progress.toReport();
+            finishedImports.put(report.importId(), report);
+            runningImports.remove(report.importId());
+            try {
+                Files.deleteIfExists(feed);
+            } catch (IOException e) {
+                logger.warn("Failed to delete feed of product import {}: {}", report.importId(), e.getMessage());
+            }
+            logger.info("Finished product import {}: {} rows, {} inserted, {} updated, {} failed",
+                    report.importId(), report.rowsRead(), report.inserted(), report.updated(), report.failed());
+        }
+    }
+
+    private void writeBatch(ImportProgress progress, List<Long> rowNumbers, List<Product> batch) {
+        BatchResult result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                BatchResult written = new BatchResult();
+                write(written, batch);
+                return written;
+            });
+        } catch (DataAccessException e) {
+            logger.debug("Import batch rejected, retrying rows individually: {}", e.getMessage());
+            result = new BatchResult();
+            for (int i = 0; i < batch.size(); i++) {
+                writeSingleRow(progress, result, rowNumbers.get(i), batch.get(i));
+            }
+        }
+
+        progress.inserted.addAndGet(result.createdIds.size());
+        progress.updated.addAndGet(result.saved.size() - result.createdIds.size());
+
+        productService.refreshInMemoryState(result.saved);
+        if (!result.createdIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductsImportedEvent(progress.importId, List.copyOf(result.createdIds)));
+        }
+    }
+
+    private void writeSingleRow(ImportProgress progress, BatchResult result, long rowNumber, Product product) {
+        BatchResult single = new BatchResult();
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(single, List.of(product)));
+            result.add(single);
+        } catch (DataAccessException e) {
+            progress.fail(rowNumber, e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private void write(BatchResult result, List<Product> products) {
+        List<ProductImportRepository.Upsert> upserts = productRepository.upsertAllBySku(products);
+        for (int i = 0; i < upserts.size(); i++) {
+            ProductImportRepository.Upsert upsert = upserts.get(i);
+            result.saved.add(products.get(i).withId(upsert.id()));
+            if (upsert.inserted()) {
+                result.createdIds.add(upsert.id());
+            }
+        }
+    }
+
+    private static String validate(Product product) {
+        if (product.sku() == null || product.sku().isBlank()) {
+            return "sku is required";
+        }
+        if (product.name() == null || product.name().isBlank()) {
+            return "name is required";
+        }
+        if (product.price() == null || product.price().signum() < 0) {
+            return "price must be zero or positive";
+        }
+        if (product.stock() != null && product.stock() < 0) {
+            return "stock must be zero or positive";
+        }
+        return null;
+    }
+
+    private record ParsedRow(long row, Product product, String error) {
+    }
+
+    /**
+     * What a committed batch wrote; only applied to the import progress after commit.
+     */
+    private static final class BatchResult {
+
+        private final List<Product> saved = new ArrayList<>();
+        private final List<Long> createdIds = new ArrayList<>();
+
+        private void add(BatchResult other) {
+            saved.addAll(other.saved);
+            createdIds.addAll(other.createdIds);
+        }
+    }
+
+    private interface RowReader {
+
+        default void open(BufferedReader reader) throws IOException {
+        }
+
+        /**
+         * Returns the next row, or {@code null} at the end of the input.
+         */
+        ParsedRow next(BufferedReader reader) throws IOException;
+    }
+
+    private final class NdjsonRowReader implements RowReader {
+
+        private long row;
+
+        @Override
+        public ParsedRow next(BufferedReader reader) throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            row++;
+            try {
+                return new ParsedRow(row, objectMapper.readValue(line, Product.class), null);
+            } catch (JsonProcessingException e) {
+                return new ParsedRow(row, null, "invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 style CSV with a header row naming the columns (sku, name, description, price,
+     * stock, category). Quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    private static final class CsvRowReader implements RowReader {
+
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long row;
+
+        @Override
+        public void open(BufferedReader reader) throws IOException {
+            List<String> header = readRecord(reader);
+            if (header == null) {
+                return;
+            }
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        @Override
+        public ParsedRow next(BufferedReader reader) throws IOException {
+            List<String> fields;
+            do {
+                fields = readRecord(reader);
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            row++;
+            try {
+                String price = field(fields, "price");
+                String stock = field(fields, "stock");
+                Product product = new Product(
+                        null,
+                        field(fields, "name"),
+                        field(fields, "description"),
+                        price != null ? new BigDecimal(price) : null,
+                        stock != null ? Integer.valueOf(stock) : null,
+                        field(fields, "category"),
+                        field(fields, "sku"));
+                return new ParsedRow(row, product, null);
+            } catch (NumberFormatException e) {
+                return new ParsedRow(row, null, "invalid number: " + e.getMessage());
+            }
+        }
+
+        private String field(List<String> fields, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static List<String> readRecord(BufferedReader reader) throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class ImportProgress {
+
+        private final String importId;
+        private final int maxReportedErrors;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<ProductImportReport.RowError> errors = new ArrayList<>();
+        private volatile ProductImportReport.Status status = ProductImportReport.Status.RUNNING;
+
+        private ImportProgress(String importId, int maxReportedErrors) {
+            this.importId = importId;
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        private void fail(long row, String message) {
+            failed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxReportedErrors) {
+                    errors.add(new ProductImportReport.RowError(row, message));
+                }
+            }
+        }
+
+        private ProductImportReport toReport() {
+            List<ProductImportReport.RowError> reportedErrors;
+            synchronized (errors) {
+                reportedErrors = List.copyOf(errors);
+            }
+            return new ProductImportReport(importId, status, rowsRead.get(), inserted.get(), updated.get(),
+                    failed.get(), reportedErrors, failed.get() > reportedErrors.size());
+        }
+    }
+}
@@ -1,4 +1,9 @@
 package com.negadras.modumart.catalog;
 
-public record ProductOutOfStockEvent(Long productId, Integer availableStock, Integer requestedQuantity) {
+import java.util.List;
+
+public record ProductOutOfStockEvent(Long orderId, List<Shortage> shortages) {
+
+    public record Shortage(Long productId, Integer availableStock, Integer requestedQuantity) {
+    }
 }
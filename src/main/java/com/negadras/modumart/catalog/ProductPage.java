@@ -0,0 +1,15 @@
+package com.negadras.modumart.catalog;
+
+import java.util.List;
+
+/**
+ * A page of products ordered by id. {@code nextCursor} is the id to pass as {@code after}
+ * to fetch the following page, or {@code null} when there are no more products.
+ */
+public record ProductPage(List<Product> products, Long nextCursor) {
+
+    static ProductPage of(List<Product> products, int limit) {
+        Long nextCursor = products.size() == limit ? products.get(products.size() - 1).id() : null;
+        return new ProductPage(products, nextCursor);
+    }
+}
@@ -1,5 +1,6 @@
 package com.negadras.modumart.catalog;
 
+import org.springframework.data.jdbc.repository.query.Modifying;
 import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -8,13 +9,50 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends CrudRepository<Product, Long> {
+public interface ProductRepository extends CrudRepository<Product, Long>, StockReservationRepository,
+        ProductExportRepository, ProductFacetRepository, ProductImportRepository, HotInventoryLeaseRepository {
 
-    List<Product> findByCategory(String category);
+    @Query("SELECT * FROM products WHERE id > :afterId ORDER BY id LIMIT :limit")
+    List<Product> findPage(@Param("afterId") Long afterId, @Param("limit") Integer limit);
 
-    @Query("SELECT * FROM products WHERE stock > :minStock")
-    List<Product> findProductsInStock(@Param("minStock") Integer minStock);
+    @Query("SELECT * FROM products WHERE category = :category AND id > :afterId ORDER BY id LIMIT :limit")
+    List<Product> findPageByCategory(@Param("category") String category, @Param("afterId") Long afterId,
+                                     @Param("limit") Integer limit);
 
-    @Query("SELECT * FROM products WHERE name ILIKE %:name%")
-    List<Product> findByNameContaining(@Param("name") String name);
+    @Query("SELECT * FROM products WHERE stock > 0 AND id > :afterId ORDER BY id LIMIT :limit")
+    List<Product> findPageInStock(@Param("afterId") Long afterId, @Param("limit") Integer limit);
+
+    /**
+     * Ranked substring search backed by the idx_products_name_trgm trigram index. Ranks like
+     * {@link ProductSearchIndex#search}: exact name, name prefix, word prefix, then any
+     * substring, with shorter names and lower ids winning ties.
+     *
+     * @param query the normalized query
+     * @param pattern the query with LIKE wildcards escaped
+     */
+    @Query("SELECT * FROM products WHERE name ILIKE '%' || :pattern || '%' " +
+           "ORDER BY CASE WHEN lower(name) = :query THEN 0 WHEN name ILIKE :pattern || '%' THEN 1 " +
+           "WHEN name ILIKE '% ' || :pattern || '%' THEN 2 ELSE 3 END, length(name), id " +
+           "LIMIT :limit OFFSET :offset")
+    List<Product> searchByName(@Param("query") String query, @Param("pattern") String pattern,
+                               @Param("offset") Integer offset, @Param("limit") Integer limit);
+
+    /**
+     * Names containing a word that starts with the given prefix.
+     *
+     * @param pattern the prefix with LIKE wildcards escaped
+     */
+    @Query("SELECT DISTINCT name FROM products WHERE name ILIKE :pattern || '%' OR name ILIKE '% ' || :pattern || '%' " +
+           "ORDER BY name LIMIT :limit")
+    List<String> findNamesWithWordStartingWith(@Param("pattern") String pattern, @Param("limit") Integer limit);
+
+    /**
+     * Atomically decrements stock if enough units are available.
+     *
+     * @return the number of rows updated, 0 when the product is missing or has insufficient stock
+     */
+    @Modifying
+    @Query("UPDATE products SET stock = stock - :quantity, updated_at = CURRENT_TIMESTAMP " +
+           "WHERE id = :id AND stock >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
 }
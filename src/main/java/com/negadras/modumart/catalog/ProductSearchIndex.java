@@ -0,0 +1,291 @@
+package com.negadras.modumart.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * In-process inverted index over product names.
+ *
+ * Names are broken into trigram postings for substring search and into word suffixes for
+ * prefix autocomplete. The index is built from the products table at startup and kept in
+ * sync from {@link ProductCreatedEvent} and {@link ProductService} updates and deletes.
+ * Changes made through other nodes are picked up by a periodic rebuild, which builds a fresh
+ * index next to the live one and swaps it in, replaying the changes that arrived meanwhile.
+ * Until it is ready, {@link ProductService} falls back to the database trigram index.
+ *
+ * Queries shorter than {@code min-query-length} match nothing. Every match of a query is
+ * ranked before the requested page is cut, keeping only the best {@code offset + limit} in a
+ * bounded heap, so results agree with the database fallback. A query of at least three
+ * characters only looks at the products sharing its rarest trigram; a shorter one matches
+ * any substring, like the fallback's ILIKE, and so scans every indexed name.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int GRAM_SIZE = 3;
+    private static final char ID_SEPARATOR = '\u0000';
+    private static final Comparator<Match> BEST_FIRST = Comparator.comparingInt(Match::rank)
+            .thenComparingInt(Match::length)
+            .thenComparingLong(Match::id);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogConfiguration.SearchProperties properties;
+
+    private volatile Index current = new Index();
+    private List<Consumer<Index>> changesDuringRebuild;
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository, TransactionTemplate transactionTemplate,
+                              CatalogConfiguration.SearchProperties properties) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!properties.isInMemoryIndex()) {
+            return;
+        }
+        synchronized (this) {
+            if (changesDuringRebuild != null) {
+                return;
+            }
+            changesDuringRebuild = new ArrayList<>();
+        }
+        Index rebuilt = new Index();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    productRepository.streamProducts(null, false, rebuilt::index));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // The stream may have read a product before or after a concurrent change; replaying
+            // the change is idempotent either way
+            changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+            changesDuringRebuild = null;
+            current = rebuilt;
+        }
+        ready = true;
+        logger.info("Product search index built for {} products", rebuilt.names.size());
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.catalog.search.rebuild-interval:PT5M}",
+               initialDelayString = "${modumart.catalog.search.rebuild-interval:PT5M}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener
+    public void handleProductCreated(ProductCreatedEvent event) {
+        if (properties.isInMemoryIndex()) {
+            productRepository.findById(event.productId()).ifPresent(this::index);
+        }
+    }
+
+    public void index(Product product) {
+        if (properties.isInMemoryIndex()) {
+            apply(index -> index.index(product));
+        }
+    }
+
+    public void remove(Long productId) {
+        apply(index -> index.remove(productId));
+    }
+
+    /**
+     * Returns the ids of products whose name contains {@code query}, best matches first:
+     * exact name, then name prefix, then word prefix, then any substring; shorter names
+     * and lower ids win ties.
+     */
+    public List<Long> search(String query, int offset, int limit) {
+        String needle = normalize(query);
+        if (needle.length() < properties.getMinQueryLength()) {
+            return List.of();
+        }
+
+        Index index = current;
+        int wanted = offset + limit;
+        // Worst of the best matches at the head, so it is the one dropped when a better one arrives
+        PriorityQueue<Match> best = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (Long id : index.candidates(needle)) {
+            String name = index.normalizedNames.get(id);
+            if (name != null && name.contains(needle)) {
+                best.add(new Match(id, rank(name, needle), name.length()));
+                if (best.size() > wanted) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(BEST_FIRST);
+        return ranked.stream()
+                .skip(offset)
+                .map(Match::id)
+                .toList();
+    }
+
+    /**
+     * Returns up to {@code limit} distinct product names containing a word that starts with
+     * {@code prefix}, in alphabetical order of the matching word.
+     */
+    public List<String> autocomplete(String prefix, int limit) {
+        String needle = normalize(prefix);
+        Set<String> suggestions = new LinkedHashSet<>();
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+        Index index = current;
+        for (String entry : index.wordPrefixes.tailSet(needle, true)) {
+            if (!entry.startsWith(needle) || suggestions.size() >= limit) {
+                break;
+            }
+            String name = index.names.get(Long.valueOf(entry.substring(entry.lastIndexOf(ID_SEPARATOR) + 1)));
+            if (name != null) {
+                suggestions.add(name);
+            }
+        }
+        return List.copyOf(suggestions);
+    }
+
+    /**
+     * Lower-cases, trims and collapses whitespace the same way for names and queries.
+     */
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private synchronized void apply(Consumer<Index> change) {
+        change.accept(current);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    private static int rank(String name, String needle) {
+        if (name.equals(needle)) {
+            return 0;
+        }
+        if (name.startsWith(needle)) {
+            return 1;
+        }
+        if (name.contains(" " + needle)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static Set<String> grams(String name) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= name.length(); i++) {
+            grams.add(name.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static Set<String> wordSuffixes(String name) {
+        Set<String> suffixes = new HashSet<>();
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != ' ' && (i == 0 || name.charAt(i - 1) == ' ')) {
+                suffixes.add(name.substring(i));
+            }
+        }
+        return suffixes;
+    }
+
+    private record Match(long id, int rank, int length) {
+    }
+
+    private static final class Index {
+
+        private final Map<Long, String> names = new ConcurrentHashMap<>();
+        private final Map<Long, String> normalizedNames = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        private final NavigableSet<String> wordPrefixes = new ConcurrentSkipListSet<>();
+
+        void index(Product product) {
+            remove(product.id());
+            String name = normalize(product.name());
+            names.put(product.id(), product.name());
+            normalizedNames.put(product.id(), name);
+            for (String gram : grams(name)) {
+                postings.computeIfAbsent(gram, ignored -> ConcurrentHashMap.newKeySet()).add(product.id());
+            }
+            for (String suffix : wordSuffixes(name)) {
+                wordPrefixes.add(suffix + ID_SEPARATOR + product.id());
+            }
+        }
+
+        void remove(Long productId) {
+            names.remove(productId);
+            String name = normalizedNames.remove(productId);
+            if (name == null) {
+                return;
+            }
+            for (String gram : grams(name)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(productId);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+            for (String suffix : wordSuffixes(name)) {
+                wordPrefixes.remove(suffix + ID_SEPARATOR + productId);
+            }
+        }
+
+        /**
+         * Ids of the products that may contain {@code needle}: those sharing its rarest
+         * trigram, or every product when it is shorter than a trigram.
+         */
+        Set<Long> candidates(String needle) {
+            if (needle.length() < GRAM_SIZE) {
+                return normalizedNames.keySet();
+            }
+            Set<Long> rarest = null;
+            for (String gram : grams(needle)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Set.of();
+                }
+                if (rarest == null || ids.size() < rarest.size()) {
+                    rarest = ids;
+                }
+            }
+            return rarest;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.negadras.modumart.catalog;
+
+import java.util.List;
+
+/**
+ * One page of ranked search results. Pages are zero-based.
+ */
+public record ProductSearchResults(List<Product> products, int page, int size, boolean hasMore) {
+}
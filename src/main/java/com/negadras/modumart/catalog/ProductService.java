@@ -2,31 +2,71 @@ package com.negadras.modumart.catalog;
 
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Service
 public class ProductService {
     
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    
     private final ProductRepository productRepository;
+    private final ProductCache productCache;
+    private final Optional<HotInventoryLedger> hotInventoryLedger;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final StockReservationQueue stockReservationQueue;
+    private final CatalogConfiguration.ReservationProperties reservationProperties;
+    private final CatalogConfiguration.SearchProperties searchProperties;
     private final ApplicationEventPublisher eventPublisher;
     
-    public ProductService(ProductRepository productRepository, ApplicationEventPublisher eventPublisher) {
+    public ProductService(ProductRepository productRepository, ProductCache productCache,
+                          Optional<HotInventoryLedger> hotInventoryLedger, ProductSearchIndex productSearchIndex,
+                          ProductFacetIndex productFacetIndex, StockReservationQueue stockReservationQueue,
+                          CatalogConfiguration.ReservationProperties reservationProperties,
+                          CatalogConfiguration.SearchProperties searchProperties,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
+        this.productCache = productCache;
+        this.hotInventoryLedger = hotInventoryLedger;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.stockReservationQueue = stockReservationQueue;
+        this.reservationProperties = reservationProperties;
+        this.searchProperties = searchProperties;
         this.eventPublisher = eventPublisher;
     }
     
-    public List<Product> getAllProducts() {
-        return (List<Product>) productRepository.findAll();
+    public List<CategoryFacet> getCategoryFacets() {
+        return productFacetIndex.getFacets();
+    }
+    
+    public ProductPage getProducts(Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        return ProductPage.of(overlay(productRepository.findPage(cursor(after), pageSize)), pageSize);
     }
     
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return productCache.get(id).map(this::overlay);
     }
     
     public Product createProduct(Product product) {
         Product savedProduct = productRepository.save(product);
+        productFacetIndex.put(savedProduct);
         eventPublisher.publishEvent(new ProductCreatedEvent(savedProduct.id()));
         return savedProduct;
     }
@@ -35,34 +75,316 @@ public class ProductService {
         return productRepository.findById(id)
                 .map(existing -> {
                     Product updated = new Product(id, updatedProduct.name(), updatedProduct.description(), 
-                            updatedProduct.price(), updatedProduct.stock(), updatedProduct.category());
-                    return productRepository.save(updated);
+                            updatedProduct.price(), updatedProduct.stock(), updatedProduct.category(),
+                            updatedProduct.sku());
+                    Product saved = productRepository.save(updated);
+                    refreshInMemoryState(saved);
+                    return saved;
                 });
     }
     
+    /**
+     * Brings the cache, search index, facets and hot inventory in line with products that
+     * were written outside of {@link #createProduct} and {@link #updateProduct}.
+     */
+    void refreshInMemoryState(List<Product> saved) {
+        saved.forEach(this::refreshInMemoryState);
+    }
+    
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        productCache.invalidate(id);
+        productSearchIndex.remove(id);
+        productFacetIndex.remove(id);
+        hotInventoryLedger.ifPresent(ledger -> ledger.untrack(id));
+    }
+    
+    public ProductPage getProductsByCategory(String category, Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        return ProductPage.of(overlay(productRepository.findPageByCategory(category, cursor(after), pageSize)), pageSize);
+    }
+    
+    public ProductPage getProductsInStock(Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        return ProductPage.of(overlay(productRepository.findPageInStock(cursor(after), pageSize)), pageSize);
+    }
+    
+    /**
+     * Ranked, paginated product name search. Served from the in-memory index once it is built,
+     * otherwise from the database trigram index with the same matching and ranking. Queries
+     * shorter than {@code min-query-length} match nothing, and results end after
+     * {@code max-candidates} matches.
+     */
+    public ProductSearchResults searchProducts(String query, Integer page, Integer size) {
+        int pageSize = Math.min(pageSize(size), MAX_SEARCH_PAGE_SIZE);
+        int pageNumber = page != null && page > 0 ? page : 0;
+        int offset = pageNumber * pageSize;
+        String needle = ProductSearchIndex.normalize(query);
+        if (needle.length() < searchProperties.getMinQueryLength() || offset >= searchProperties.getMaxCandidates()) {
+            return new ProductSearchResults(List.of(), pageNumber, pageSize, false);
+        }
+        
+        // Fetch one extra result to know whether another page exists
+        List<Product> products;
+        if (productSearchIndex.isReady()) {
+            List<Long> ids = productSearchIndex.search(needle, offset, pageSize + 1);
+            Map<Long, Product> found = new HashMap<>();
+            productRepository.findAllById(ids).forEach(product -> found.put(product.id(), product));
+            products = ids.stream().map(found::get).filter(Objects::nonNull).toList();
+        } else {
+            int limit = Math.min(pageSize + 1, searchProperties.getMaxCandidates() - offset);
+            products = productRepository.searchByName(needle, escapeLikePattern(needle), offset, limit);
+        }
+        
+        boolean hasMore = products.size() > pageSize;
+        List<Product> pageContent = hasMore ? products.subList(0, pageSize) : products;
+        return new ProductSearchResults(overlay(pageContent), pageNumber, pageSize, hasMore);
     }
     
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category);
+    public List<String> autocompleteProductNames(String prefix, Integer limit) {
+        int max = limit != null && limit > 0 ? Math.min(limit, MAX_SEARCH_PAGE_SIZE) : DEFAULT_SUGGESTIONS;
+        String needle = ProductSearchIndex.normalize(prefix);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+        return productSearchIndex.isReady()
+                ? productSearchIndex.autocomplete(needle, max)
+                : productRepository.findNamesWithWordStartingWith(escapeLikePattern(needle), max);
     }
     
-    public List<Product> getProductsInStock() {
-        return productRepository.findProductsInStock(0);
+    /**
+     * Streams all matching products in id order with bounded memory.
+     */
+    @Transactional(readOnly = true)
+    public void exportProducts(String category, boolean inStockOnly, Consumer<Product> action) {
+        productRepository.streamProducts(category, inStockOnly, product -> action.accept(overlay(product)));
     }
     
     public boolean reduceStock(Long productId, Integer quantity) {
-        return productRepository.findById(productId)
-                .map(product -> {
-                    if (product.stock() >= quantity) {
-                        Product updated = product.withStock(product.stock() - quantity);
-                        productRepository.save(updated);
-                        eventPublisher.publishEvent(new ProductStockReducedEvent(productId, quantity));
-                        return true;
-                    }
-                    return false;
-                })
-                .orElse(false);
-    }
-}
\ No newline at end of file
+        if (productRepository.decrementStock(productId, quantity) != 1) {
+            return false;
+        }
+        productCache.invalidate(productId);
+        productFacetIndex.adjustStock(productId, -quantity);
+        eventPublisher.publishEvent(new ProductStockReducedEvent(productId, quantity));
+        return true;
+    }
+    
+    /**
+     * Reserves stock for every line of an order, all or nothing. Hot products are taken from
+     * this node's stock leases where they cover the line; the remaining products are locked in
+     * ascending id order so concurrent reservations over overlapping products can't deadlock,
+     * and their decrement is issued as a single statement. A reservation is recorded per order,
+     * so a redelivered event doesn't reserve twice, and expires after the configured TTL unless
+     * it is committed or released first.
+     */
+    @Transactional
+    public boolean reserveStock(Long orderId, Map<Long, Integer> quantities) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(reservationProperties.getTtl());
+        if (!productRepository.recordReservation(orderId, expiresAt)) {
+            return !productRepository.findReservationStatus(orderId).orElseThrow().equals("REJECTED");
+        }
+        
+        SortedMap<Long, Integer> reservedLines = new TreeMap<>(quantities);
+        HotInventoryLedger.Reservation hot = hotInventoryLedger
+                .map(ledger -> ledger.reserve(ledger.hotLines(reservedLines)))
+                .orElseGet(HotInventoryLedger.Reservation::new);
+        if (!hot.isEmpty()) {
+            // Leases closed by another node since they were taken fall back to the products table
+            hotInventoryLedger.orElseThrow().retainOpenLeases(hot,
+                    productRepository.lockOpenLeasesForSale(hot.leaseIds().values()));
+        }
+        SortedMap<Long, Integer> lines = new TreeMap<>(reservedLines);
+        lines.keySet().removeAll(hot.quantities().keySet());
+        
+        List<ProductOutOfStockEvent.Shortage> shortages = new ArrayList<>();
+        boolean missing = false;
+        if (!lines.isEmpty()) {
+            Map<Long, Integer> available = productRepository.lockStock(lines.keySet());
+            for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+                Integer stock = available.get(line.getKey());
+                if (stock == null) {
+                    missing = true;
+                    eventPublisher.publishEvent(new ProductNotFoundEvent(line.getKey()));
+                } else if (stock < line.getValue()) {
+                    shortages.add(new ProductOutOfStockEvent.Shortage(line.getKey(), stock, line.getValue()));
+                }
+            }
+        }
+        
+        if (!shortages.isEmpty()) {
+            eventPublisher.publishEvent(new ProductOutOfStockEvent(orderId, List.copyOf(shortages)));
+        }
+        if (missing || !shortages.isEmpty()) {
+            hotInventoryLedger.ifPresent(ledger -> ledger.release(hot));
+            // The lines are kept, so the order can still take its stock if it is paid for
+            productRepository.rejectReservation(orderId);
+            productRepository.recordReservationLines(orderId, reservedLines, Map.of());
+            return false;
+        }
+        
+        productRepository.recordReservationLines(orderId, reservedLines, hot.leaseIds());
+        if (!lines.isEmpty()) {
+            int reserved = productRepository.decrementStock(lines);
+            if (reserved != lines.size()) {
+                // Rows are locked, so this only happens if stock changed underneath us
+                throw new IllegalStateException("Stock reservation for order " + orderId + " updated "
+                        + reserved + " of " + lines.size() + " products");
+            }
+            productCache.invalidateAll(lines.keySet());
+        }
+        lines.forEach((productId, quantity) -> productFacetIndex.adjustStock(productId, -quantity));
+        stockReservationQueue.schedule(orderId, expiresAt);
+        return true;
+    }
+    
+    /**
+     * Returns the stock reserved for a cancelled order. Only an active reservation is released,
+     * so stock is never restored twice or for an order that was never reserved.
+     */
+    @Transactional
+    public boolean restoreStock(Long orderId) {
+        return !restoreStock(List.of(orderId)).isEmpty();
+    }
+    
+    /**
+     * Returns the stock reserved for many cancelled orders with one statement for the whole batch.
+     *
+     * @return the ids of the orders whose stock was restored
+     */
+    @Transactional
+    public List<Long> restoreStock(Collection<Long> orderIds) {
+        List<Long> released = productRepository.releaseReservations(orderIds);
+        if (!released.isEmpty()) {
+            releaseReservedStock(productRepository.sumReservedQuantities(released));
+            eventPublisher.publishEvent(new OrderStockRestoredEvent(released));
+        }
+        return released;
+    }
+    
+    /**
+     * Keeps the stock reserved for paid orders, so their reservations no longer expire.
+     *
+     * @return the number of reservations committed
+     */
+    @Transactional
+    public int commitReservations(Collection<Long> orderIds) {
+        return productRepository.commitReservations(orderIds);
+    }
+    
+    /**
+     * Extends the reservations of confirmed orders by the held TTL, so their stock stays
+     * reserved while they wait for payment, but is still released if they are never paid for.
+     */
+    @Transactional
+    public void holdReservations(Collection<Long> orderIds) {
+        LocalDateTime expiresAt = LocalDateTime.now().plus(reservationProperties.getHeldTtl());
+        productRepository.holdReservations(orderIds, expiresAt).forEach(stockReservationQueue::schedule);
+    }
+    
+    /**
+     * Keeps the stock of a paid order. Commits its active reservation; if the reservation was
+     * released, expired or rejected meanwhile, its lines are taken from the products table again.
+     *
+     * The payment is never undone here: if the stock is gone, the reservation is marked SHORTFALL
+     * and a PaidOrderStockShortfallEvent is published, so the order can be restocked or refunded.
+     *
+     * @return false if there isn't enough stock left for the order
+     */
+    @Transactional
+    public boolean commitPaidOrder(Long orderId, Long customerId) {
+        if (productRepository.commitReservations(List.of(orderId)) == 1) {
+            return true;
+        }
+        Optional<String> status = productRepository.findReservationStatus(orderId);
+        if (status.isEmpty() || status.get().equals("COMMITTED")) {
+            return true;
+        }
+        if (status.get().equals("SHORTFALL")) {
+            return false;
+        }
+        
+        // Released units went back to the products table, hot products' included
+        SortedMap<Long, Integer> lines = productRepository.sumReservedQuantities(List.of(orderId));
+        Map<Long, Integer> available = productRepository.lockStock(lines.keySet());
+        List<ProductOutOfStockEvent.Shortage> shortages = new ArrayList<>();
+        lines.forEach((productId, quantity) -> {
+            int stock = available.getOrDefault(productId, 0);
+            if (stock < quantity) {
+                shortages.add(new ProductOutOfStockEvent.Shortage(productId, stock, quantity));
+            }
+        });
+        if (!shortages.isEmpty()) {
+            productRepository.markShortfall(orderId);
+            eventPublisher.publishEvent(new PaidOrderStockShortfallEvent(orderId, customerId, List.copyOf(shortages)));
+            return false;
+        }
+        productRepository.decrementStock(lines);
+        productRepository.recommitReservation(orderId);
+        productCache.invalidateAll(lines.keySet());
+        lines.forEach((productId, quantity) -> productFacetIndex.adjustStock(productId, -quantity));
+        return true;
+    }
+    
+    /**
+     * Expires the reservations among the given orders that are still active and past their TTL,
+     * returning their stock with one statement for the whole batch.
+     *
+     * The orders themselves are left alone: orders that stay PENDING are cancelled by the orders
+     * module's PendingOrderExpiryJob, and an order paid for after its reservation expired takes
+     * its stock again (see {@link #commitPaidOrder}).
+     *
+     * @return the ids of the orders whose reservation expired
+     */
+    @Transactional
+    public List<Long> expireReservations(Collection<Long> orderIds) {
+        List<Long> expired = productRepository.expireReservations(orderIds, LocalDateTime.now());
+        if (!expired.isEmpty()) {
+            releaseReservedStock(productRepository.sumReservedQuantities(expired));
+            eventPublisher.publishEvent(new StockReservationsExpiredEvent(expired));
+        }
+        return expired;
+    }
+    
+    /**
+     * Adds released quantities back in a single statement. Units of hot products go back to the
+     * products table too, from where they can be leased again.
+     */
+    private void releaseReservedStock(SortedMap<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        productRepository.adjustStock(quantities);
+        productCache.invalidateAll(quantities.keySet());
+        quantities.forEach(productFacetIndex::adjustStock);
+    }
+    
+    private List<Product> overlay(List<Product> products) {
+        return products.stream().map(this::overlay).toList();
+    }
+    
+    private Product overlay(Product product) {
+        return hotInventoryLedger.map(ledger -> ledger.overlay(product)).orElse(product);
+    }
+    
+    private static long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
+    
+    private static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    private static int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+    
+    private void refreshInMemoryState(Product saved) {
+        productCache.invalidate(saved.id());
+        productSearchIndex.index(saved);
+        productFacetIndex.put(saved);
+    }
+}
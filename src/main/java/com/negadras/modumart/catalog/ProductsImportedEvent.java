@@ -0,0 +1,6 @@
+package com.negadras.modumart.catalog;
+
+import java.util.List;
+
+public record ProductsImportedEvent(String importId, List<Long> productIds) {
+}
@@ -0,0 +1,57 @@
+package com.negadras.modumart.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Expires reservations that were neither paid nor cancelled within their TTL, releasing their
+ * stock (see {@link ProductService#expireReservations}). Due
+ * reservations are taken from the {@link StockReservationQueue} and expired in batches, each
+ * batch in its own transaction.
+ */
+@Component
+public class StockReservationExpiryJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationExpiryJob.class);
+
+    private final StockReservationQueue stockReservationQueue;
+    private final ProductService productService;
+    private final CatalogConfiguration.ReservationProperties properties;
+
+    public StockReservationExpiryJob(StockReservationQueue stockReservationQueue, ProductService productService,
+                                     CatalogConfiguration.ReservationProperties properties) {
+        this.stockReservationQueue = stockReservationQueue;
+        this.productService = productService;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.catalog.reservations.expiry-interval:PT1S}")
+    public void expireDueReservations() {
+        int batchSize = properties.getExpiryBatchSize();
+        List<Long> due;
+        do {
+            due = stockReservationQueue.drainExpired(batchSize);
+            if (due.isEmpty()) {
+                return;
+            }
+            try {
+                List<Long> expired = productService.expireReservations(due);
+                if (!expired.isEmpty()) {
+                    logger.info("Expired stock reservations for {} orders", expired.size());
+                }
+            } catch (DataAccessException e) {
+                // Requeue the batch so the next run retries it
+                LocalDateTime now = LocalDateTime.now();
+                due.forEach(orderId -> stockReservationQueue.schedule(orderId, now));
+                logger.error("Failed to expire stock reservations: {}", e.getMessage());
+                return;
+            }
+        } while (due.size() == batchSize);
+    }
+}
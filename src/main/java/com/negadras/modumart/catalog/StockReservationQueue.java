@@ -0,0 +1,98 @@
+package com.negadras.modumart.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory delay queue of stock reservation expiries.
+ *
+ * Every reservation is scheduled on the node that made it, so expiring them on time never
+ * needs to scan the reservations table. Entries of reservations that were committed or released
+ * in the meantime are simply dropped when they come due. The queue is reseeded from the active
+ * reservations once the application has started, and periodically catches up with reservations
+ * that are overdue by more than the catch-up interval, such as those of a node that stopped.
+ * Expiring a reservation twice has no effect, so several nodes may queue the same one.
+ */
+@Component
+public class StockReservationQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationQueue.class);
+
+    private final ProductRepository productRepository;
+    private final CatalogConfiguration.ReservationProperties properties;
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+
+    public StockReservationQueue(ProductRepository productRepository,
+                                 CatalogConfiguration.ReservationProperties properties) {
+        this.productRepository = productRepository;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<Long, LocalDateTime> active = productRepository.findActiveReservationExpiries();
+        active.forEach(this::schedule);
+        logger.info("Scheduled expiry of {} active stock reservations", active.size());
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.catalog.reservations.catch-up-interval:PT1M}",
+               initialDelayString = "${modumart.catalog.reservations.catch-up-interval:PT1M}")
+    public void catchUp() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> overdue = productRepository.findOverdueReservations(now.minus(properties.getCatchUpInterval()),
+                    properties.getExpiryBatchSize());
+            overdue.forEach(orderId -> schedule(orderId, now));
+            if (!overdue.isEmpty()) {
+                logger.info("Scheduled expiry of {} overdue stock reservations", overdue.size());
+            }
+        } catch (DataAccessException e) {
+            logger.error("Failed to look up overdue stock reservations: {}", e.getMessage());
+        }
+    }
+
+    public void schedule(Long orderId, LocalDateTime expiresAt) {
+        long delay = Duration.between(LocalDateTime.now(), expiresAt).toNanos();
+        expiries.add(new Expiry(orderId, System.nanoTime() + delay));
+    }
+
+    /**
+     * Removes and returns up to {@code maxOrders} orders whose reservation has come due.
+     */
+    public List<Long> drainExpired(int maxOrders) {
+        List<Expiry> due = new ArrayList<>();
+        expiries.drainTo(due, maxOrders);
+        return due.stream().map(Expiry::orderId).toList();
+    }
+
+    public int size() {
+        return expiries.size();
+    }
+
+    private record Expiry(Long orderId, long deadline) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadline, ((Expiry) other).deadline);
+        }
+    }
+}
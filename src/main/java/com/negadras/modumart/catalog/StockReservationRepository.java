@@ -0,0 +1,117 @@
+package com.negadras.modumart.catalog;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+
+/**
+ * Set-based stock operations used to reserve every line of an order at once.
+ */
+public interface StockReservationRepository {
+
+    /**
+     * Locks the given products in ascending id order and returns their current stock.
+     * Products that don't exist are absent from the result.
+     */
+    Map<Long, Integer> lockStock(Collection<Long> productIds);
+
+    /**
+     * Decrements stock for all given products in a single statement.
+     *
+     * @return the number of products whose stock was decremented
+     */
+    int decrementStock(SortedMap<Long, Integer> quantities);
+
+    /**
+     * Adds the given (possibly negative) deltas to the stock of each product in a single statement.
+     */
+    int adjustStock(SortedMap<Long, Integer> deltas);
+
+    /**
+     * Records that stock is being reserved for the given order until {@code expiresAt}.
+     *
+     * @return false if the order already has a reservation
+     */
+    boolean recordReservation(Long orderId, LocalDateTime expiresAt);
+
+    /**
+     * Records the reserved quantity of every line of an order in a single statement, together
+     * with the hot inventory lease each line was sold from, if any.
+     */
+    void recordReservationLines(Long orderId, SortedMap<Long, Integer> quantities, Map<Long, Long> leaseIds);
+
+    /**
+     * Marks the reservation record of an order whose stock could not be reserved as rejected. Its
+     * lines are kept, so the order can still be reserved if it is paid for.
+     */
+    void rejectReservation(Long orderId);
+
+    /**
+     * Marks the active reservations of the given orders as released.
+     *
+     * @return the ids of the orders whose reservation was released
+     */
+    List<Long> releaseReservations(Collection<Long> orderIds);
+
+    /**
+     * Marks the active reservations of the given orders as committed, so they no longer expire.
+     *
+     * @return the number of reservations committed
+     */
+    int commitReservations(Collection<Long> orderIds);
+
+    /**
+     * Returns up to {@code limit} orders whose active reservation expired by {@code expiredBy},
+     * oldest first.
+     */
+    List<Long> findOverdueReservations(LocalDateTime expiredBy, int limit);
+
+    /**
+     * Extends the active reservations of the given orders to expire no earlier than
+     * {@code expiresAt}.
+     *
+     * @return the new expiry time of every held reservation, keyed by order id
+     */
+    Map<Long, LocalDateTime> holdReservations(Collection<Long> orderIds, LocalDateTime expiresAt);
+
+    /**
+     * Returns the status of an order's reservation: RESERVED, COMMITTED, RELEASED, EXPIRED,
+     * REJECTED or SHORTFALL.
+     */
+    Optional<String> findReservationStatus(Long orderId);
+
+    /**
+     * Marks a released, expired or rejected reservation as committed again, once its stock has
+     * been taken again.
+     *
+     * @return false if the reservation is not released, expired or rejected
+     */
+    boolean recommitReservation(Long orderId);
+
+    /**
+     * Marks a released, expired or rejected reservation of a paid order as short of stock.
+     *
+     * @return false if the reservation is not released, expired or rejected
+     */
+    boolean markShortfall(Long orderId);
+
+    /**
+     * Marks the active reservations among the given orders that expired by {@code now} as expired.
+     *
+     * @return the ids of the orders whose reservation expired
+     */
+    List<Long> expireReservations(Collection<Long> orderIds, LocalDateTime now);
+
+    /**
+     * Sums the reserved quantities of the given orders per product.
+     */
+    SortedMap<Long, Integer> sumReservedQuantities(Collection<Long> orderIds);
+
+    /**
+     * Returns the expiry time of every active reservation, keyed by order id.
+     */
+    Map<Long, LocalDateTime> findActiveReservationExpiries();
+}
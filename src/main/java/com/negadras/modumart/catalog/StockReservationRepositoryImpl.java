@@ -0,0 +1,216 @@
+package com.negadras.modumart.catalog;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+class StockReservationRepositoryImpl implements StockReservationRepository {
+
+    private static final String LOCK_STOCK_SQL =
+            "SELECT id, stock FROM products WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products p SET stock = p.stock - r.quantity, updated_at = CURRENT_TIMESTAMP " +
+            "FROM unnest(?, ?) AS r(id, quantity) " +
+            "WHERE p.id = r.id AND p.stock >= r.quantity";
+
+    private static final String ADJUST_STOCK_SQL =
+            "UPDATE products p SET stock = p.stock + r.delta, updated_at = CURRENT_TIMESTAMP " +
+            "FROM unnest(?, ?) AS r(id, delta) " +
+            "WHERE p.id = r.id";
+
+    private static final String RECORD_RESERVATION_SQL =
+            "INSERT INTO stock_reservations (order_id, status, expires_at) VALUES (?, 'RESERVED', ?) " +
+            "ON CONFLICT (order_id) DO NOTHING";
+
+    private static final String RECORD_RESERVATION_LINES_SQL =
+            "INSERT INTO stock_reservation_lines (order_id, product_id, quantity, lease_id) " +
+            "SELECT ?, r.id, r.quantity, r.lease_id FROM unnest(?, ?, ?) AS r(id, quantity, lease_id)";
+
+    private static final String REJECT_RESERVATION_SQL =
+            "UPDATE stock_reservations SET status = 'REJECTED', expires_at = NULL, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = ?";
+
+    private static final String RELEASE_RESERVATIONS_SQL =
+            "UPDATE stock_reservations SET status = 'RELEASED', updated_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = ANY(?) AND status = 'RESERVED' RETURNING order_id";
+
+    private static final String COMMIT_RESERVATIONS_SQL =
+            "UPDATE stock_reservations SET status = 'COMMITTED', updated_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = ANY(?) AND status = 'RESERVED'";
+
+    private static final String EXPIRE_RESERVATIONS_SQL =
+            "UPDATE stock_reservations SET status = 'EXPIRED', updated_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = ANY(?) AND status = 'RESERVED' AND expires_at <= ? " +
+            "RETURNING order_id";
+
+    private static final String FIND_OVERDUE_RESERVATIONS_SQL =
+            "SELECT order_id FROM stock_reservations WHERE status = 'RESERVED' AND expires_at <= ? " +
+            "ORDER BY expires_at LIMIT ?";
+
+    private static final String HOLD_RESERVATIONS_SQL =
+            "UPDATE stock_reservations SET expires_at = GREATEST(expires_at, ?), updated_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = ANY(?) AND status = 'RESERVED' RETURNING order_id, expires_at";
+
+    private static final String FIND_RESERVATION_STATUS_SQL =
+            "SELECT status FROM stock_reservations WHERE order_id = ?";
+
+    private static final String RECOMMIT_RESERVATION_SQL =
+            "UPDATE stock_reservations SET status = 'COMMITTED', expires_at = NULL, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = ? AND status IN ('RELEASED', 'EXPIRED', 'REJECTED')";
+
+    private static final String MARK_SHORTFALL_SQL =
+            "UPDATE stock_reservations SET status = 'SHORTFALL', expires_at = NULL, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE order_id = ? AND status IN ('RELEASED', 'EXPIRED', 'REJECTED')";
+
+    private static final String SUM_RESERVED_QUANTITIES_SQL =
+            "SELECT product_id, SUM(quantity) AS quantity FROM stock_reservation_lines " +
+            "WHERE order_id = ANY(?) GROUP BY product_id";
+
+    private static final String FIND_ACTIVE_RESERVATION_EXPIRIES_SQL =
+            "SELECT order_id, expires_at FROM stock_reservations " +
+            "WHERE status = 'RESERVED' AND expires_at IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    StockReservationRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<Long, Integer> lockStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query(LOCK_STOCK_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", productIds.toArray())),
+                rs -> {
+                    stock.put(rs.getLong("id"), rs.getInt("stock"));
+                });
+        return stock;
+    }
+
+    @Override
+    public int decrementStock(SortedMap<Long, Integer> quantities) {
+        return updateWithArrays(DECREMENT_STOCK_SQL, quantities);
+    }
+
+    @Override
+    public int adjustStock(SortedMap<Long, Integer> deltas) {
+        return updateWithArrays(ADJUST_STOCK_SQL, deltas);
+    }
+
+    @Override
+    public boolean recordReservation(Long orderId, LocalDateTime expiresAt) {
+        return jdbcTemplate.update(RECORD_RESERVATION_SQL, orderId, Timestamp.valueOf(expiresAt)) == 1;
+    }
+
+    @Override
+    public void recordReservationLines(Long orderId, SortedMap<Long, Integer> quantities, Map<Long, Long> leaseIds) {
+        Object[] leases = quantities.keySet().stream().map(leaseIds::get).toArray();
+        jdbcTemplate.update(RECORD_RESERVATION_LINES_SQL, ps -> {
+            ps.setLong(1, orderId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", quantities.keySet().toArray()));
+            ps.setArray(3, ps.getConnection().createArrayOf("integer", quantities.values().toArray()));
+            ps.setArray(4, ps.getConnection().createArrayOf("bigint", leases));
+        });
+    }
+
+    @Override
+    public void rejectReservation(Long orderId) {
+        jdbcTemplate.update(REJECT_RESERVATION_SQL, orderId);
+    }
+
+    @Override
+    public List<Long> releaseReservations(Collection<Long> orderIds) {
+        return jdbcTemplate.query(RELEASE_RESERVATIONS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())),
+                (rs, rowNum) -> rs.getLong("order_id"));
+    }
+
+    @Override
+    public int commitReservations(Collection<Long> orderIds) {
+        return jdbcTemplate.update(COMMIT_RESERVATIONS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())));
+    }
+
+    @Override
+    public List<Long> findOverdueReservations(LocalDateTime expiredBy, int limit) {
+        return jdbcTemplate.queryForList(FIND_OVERDUE_RESERVATIONS_SQL, Long.class, Timestamp.valueOf(expiredBy), limit);
+    }
+
+    @Override
+    public Map<Long, LocalDateTime> holdReservations(Collection<Long> orderIds, LocalDateTime expiresAt) {
+        Map<Long, LocalDateTime> held = new HashMap<>();
+        jdbcTemplate.query(HOLD_RESERVATIONS_SQL,
+                ps -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(expiresAt));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", orderIds.toArray()));
+                },
+                rs -> {
+                    held.put(rs.getLong("order_id"), rs.getTimestamp("expires_at").toLocalDateTime());
+                });
+        return held;
+    }
+
+    @Override
+    public Optional<String> findReservationStatus(Long orderId) {
+        return jdbcTemplate.queryForList(FIND_RESERVATION_STATUS_SQL, String.class, orderId).stream().findFirst();
+    }
+
+    @Override
+    public boolean recommitReservation(Long orderId) {
+        return jdbcTemplate.update(RECOMMIT_RESERVATION_SQL, orderId) == 1;
+    }
+
+    @Override
+    public boolean markShortfall(Long orderId) {
+        return jdbcTemplate.update(MARK_SHORTFALL_SQL, orderId) == 1;
+    }
+
+    @Override
+    public List<Long> expireReservations(Collection<Long> orderIds, LocalDateTime now) {
+        return jdbcTemplate.query(EXPIRE_RESERVATIONS_SQL,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray()));
+                    ps.setTimestamp(2, Timestamp.valueOf(now));
+                },
+                (rs, rowNum) -> rs.getLong("order_id"));
+    }
+
+    @Override
+    public SortedMap<Long, Integer> sumReservedQuantities(Collection<Long> orderIds) {
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        jdbcTemplate.query(SUM_RESERVED_QUANTITIES_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())),
+                rs -> {
+                    quantities.put(rs.getLong("product_id"), rs.getInt("quantity"));
+                });
+        return quantities;
+    }
+
+    @Override
+    public Map<Long, LocalDateTime> findActiveReservationExpiries() {
+        Map<Long, LocalDateTime> expiries = new HashMap<>();
+        jdbcTemplate.query(FIND_ACTIVE_RESERVATION_EXPIRIES_SQL, rs -> {
+            expiries.put(rs.getLong("order_id"), rs.getTimestamp("expires_at").toLocalDateTime());
+        });
+        return expiries;
+    }
+
+    private int updateWithArrays(String sql, SortedMap<Long, Integer> values) {
+        return jdbcTemplate.update(sql, ps -> {
+            Array ids = ps.getConnection().createArrayOf("bigint", values.keySet().toArray());
+            Array amounts = ps.getConnection().createArrayOf("integer", values.values().toArray());
+            ps.setArray(1, ids);
+            ps.setArray(2, amounts);
+        });
+    }
+}
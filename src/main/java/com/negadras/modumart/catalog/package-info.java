@@ -6,16 +6,29 @@
  * - Stock management
  * - Category-based product filtering
  * - Order-driven stock adjustments
+ * - Optional "hot inventory" mode selling flash-sale products from per-node stock leases
+ * - Stock reservations that expire unless the order is paid or cancelled first; confirmed
+ *   orders hold theirs for longer. Expiry only releases stock: stale PENDING orders are
+ *   cancelled by the orders module
  * 
  * Events published:
  * - ProductCreatedEvent: When a new product is created
+ * - ProductsImportedEvent: When a bulk import batch creates products
  * - ProductStockReducedEvent: When product stock is reduced
- * - ProductOutOfStockEvent: When insufficient stock for order
+ * - ProductOutOfStockEvent: When an order can't be reserved, listing every short line
  * - ProductNotFoundEvent: When product referenced in order doesn't exist
- * - OrderStockRestorationNeededEvent: When cancelled order needs stock restoration
+ * - OrderStockRestoredEvent: When the stock of cancelled orders has been restored
+ * - StockReservationsExpiredEvent: When unpaid reservations expire and their stock is released
+ * - PaidOrderStockShortfallEvent: When an order is paid for after its stock was released and
+ *   the stock is gone
  * 
  * Events consumed:
  * - OrderCreatedEvent: Reduces stock for ordered products
- * - OrderCancelledEvent: Triggers stock restoration process
+ * - OrderConfirmedEvent: Holds the order's stock reservation for the held TTL
+ * - OrderCancelledEvent: Restores stock for the cancelled order's items
+ * - OrderPaidEvent: Commits the order's stock reservation, taking the stock again if the
+ *   reservation was released meanwhile, and records a shortfall if the stock is gone
+ * - OrdersStatusChangedEvent: Holds the reservations of orders confirmed in bulk, commits
+ *   those of orders paid in bulk and restores the stock of orders cancelled in bulk
  */
 package com.negadras.modumart.catalog;
\ No newline at end of file
@@ -1,10 +1,12 @@
 package com.negadras.modumart.notifications;
 
+import com.negadras.modumart.catalog.PaidOrderStockShortfallEvent;
 import com.negadras.modumart.catalog.ProductOutOfStockEvent;
 import com.negadras.modumart.customers.CustomerRegisteredEvent;
 import com.negadras.modumart.orders.*;
 import com.negadras.modumart.payments.PaymentCompletedEvent;
 import com.negadras.modumart.payments.PaymentFailedEvent;
+import com.negadras.modumart.payments.PaymentsCapturedEvent;
 import com.negadras.modumart.shipping.ShipmentDeliveredEvent;
 import com.negadras.modumart.shipping.ShipmentDeliveryFailedEvent;
 import com.negadras.modumart.shipping.ShipmentShippedEvent;
@@ -13,7 +15,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 public class ModumartEventHandler {
@@ -88,6 +93,29 @@ public class ModumartEventHandler {
         notificationService.sendNotification(notification.id());
     }
     
+    @EventListener
+    public void handleOrdersStatusChanged(OrdersStatusChangedEvent event) {
+        if (event.status() != OrderStatus.CANCELLED) {
+            return;
+        }
+        logger.info("Processing bulk cancellation of {} orders", event.orders().size());
+        
+        // Queued rather than sent one by one, so a large batch doesn't fan out into per-order events
+        List<NotificationRequest> requests = event.orders().stream()
+                .map(order -> new NotificationRequest(
+                        order.customerId(),
+                        NotificationType.ORDER_CANCELLED,
+                        NotificationChannel.EMAIL,
+                        "customer@example.com",
+                        Map.of("orderId", order.id().toString()),
+                        "Order",
+                        order.id()
+                ))
+                .toList();
+        
+        notificationService.queueNotifications(requests);
+    }
+    
     @EventListener
     public void handlePaymentCompleted(PaymentCompletedEvent event) {
         logger.info("Processing payment completed event for order: {}", event.orderId());
@@ -131,6 +159,42 @@ public class ModumartEventHandler {
         notificationService.sendNotification(notification.id());
     }
     
+    @EventListener
+    public void handlePaymentsCaptured(PaymentsCapturedEvent event) {
+        logger.info("Processing payments captured event: {} completed, {} failed",
+                event.completed().size(), event.failed().size());
+        
+        // Queued rather than sent one by one, so a captured chunk doesn't fan out into per-payment events
+        List<NotificationRequest> requests = new ArrayList<>(event.completed().size() + event.failed().size());
+        event.completed().forEach(payment -> requests.add(new NotificationRequest(
+                payment.customerId(),
+                NotificationType.PAYMENT_RECEIVED,
+                NotificationChannel.EMAIL,
+                "customer@example.com",
+                Map.of(
+                    "orderId", payment.orderId().toString(),
+                    "amount", payment.amount().toString(),
+                    "transactionId", "TXN-" + payment.paymentId()
+                ),
+                "Payment",
+                payment.paymentId()
+        )));
+        event.failed().forEach(payment -> requests.add(new NotificationRequest(
+                null, // Customer ID not available in event, would need to be looked up
+                NotificationType.PAYMENT_FAILED,
+                NotificationChannel.EMAIL,
+                "customer@example.com",
+                Map.of(
+                    "orderId", payment.orderId().toString(),
+                    "reason", payment.reason()
+                ),
+                "Payment",
+                payment.paymentId()
+        )));
+        
+        notificationService.queueNotifications(requests);
+    }
+    
     @EventListener
     public void handleShipmentShipped(ShipmentShippedEvent event) {
         logger.info("Processing shipment shipped event for order: {}", event.orderId());
@@ -208,7 +272,11 @@ public class ModumartEventHandler {
     
     @EventListener
     public void handleProductOutOfStock(ProductOutOfStockEvent event) {
-        logger.info("Processing product out of stock event for product: {}", event.productId());
+        logger.info("Processing product out of stock event for order: {}", event.orderId());
+        
+        String productNames = event.shortages().stream()
+                .map(shortage -> "Product #" + shortage.productId())
+                .collect(Collectors.joining(", "));
         
         // In a real system, would notify customers who have this product in wishlist/cart
         NotificationRequest request = new NotificationRequest(
@@ -216,12 +284,37 @@ public class ModumartEventHandler {
                 NotificationType.PRODUCT_OUT_OF_STOCK,
                 NotificationChannel.EMAIL,
                 "customer@example.com",
-                Map.of("productName", "Product #" + event.productId()),
-                "Product",
-                event.productId()
+                Map.of("productName", productNames),
+                "Order",
+                event.orderId()
+        );
+        
+        Notification notification = notificationService.createNotification(request);
+        notificationService.sendNotification(notification.id());
+    }
+    
+    @EventListener
+    public void handlePaidOrderStockShortfall(PaidOrderStockShortfallEvent event) {
+        logger.info("Processing stock shortfall event for paid order: {}", event.orderId());
+        
+        String productNames = event.shortages().stream()
+                .map(shortage -> "Product #" + shortage.productId())
+                .collect(Collectors.joining(", "));
+        
+        NotificationRequest request = new NotificationRequest(
+                event.customerId(),
+                NotificationType.PRODUCT_OUT_OF_STOCK,
+                NotificationChannel.EMAIL,
+                "customer@example.com",
+                Map.of(
+                    "orderId", event.orderId().toString(),
+                    "productName", productNames
+                ),
+                "Order",
+                event.orderId()
         );
         
         Notification notification = notificationService.createNotification(request);
         notificationService.sendNotification(notification.id());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.negadras.modumart.notifications;
+
+import java.util.List;
+
+/**
+ * Set-based writes for notifications created in bulk.
+ */
+public interface NotificationBatchRepository {
+
+    /**
+     * Inserts the given notifications in JDBC batches. Unlike {@code saveAll}, no aggregate
+     * lifecycle events are published per notification.
+     */
+    void insertAll(List<Notification> notifications);
+}
@@ -0,0 +1,38 @@
+package com.negadras.modumart.notifications;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+class NotificationBatchRepositoryImpl implements NotificationBatchRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_NOTIFICATION_SQL =
+            "INSERT INTO notifications (customer_id, type, channel, title, message, recipient, status, " +
+            "created_at, related_entity_type, related_entity_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    NotificationBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<Notification> notifications) {
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, notifications, BATCH_SIZE, (ps, notification) -> {
+            ps.setObject(1, notification.customerId(), Types.BIGINT);
+            ps.setString(2, notification.type().name());
+            ps.setString(3, notification.channel().name());
+            ps.setString(4, notification.title());
+            ps.setString(5, notification.message());
+            ps.setString(6, notification.recipient());
+            ps.setString(7, notification.status().name());
+            ps.setTimestamp(8, Timestamp.valueOf(notification.createdAt()));
+            ps.setString(9, notification.relatedEntityType());
+            ps.setObject(10, notification.relatedEntityId(), Types.BIGINT);
+        });
+    }
+}
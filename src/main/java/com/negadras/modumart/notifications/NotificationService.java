@@ -70,6 +70,29 @@ public class NotificationService {
         return saved;
     }
     
+    /**
+     * Saves notifications for a batch of requests in one go, without publishing an event per
+     * notification. They stay PENDING until the pending notifications are sent.
+     */
+    public void queueNotifications(List<NotificationRequest> requests) {
+        logger.info("Queueing {} notifications", requests.size());
+        
+        List<Notification> notifications = requests.stream()
+                .map(request -> Notification.create(
+                        request.customerId(),
+                        request.type(),
+                        request.channel(),
+                        templateService.generateTitle(request.type(), request.templateData()),
+                        templateService.generateMessage(request.type(), request.templateData()),
+                        request.recipient(),
+                        request.relatedEntityType(),
+                        request.relatedEntityId()
+                ))
+                .toList();
+        
+        notificationRepository.insertAll(notifications);
+    }
+    
     public Optional<Notification> sendNotification(Long notificationId) {
         return notificationRepository.findById(notificationId)
                 .filter(notification -> notification.status() == NotificationStatus.PENDING)
@@ -24,12 +24,15 @@
  * - CustomerRegisteredEvent: Sends welcome notifications
  * - OrderCreatedEvent: Sends order confirmation
  * - OrderCancelledEvent: Sends cancellation notice
+ * - OrdersStatusChangedEvent: Queues cancellation notices for orders cancelled in bulk
  * - PaymentCompletedEvent: Sends payment confirmation
  * - PaymentFailedEvent: Sends payment failure notice
+ * - PaymentsCapturedEvent: Queues payment confirmations and failure notices for captured chunks
  * - ShipmentShippedEvent: Sends shipping confirmation with tracking
  * - ShipmentDeliveredEvent: Sends delivery confirmation
  * - ShipmentDeliveryFailedEvent: Sends delivery failure notice
  * - ProductOutOfStockEvent: Notifies affected customers
+ * - PaidOrderStockShortfallEvent: Tells the customer a paid order's stock is no longer available
  * 
  * This demonstrates Spring Modulith's capability for cross-cutting concerns and centralized event handling.
  */
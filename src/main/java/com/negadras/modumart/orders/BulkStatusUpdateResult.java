@@ -0,0 +1,21 @@
+package com.negadras.modumart.orders;
+
+import java.util.List;
+
+/**
+ * Outcome of moving a batch of orders to one status, with a result for every requested id.
+ */
+public record BulkStatusUpdateResult(OrderStatus status, int updated, List<Outcome> outcomes) {
+
+    public enum Result {
+        UPDATED,
+        NOT_FOUND,
+        ILLEGAL_TRANSITION
+    }
+
+    /**
+     * {@code currentStatus} is the status the order was left in, {@code null} if it doesn't exist.
+     */
+    public record Outcome(Long orderId, Result result, OrderStatus currentStatus) {
+    }
+}
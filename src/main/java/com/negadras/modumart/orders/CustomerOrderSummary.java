@@ -0,0 +1,25 @@
+package com.negadras.modumart.orders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Order history totals of one customer. Total spend excludes cancelled orders.
+ */
+public record CustomerOrderSummary(
+        Long customerId,
+        long orderCount,
+        BigDecimal totalSpend,
+        LocalDateTime lastOrderAt,
+        Map<OrderStatus, Long> statusCounts
+) {
+    static CustomerOrderSummary empty(Long customerId) {
+        Map<OrderStatus, Long> statusCounts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            statusCounts.put(status, 0L);
+        }
+        return new CustomerOrderSummary(customerId, 0, BigDecimal.ZERO.setScale(2), null, statusCounts);
+    }
+}
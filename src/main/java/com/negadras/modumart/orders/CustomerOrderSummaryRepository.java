@@ -0,0 +1,29 @@
+package com.negadras.modumart.orders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-customer order totals, kept up to date incrementally instead of scanning order history.
+ */
+public interface CustomerOrderSummaryRepository {
+
+    /**
+     * Counts a new PENDING order into its customer's summary, reading the total and creation
+     * time from the order row. Orders without a customer are ignored.
+     */
+    void recordOrderCreated(Long orderId, LocalDateTime updatedAt);
+
+    /**
+     * Moves orders from one status count to another with one statement for all their
+     * customers. Orders moving to CANCELLED also leave the customer's total spend.
+     */
+    void recordStatusChanges(OrderStatus from, OrderStatus to, List<StatusChange> changes, LocalDateTime updatedAt);
+
+    Optional<CustomerOrderSummary> findCustomerOrderSummary(Long customerId);
+
+    record StatusChange(Long customerId, BigDecimal totalAmount) {
+    }
+}
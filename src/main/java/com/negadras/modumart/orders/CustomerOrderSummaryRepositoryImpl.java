@@ -0,0 +1,93 @@
+package com.negadras.modumart.orders;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+class CustomerOrderSummaryRepositoryImpl implements CustomerOrderSummaryRepository {
+
+    private static final String RECORD_ORDER_CREATED_SQL =
+            "INSERT INTO customer_order_summary AS s " +
+            "(customer_id, order_count, total_spend, last_order_at, pending_count, updated_at) " +
+            "SELECT customer_id, 1, total_amount, created_at, 1, ? FROM orders " +
+            "WHERE id = ? AND customer_id IS NOT NULL " +
+            "ON CONFLICT (customer_id) DO UPDATE SET order_count = s.order_count + 1, " +
+            "total_spend = s.total_spend + EXCLUDED.total_spend, " +
+            "last_order_at = GREATEST(s.last_order_at, EXCLUDED.last_order_at), " +
+            "pending_count = s.pending_count + 1, updated_at = EXCLUDED.updated_at";
+
+    // Status columns come from the enum, never from user input
+    private static final String RECORD_STATUS_CHANGES_SQL =
+            "UPDATE customer_order_summary s SET %1$s = s.%1$s - d.orders, %2$s = s.%2$s + d.orders, " +
+            "total_spend = s.total_spend - d.spend, updated_at = ? " +
+            "FROM unnest(?, ?, ?) AS d(customer_id, orders, spend) WHERE s.customer_id = d.customer_id";
+
+    private static final String FIND_CUSTOMER_ORDER_SUMMARY_SQL =
+            "SELECT * FROM customer_order_summary WHERE customer_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    CustomerOrderSummaryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void recordOrderCreated(Long orderId, LocalDateTime updatedAt) {
+        jdbcTemplate.update(RECORD_ORDER_CREATED_SQL, Timestamp.valueOf(updatedAt), orderId);
+    }
+
+    @Override
+    public void recordStatusChanges(OrderStatus from, OrderStatus to, List<StatusChange> changes,
+                                    LocalDateTime updatedAt) {
+        // Aggregated per customer and sorted, so concurrent batches lock summary rows in the same order
+        SortedMap<Long, Integer> orders = new TreeMap<>();
+        SortedMap<Long, BigDecimal> spend = new TreeMap<>();
+        for (StatusChange change : changes) {
+            if (change.customerId() == null) {
+                continue;
+            }
+            orders.merge(change.customerId(), 1, Integer::sum);
+            BigDecimal amount = to == OrderStatus.CANCELLED ? change.totalAmount() : BigDecimal.ZERO;
+            spend.merge(change.customerId(), amount, BigDecimal::add);
+        }
+        if (orders.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(String.format(RECORD_STATUS_CHANGES_SQL, column(from), column(to)), ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(updatedAt));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", orders.keySet().toArray()));
+            ps.setArray(3, ps.getConnection().createArrayOf("integer", orders.values().toArray()));
+            ps.setArray(4, ps.getConnection().createArrayOf("numeric", spend.values().toArray()));
+        });
+    }
+
+    @Override
+    public Optional<CustomerOrderSummary> findCustomerOrderSummary(Long customerId) {
+        return jdbcTemplate.query(FIND_CUSTOMER_ORDER_SUMMARY_SQL, (rs, rowNum) -> {
+            Map<OrderStatus, Long> statusCounts = new EnumMap<>(OrderStatus.class);
+            for (OrderStatus status : OrderStatus.values()) {
+                statusCounts.put(status, rs.getLong(column(status)));
+            }
+            Timestamp lastOrderAt = rs.getTimestamp("last_order_at");
+            return new CustomerOrderSummary(
+                    rs.getLong("customer_id"),
+                    rs.getLong("order_count"),
+                    rs.getBigDecimal("total_spend"),
+                    lastOrderAt != null ? lastOrderAt.toLocalDateTime() : null,
+                    statusCounts);
+        }, customerId).stream().findFirst();
+    }
+
+    private static String column(OrderStatus status) {
+        return status.name().toLowerCase(Locale.ROOT) + "_count";
+    }
+}
@@ -0,0 +1,68 @@
+package com.negadras.modumart.orders;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps customer_order_summary in step with the module's own order events. Listeners run
+ * synchronously, so a summary update commits or rolls back with the order change it counts.
+ */
+@Component
+public class CustomerOrderSummaryUpdater {
+
+    private final OrderRepository orderRepository;
+
+    public CustomerOrderSummaryUpdater(OrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    @EventListener
+    public void handleOrderCreated(OrderCreatedEvent event) {
+        orderRepository.recordOrderCreated(event.orderId(), LocalDateTime.now());
+    }
+
+    @EventListener
+    public void handleOrderConfirmed(OrderConfirmedEvent event) {
+        record(OrderStatus.PENDING, OrderStatus.CONFIRMED, event.customerId(), BigDecimal.ZERO);
+    }
+
+    @EventListener
+    public void handleOrderPaid(OrderPaidEvent event) {
+        record(event.previousStatus(), OrderStatus.PAID, event.customerId(), event.amount());
+    }
+
+    @EventListener
+    public void handleOrderShipped(OrderShippedEvent event) {
+        record(OrderStatus.PAID, OrderStatus.SHIPPED, event.customerId(), BigDecimal.ZERO);
+    }
+
+    @EventListener
+    public void handleOrderDelivered(OrderDeliveredEvent event) {
+        record(OrderStatus.SHIPPED, OrderStatus.DELIVERED, event.customerId(), BigDecimal.ZERO);
+    }
+
+    @EventListener
+    public void handleOrderCancelled(OrderCancelledEvent event) {
+        BigDecimal total = event.items().stream()
+                .map(OrderItem::totalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        record(event.previousStatus(), OrderStatus.CANCELLED, event.customerId(), total);
+    }
+
+    @EventListener
+    public void handleOrdersStatusChanged(OrdersStatusChangedEvent event) {
+        List<CustomerOrderSummaryRepository.StatusChange> changes = event.orders().stream()
+                .map(order -> new CustomerOrderSummaryRepository.StatusChange(order.customerId(), order.totalAmount()))
+                .toList();
+        orderRepository.recordStatusChanges(event.previousStatus(), event.status(), changes, LocalDateTime.now());
+    }
+
+    private void record(OrderStatus from, OrderStatus to, Long customerId, BigDecimal totalAmount) {
+        orderRepository.recordStatusChanges(from, to,
+                List.of(new CustomerOrderSummaryRepository.StatusChange(customerId, totalAmount)), LocalDateTime.now());
+    }
+}
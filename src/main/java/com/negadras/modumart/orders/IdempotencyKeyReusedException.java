@@ -0,0 +1,11 @@
+package com.negadras.modumart.orders;
+
+/**
+ * Thrown when an idempotency key is sent again with a different order than the one it created.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency key " + key + " was already used for a different order");
+    }
+}
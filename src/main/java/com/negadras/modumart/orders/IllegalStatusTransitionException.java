@@ -0,0 +1,11 @@
+package com.negadras.modumart.orders;
+
+/**
+ * Thrown when an order is asked to move to a status that can't follow its current one.
+ */
+public class IllegalStatusTransitionException extends RuntimeException {
+
+    public IllegalStatusTransitionException(Long orderId, OrderStatus from, OrderStatus to) {
+        super("Order " + orderId + " can't move from " + from + " to " + to);
+    }
+}
@@ -1,6 +1,7 @@
 package com.negadras.modumart.orders;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.MappedCollection;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -16,18 +17,27 @@ public record Order(
         BigDecimal totalAmount,
         LocalDateTime createdAt,
         LocalDateTime updatedAt,
+        @Version Long version,
         String shippingAddress,
         @MappedCollection(idColumn = "order_id") Set<OrderItem> items
 ) {
     public Order withId(Long id) {
-        return new Order(id, customerId, status, totalAmount, createdAt, updatedAt, shippingAddress, items);
+        return new Order(id, customerId, status, totalAmount, createdAt, updatedAt, version, shippingAddress, items);
     }
     
     public Order withStatus(OrderStatus status) {
-        return new Order(id, customerId, status, totalAmount, createdAt, LocalDateTime.now(), shippingAddress, items);
+        return new Order(id, customerId, status, totalAmount, createdAt, LocalDateTime.now(), version, shippingAddress, items);
+    }
+    
+    /**
+     * Returns this order as it is after a successful status transition, one version ahead.
+     */
+    public Order transitionedTo(OrderStatus status) {
+        return new Order(id, customerId, status, totalAmount, createdAt, LocalDateTime.now(), version + 1,
+                shippingAddress, items);
     }
     
     public Order withTotalAmount(BigDecimal totalAmount) {
-        return new Order(id, customerId, status, totalAmount, createdAt, LocalDateTime.now(), shippingAddress, items);
+        return new Order(id, customerId, status, totalAmount, createdAt, LocalDateTime.now(), version, shippingAddress, items);
     }
 }
\ No newline at end of file
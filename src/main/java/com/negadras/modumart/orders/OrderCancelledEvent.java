@@ -1,4 +1,6 @@
 package com.negadras.modumart.orders;
 
-public record OrderCancelledEvent(Long orderId, Long customerId) {
-}
\ No newline at end of file
+import java.util.Set;
+
+public record OrderCancelledEvent(Long orderId, Long customerId, Set<OrderItem> items, OrderStatus previousStatus) {
+}
@@ -1,6 +1,8 @@
 package com.negadras.modumart.orders;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,8 +19,10 @@ public class OrderController {
     }
     
     @GetMapping
-    public List<Order> getAllOrders() {
-        return orderService.getAllOrders();
+    public OrderPage<?> getOrders(@RequestParam(required = false) String after,
+                                  @RequestParam(required = false) Integer limit,
+                                  @RequestParam(defaultValue = "false") boolean includeItems) {
+        return orderService.getOrders(after, limit, includeItems);
     }
     
     @GetMapping("/{id}")
@@ -29,19 +33,33 @@ public class OrderController {
     }
     
     @GetMapping("/customer/{customerId}")
-    public List<Order> getOrdersByCustomer(@PathVariable Long customerId) {
-        return orderService.getOrdersByCustomer(customerId);
+    public OrderPage<?> getOrdersByCustomer(@PathVariable Long customerId,
+                                            @RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(defaultValue = "false") boolean includeItems) {
+        return orderService.getOrdersByCustomer(customerId, after, limit, includeItems);
+    }
+    
+    @GetMapping("/customer/{customerId}/summary")
+    public CustomerOrderSummary getCustomerOrderSummary(@PathVariable Long customerId) {
+        return orderService.getCustomerOrderSummary(customerId);
     }
     
     @GetMapping("/status/{status}")
-    public List<Order> getOrdersByStatus(@PathVariable OrderStatus status) {
-        return orderService.getOrdersByStatus(status);
+    public OrderPage<?> getOrdersByStatus(@PathVariable OrderStatus status,
+                                          @RequestParam(required = false) String after,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(defaultValue = "false") boolean includeItems) {
+        return orderService.getOrdersByStatus(status, after, limit, includeItems);
     }
     
     @PostMapping
-    public ResponseEntity<Order> createOrder(@RequestBody CreateOrderRequest request) {
-        Order created = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    public ResponseEntity<Order> createOrder(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                             @RequestBody CreateOrderRequest request) {
+        OrderCreation creation = orderService.createOrder(idempotencyKey, request);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Idempotent-Replayed", String.valueOf(creation.replayed()))
+                .body(creation.order());
     }
     
     @PutMapping("/{id}/status")
@@ -51,6 +69,11 @@ public class OrderController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    @PutMapping("/status")
+    public BulkStatusUpdateResult updateOrderStatuses(@RequestBody BulkStatusUpdateRequest request) {
+        return orderService.updateOrderStatuses(request.orderIds(), request.status());
+    }
+    
     @DeleteMapping("/{id}/cancel")
     public ResponseEntity<Void> cancelOrder(@PathVariable Long id) {
         orderService.cancelOrder(id);
@@ -63,4 +86,33 @@ public class OrderController {
     }
     
     public record UpdateStatusRequest(OrderStatus status) {}
-}
\ No newline at end of file
+    
+    public record BulkStatusUpdateRequest(List<Long> orderIds, OrderStatus status) {}
+    
+    @ExceptionHandler(StalePriceException.class)
+    public ProblemDetail handleStalePrice(StalePriceException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+        problem.setProperty("productIds", e.getProductIds());
+        return problem;
+    }
+    
+    @ExceptionHandler(IllegalStatusTransitionException.class)
+    public ProblemDetail handleIllegalTransition(IllegalStatusTransitionException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+    }
+    
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ProblemDetail handleConcurrentModification(OptimisticLockingFailureException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+    }
+    
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ProblemDetail handleIdempotencyKeyReused(IdempotencyKeyReusedException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+    }
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ProblemDetail handleInvalidOrder(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
@@ -1,6 +1,9 @@
 package com.negadras.modumart.orders;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Set;
 
-public record OrderCreatedEvent(Long orderId, Long customerId, Set<OrderItem> items) {
-}
\ No newline at end of file
+public record OrderCreatedEvent(Long orderId, Long customerId, Set<OrderItem> items, BigDecimal totalAmount,
+                                String shippingAddress, LocalDateTime createdAt) {
+}
@@ -0,0 +1,8 @@
+package com.negadras.modumart.orders;
+
+/**
+ * The order returned for a create request, and whether it was replayed for a repeated
+ * idempotency key rather than newly created.
+ */
+public record OrderCreation(Order order, boolean replayed) {
+}
@@ -0,0 +1,27 @@
+package com.negadras.modumart.orders;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Idempotency keys of order creation requests, unique per key.
+ */
+public interface OrderIdempotencyRepository {
+
+    /**
+     * Claims a key for a new request. A key last claimed before {@code cutoff} is reclaimed.
+     * Blocks while another transaction holds an uncommitted claim on the same key.
+     *
+     * @return false if the key is already claimed within the window
+     */
+    boolean claimIdempotencyKey(String key, String requestFingerprint, LocalDateTime now, LocalDateTime cutoff);
+
+    void bindIdempotencyKey(String key, Long orderId);
+
+    Optional<IdempotencyRecord> findIdempotencyKey(String key, LocalDateTime cutoff);
+
+    int deleteIdempotencyKeysBefore(LocalDateTime cutoff);
+
+    record IdempotencyRecord(String requestFingerprint, Long orderId) {
+    }
+}
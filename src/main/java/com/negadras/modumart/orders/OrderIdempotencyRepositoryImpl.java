@@ -0,0 +1,57 @@
+package com.negadras.modumart.orders;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+class OrderIdempotencyRepositoryImpl implements OrderIdempotencyRepository {
+
+    private static final String CLAIM_SQL =
+            "INSERT INTO order_idempotency_keys (idempotency_key, request_fingerprint, created_at) " +
+            "VALUES (?, ?, ?) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE " +
+            "SET request_fingerprint = EXCLUDED.request_fingerprint, order_id = NULL, created_at = EXCLUDED.created_at " +
+            "WHERE order_idempotency_keys.created_at < ?";
+
+    private static final String BIND_SQL =
+            "UPDATE order_idempotency_keys SET order_id = ? WHERE idempotency_key = ?";
+
+    private static final String FIND_SQL =
+            "SELECT request_fingerprint, order_id FROM order_idempotency_keys " +
+            "WHERE idempotency_key = ? AND created_at >= ? AND order_id IS NOT NULL";
+
+    private static final String DELETE_BEFORE_SQL =
+            "DELETE FROM order_idempotency_keys WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    OrderIdempotencyRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean claimIdempotencyKey(String key, String requestFingerprint, LocalDateTime now,
+                                       LocalDateTime cutoff) {
+        return jdbcTemplate.update(CLAIM_SQL, key, requestFingerprint, Timestamp.valueOf(now),
+                Timestamp.valueOf(cutoff)) == 1;
+    }
+
+    @Override
+    public void bindIdempotencyKey(String key, Long orderId) {
+        jdbcTemplate.update(BIND_SQL, orderId, key);
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyKey(String key, LocalDateTime cutoff) {
+        return jdbcTemplate.query(FIND_SQL,
+                (rs, rowNum) -> new IdempotencyRecord(rs.getString("request_fingerprint"), rs.getLong("order_id")),
+                key, Timestamp.valueOf(cutoff)).stream().findFirst();
+    }
+
+    @Override
+    public int deleteIdempotencyKeysBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(DELETE_BEFORE_SQL, Timestamp.valueOf(cutoff));
+    }
+}
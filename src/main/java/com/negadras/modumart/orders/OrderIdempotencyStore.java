@@ -0,0 +1,117 @@
+package com.negadras.modumart.orders;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Dedupe store for order creation requests carrying an {@code Idempotency-Key}.
+ *
+ * Keys are unique in the order_idempotency_keys table, which makes concurrent retries
+ * serialize on the key. An LRU cache in front of it answers most repeats without a query.
+ * Keys are honoured for the configured window and purged after it.
+ */
+@Component
+public class OrderIdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIdempotencyStore.class);
+
+    private final OrderRepository orderRepository;
+    private final OrdersConfiguration.IdempotencyProperties properties;
+    private final Cache<String, OrderIdempotencyRepository.IdempotencyRecord> recent;
+
+    public OrderIdempotencyStore(OrderRepository orderRepository,
+                                 OrdersConfiguration.IdempotencyProperties properties) {
+        this.orderRepository = orderRepository;
+        this.properties = properties;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getWindow())
+                .build();
+    }
+
+    public Optional<OrderIdempotencyRepository.IdempotencyRecord> find(String key) {
+        OrderIdempotencyRepository.IdempotencyRecord cached = recent.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<OrderIdempotencyRepository.IdempotencyRecord> stored =
+                orderRepository.findIdempotencyKey(key, cutoff());
+        stored.ifPresent(record -> recent.put(key, record));
+        return stored;
+    }
+
+    /**
+     * Claims the key for a new order in the current transaction.
+     *
+     * @return false if another request already holds the key
+     */
+    public boolean claim(String key, String requestFingerprint) {
+        return orderRepository.claimIdempotencyKey(key, requestFingerprint, LocalDateTime.now(), cutoff());
+    }
+
+    /**
+     * Binds a claimed key to the order it created. The key is cached once the transaction commits.
+     */
+    public void complete(String key, String requestFingerprint, Long orderId) {
+        orderRepository.bindIdempotencyKey(key, orderId);
+        OrderIdempotencyRepository.IdempotencyRecord record =
+                new OrderIdempotencyRepository.IdempotencyRecord(requestFingerprint, orderId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recent.put(key, record);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.orders.idempotency.purge-interval:PT1H}")
+    public void purgeExpiredKeys() {
+        int purged = orderRepository.deleteIdempotencyKeysBefore(cutoff());
+        if (purged > 0) {
+            logger.info("Purged {} expired order idempotency keys", purged);
+        }
+    }
+
+    /**
+     * Hashes the parts of a request that define the order, independent of item order, so a
+     * key reused for a different order can be told apart from a retry.
+     */
+    public static String fingerprint(CreateOrderRequest request) {
+        StringBuilder canonical = new StringBuilder()
+                .append(request.customerId()).append('\n')
+                .append(request.shippingAddress()).append('\n');
+        if (request.items() != null) {
+            request.items().stream()
+                    .sorted(Comparator.comparing(OrderItem::productId, Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .forEach(item -> canonical.append(item.productId()).append(':')
+                            .append(item.quantity()).append(':')
+                            .append(item.unitPrice() != null ? item.unitPrice().stripTrailingZeros().toPlainString() : "")
+                            .append('\n'));
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minus(properties.getWindow());
+    }
+}
@@ -0,0 +1,26 @@
+package com.negadras.modumart.orders;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Order listings that read the orders table once and load the items of all returned
+ * orders with a single additional query, rather than one query per order.
+ */
+public interface OrderListingRepository {
+
+    List<Order> findRecentOrders(Integer limit);
+
+    /**
+     * Returns up to {@code limit} orders older than {@code after}, newest first. The customer
+     * and status filters are optional.
+     */
+    List<OrderSummary> findSummaries(Long customerId, OrderStatus status, OrderCursor after, int limit);
+
+    /**
+     * Loads the items of all given orders with a single query.
+     */
+    Map<Long, Set<OrderItem>> findItemsByOrderIds(Collection<Long> orderIds);
+}
@@ -0,0 +1,96 @@
+package com.negadras.modumart.orders;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class OrderListingRepositoryImpl implements OrderListingRepository {
+
+    private static final String SUMMARY_SELECT =
+            "SELECT id, customer_id, status, total_amount, created_at, updated_at, version, shipping_address " +
+            "FROM orders WHERE 1 = 1";
+
+    private static final String FIND_ITEMS_SQL =
+            "SELECT order_id, product_id, product_name, quantity, unit_price, total_price " +
+            "FROM order_items WHERE order_id = ANY(?)";
+
+    static final RowMapper<OrderSummary> SUMMARY_MAPPER = (rs, rowNum) -> new OrderSummary(
+            rs.getLong("id"),
+            rs.getLong("customer_id"),
+            OrderStatus.valueOf(rs.getString("status")),
+            rs.getBigDecimal("total_amount"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime(),
+            rs.getLong("version"),
+            rs.getString("shipping_address"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    OrderListingRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Order> findRecentOrders(Integer limit) {
+        return findOrders(SUMMARY_SELECT + " ORDER BY created_at DESC, id DESC LIMIT ?", limit);
+    }
+
+    @Override
+    public List<OrderSummary> findSummaries(Long customerId, OrderStatus status, OrderCursor after, int limit) {
+        StringBuilder sql = new StringBuilder(SUMMARY_SELECT);
+        List<Object> args = new ArrayList<>();
+        if (customerId != null) {
+            sql.append(" AND customer_id = ?");
+            args.add(customerId);
+        }
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status.name());
+        }
+        if (after != null) {
+            sql.append(" AND (created_at, id) < (?, ?)");
+            args.add(Timestamp.valueOf(after.createdAt()));
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), SUMMARY_MAPPER, args.toArray());
+    }
+
+    @Override
+    public Map<Long, Set<OrderItem>> findItemsByOrderIds(Collection<Long> orderIds) {
+        Map<Long, Set<OrderItem>> items = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return items;
+        }
+        jdbcTemplate.query(FIND_ITEMS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())),
+                rs -> {
+                    items.computeIfAbsent(rs.getLong("order_id"), orderId -> new HashSet<>())
+                            .add(new OrderItem(
+                                    rs.getLong("product_id"),
+                                    rs.getString("product_name"),
+                                    rs.getInt("quantity"),
+                                    rs.getBigDecimal("unit_price"),
+                                    rs.getBigDecimal("total_price")));
+                });
+        return items;
+    }
+
+    private List<Order> findOrders(String sql, Object... args) {
+        List<OrderSummary> summaries = jdbcTemplate.query(sql, SUMMARY_MAPPER, args);
+        Map<Long, Set<OrderItem>> items = findItemsByOrderIds(summaries.stream().map(OrderSummary::id).toList());
+        return summaries.stream()
+                .map(summary -> summary.withItems(items.getOrDefault(summary.id(), Set.of())))
+                .toList();
+    }
+}
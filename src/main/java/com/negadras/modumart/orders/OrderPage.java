@@ -0,0 +1,10 @@
+package com.negadras.modumart.orders;
+
+import java.util.List;
+
+/**
+ * A page of orders, newest first. {@code nextCursor} is the value to pass as {@code after}
+ * to fetch the following page, or {@code null} when there are no more orders.
+ */
+public record OrderPage<T>(List<T> orders, String nextCursor) {
+}
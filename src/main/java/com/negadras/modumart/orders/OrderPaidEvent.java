@@ -2,5 +2,5 @@ package com.negadras.modumart.orders;
 
 import java.math.BigDecimal;
 
-public record OrderPaidEvent(Long orderId, Long customerId, BigDecimal amount) {
+public record OrderPaidEvent(Long orderId, Long customerId, BigDecimal amount, OrderStatus previousStatus) {
 }
\ No newline at end of file
@@ -1,22 +1,26 @@
 package com.negadras.modumart.orders;
 
+import org.springframework.data.jdbc.repository.query.Modifying;
 import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.time.LocalDateTime;
 
 @Repository
-public interface OrderRepository extends CrudRepository<Order, Long> {
+public interface OrderRepository extends CrudRepository<Order, Long>, OrderListingRepository,
+        OrderIdempotencyRepository, OrderStatusTransitionRepository, CustomerOrderSummaryRepository {
     
-    List<Order> findByCustomerId(Long customerId);
-    
-    List<Order> findByStatus(OrderStatus status);
-    
-    @Query("SELECT * FROM orders WHERE customer_id = :customerId AND status = :status")
-    List<Order> findByCustomerIdAndStatus(@Param("customerId") Long customerId, @Param("status") OrderStatus status);
-    
-    @Query("SELECT * FROM orders ORDER BY created_at DESC LIMIT :limit")
-    List<Order> findRecentOrders(@Param("limit") Integer limit);
+    /**
+     * Moves an order from one status to another without rewriting its items. Only applies
+     * if the order is still in the expected status and version.
+     *
+     * @return the number of orders updated, 0 if the order was changed concurrently
+     */
+    @Modifying
+    @Query("UPDATE orders SET status = :to, version = version + 1, updated_at = :updatedAt " +
+           "WHERE id = :id AND status = :from AND version = :version")
+    int transitionStatus(@Param("id") Long id, @Param("from") OrderStatus from, @Param("to") OrderStatus to,
+                         @Param("version") Long version, @Param("updatedAt") LocalDateTime updatedAt);
 }
\ No newline at end of file
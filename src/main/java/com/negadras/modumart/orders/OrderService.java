@@ -1,91 +1,349 @@
 package com.negadras.modumart.orders;
 
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class OrderService {
     
+    private static final int MINOR_UNIT_SCALE = 2;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int MAX_BULK_ORDERS = 10_000;
+    private static final int DEFAULT_RECENT_ORDERS = 10;
+    
     private final OrderRepository orderRepository;
+    private final ProductPriceLookup productPriceLookup;
+    private final OrderIdempotencyStore idempotencyStore;
+    private final RecentOrderBuffer recentOrderBuffer;
     private final ApplicationEventPublisher eventPublisher;
     
-    public OrderService(OrderRepository orderRepository, ApplicationEventPublisher eventPublisher) {
+    public OrderService(OrderRepository orderRepository, ProductPriceLookup productPriceLookup,
+                        OrderIdempotencyStore idempotencyStore, RecentOrderBuffer recentOrderBuffer,
+                        ApplicationEventPublisher eventPublisher) {
         this.orderRepository = orderRepository;
+        this.productPriceLookup = productPriceLookup;
+        this.idempotencyStore = idempotencyStore;
+        this.recentOrderBuffer = recentOrderBuffer;
         this.eventPublisher = eventPublisher;
     }
     
-    public List<Order> getAllOrders() {
-        return (List<Order>) orderRepository.findAll();
+    public OrderPage<?> getOrders(String after, Integer limit, boolean includeItems) {
+        return page(null, null, after, limit, includeItems);
     }
     
     public Optional<Order> getOrderById(Long id) {
         return orderRepository.findById(id);
     }
     
-    public List<Order> getOrdersByCustomer(Long customerId) {
-        return orderRepository.findByCustomerId(customerId);
+    public OrderPage<?> getOrdersByCustomer(Long customerId, String after, Integer limit, boolean includeItems) {
+        return page(customerId, null, after, limit, includeItems);
+    }
+    
+    /**
+     * Returns a customer's order totals from the incrementally maintained summary, without
+     * reading their order history. A customer without orders gets an all-zero summary.
+     */
+    public CustomerOrderSummary getCustomerOrderSummary(Long customerId) {
+        return orderRepository.findCustomerOrderSummary(customerId)
+                .orElseGet(() -> CustomerOrderSummary.empty(customerId));
     }
     
-    public List<Order> getOrdersByStatus(OrderStatus status) {
-        return orderRepository.findByStatus(status);
+    public OrderPage<?> getOrdersByStatus(OrderStatus status, String after, Integer limit, boolean includeItems) {
+        return page(null, status, after, limit, includeItems);
     }
     
+    /**
+     * Creates an order at most once per idempotency key. A repeat of the same request within
+     * the idempotency window returns the order created the first time, without creating
+     * another order or publishing another OrderCreatedEvent. The key is claimed in the same
+     * transaction as the order, so concurrent retries wait for the first one and replay it.
+     *
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     */
+    @Transactional
+    public OrderCreation createOrder(String idempotencyKey, CreateOrderRequest request) {
+        if (idempotencyKey == null) {
+            return new OrderCreation(createOrder(request), false);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to "
+                    + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        
+        String fingerprint = OrderIdempotencyStore.fingerprint(request);
+        Optional<OrderCreation> replay = replay(idempotencyKey, fingerprint);
+        if (replay.isPresent()) {
+            return replay.get();
+        }
+        if (!idempotencyStore.claim(idempotencyKey, fingerprint)) {
+            // A concurrent request with the same key committed first
+            return replay(idempotencyKey, fingerprint).orElseThrow(() ->
+                    new IllegalStateException("Idempotency key " + idempotencyKey + " is claimed but has no order"));
+        }
+        
+        Order order = createOrder(request);
+        idempotencyStore.complete(idempotencyKey, fingerprint, order.id());
+        return new OrderCreation(order, false);
+    }
+    
+    /**
+     * Creates an order priced from the catalog. All products are looked up in one batch and
+     * totals are summed in minor units. A client-supplied unit price is optional, but if given
+     * it must match the current price, otherwise the order is rejected as stale.
+     */
     public Order createOrder(CreateOrderRequest request) {
-        BigDecimal totalAmount = request.items().stream()
-                .map(item -> item.unitPrice().multiply(BigDecimal.valueOf(item.quantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Set<OrderItem> requested = request.items();
+        if (requested == null || requested.isEmpty()) {
+            throw new IllegalArgumentException("Order must contain at least one item");
+        }
+        
+        Set<Long> productIds = new HashSet<>(requested.size() * 2);
+        for (OrderItem item : requested) {
+            if (item.productId() == null || item.quantity() == null || item.quantity() <= 0) {
+                throw new IllegalArgumentException("Every item needs a product and a positive quantity");
+            }
+            if (!productIds.add(item.productId())) {
+                throw new IllegalArgumentException("Product " + item.productId() + " is listed more than once");
+            }
+        }
+        
+        Map<Long, ProductPriceLookup.ProductPrice> prices = productPriceLookup.findPrices(productIds);
+        Set<OrderItem> items = new HashSet<>(requested.size() * 2);
+        List<Long> stale = new ArrayList<>();
+        long totalMinor = 0;
+        for (OrderItem item : requested) {
+            ProductPriceLookup.ProductPrice price = prices.get(item.productId());
+            if (price == null) {
+                throw new IllegalArgumentException("Product " + item.productId() + " does not exist");
+            }
+            if (item.unitPrice() != null && item.unitPrice().compareTo(price.price()) != 0) {
+                stale.add(item.productId());
+                continue;
+            }
+            long lineMinor = Math.multiplyExact(toMinorUnits(price.price()), item.quantity());
+            totalMinor = Math.addExact(totalMinor, lineMinor);
+            items.add(new OrderItem(item.productId(), price.name(), item.quantity(),
+                    price.price(), fromMinorUnits(lineMinor)));
+        }
+        if (!stale.isEmpty()) {
+            throw new StalePriceException(stale);
+        }
         
         Order newOrder = new Order(
                 null,
                 request.customerId(),
                 OrderStatus.PENDING,
-                totalAmount,
+                fromMinorUnits(totalMinor),
                 LocalDateTime.now(),
                 LocalDateTime.now(),
+                null,
                 request.shippingAddress(),
-                request.items()
+                items
         );
         
         Order savedOrder = orderRepository.save(newOrder);
-        eventPublisher.publishEvent(new OrderCreatedEvent(savedOrder.id(), savedOrder.customerId(), savedOrder.items()));
+        eventPublisher.publishEvent(new OrderCreatedEvent(savedOrder.id(), savedOrder.customerId(), savedOrder.items(),
+                savedOrder.totalAmount(), savedOrder.shippingAddress(), savedOrder.createdAt()));
         return savedOrder;
     }
     
+    /**
+     * Moves an order to a new status if the transition is legal from its current one. The
+     * change commits together with the work of the event's synchronous listeners, such as the
+     * customer summary and stock updates, so a failing listener leaves the order unchanged.
+     *
+     * @throws IllegalStatusTransitionException if the order can't move to the new status
+     * @throws OptimisticLockingFailureException if the order changed since it was read
+     */
+    @Transactional
     public Optional<Order> updateOrderStatus(Long id, OrderStatus newStatus) {
         return orderRepository.findById(id)
                 .map(existing -> {
-                    Order updated = existing.withStatus(newStatus);
-                    Order saved = orderRepository.save(updated);
+                    Order saved = transition(existing, newStatus);
                     publishStatusChangeEvent(saved, existing.status(), newStatus);
                     return saved;
                 });
     }
     
+    /**
+     * Moves many orders to one status with a single conditional UPDATE. Orders that don't
+     * exist or can't legally move to the status are left untouched and reported as such.
+     * One OrdersStatusChangedEvent covers every order that moved from the same previous status.
+     * Cancellation restores stock and notifies each customer, so it stays a per-order operation.
+     */
+    @Transactional
+    public BulkStatusUpdateResult updateOrderStatuses(Collection<Long> orderIds, OrderStatus newStatus) {
+        if (orderIds == null || orderIds.isEmpty() || newStatus == null) {
+            throw new IllegalArgumentException("Order ids and a status are required");
+        }
+        if (newStatus == OrderStatus.CANCELLED) {
+            throw new IllegalArgumentException("Orders must be cancelled one at a time");
+        }
+        Set<Long> ids = new LinkedHashSet<>(orderIds);
+        if (ids.size() > MAX_BULK_ORDERS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_ORDERS + " orders can be updated at once");
+        }
+        
+        // One statement per previous status, so each event says where its orders moved from
+        List<OrderSummary> updated = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (OrderStatus previousStatus : newStatus.predecessors()) {
+            List<OrderSummary> moved = orderRepository.transitionStatuses(ids, List.of(previousStatus), newStatus, now);
+            if (!moved.isEmpty()) {
+                eventPublisher.publishEvent(new OrdersStatusChangedEvent(previousStatus, newStatus, moved));
+                updated.addAll(moved);
+            }
+        }
+        
+        Set<Long> updatedIds = new HashSet<>(updated.size() * 2);
+        updated.forEach(summary -> updatedIds.add(summary.id()));
+        List<Long> remaining = ids.stream().filter(id -> !updatedIds.contains(id)).toList();
+        Map<Long, OrderStatus> remainingStatuses = remaining.isEmpty() ? Map.of() : orderRepository.findStatuses(remaining);
+        
+        List<BulkStatusUpdateResult.Outcome> outcomes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (updatedIds.contains(id)) {
+                outcomes.add(new BulkStatusUpdateResult.Outcome(id, BulkStatusUpdateResult.Result.UPDATED, newStatus));
+            } else {
+                OrderStatus current = remainingStatuses.get(id);
+                BulkStatusUpdateResult.Result result = current == null
+                        ? BulkStatusUpdateResult.Result.NOT_FOUND
+                        : BulkStatusUpdateResult.Result.ILLEGAL_TRANSITION;
+                outcomes.add(new BulkStatusUpdateResult.Outcome(id, result, current));
+            }
+        }
+        return new BulkStatusUpdateResult(newStatus, updated.size(), outcomes);
+    }
+    
+    /**
+     * Cancels one batch of PENDING orders created before the cutoff, in its own short
+     * transaction. One OrdersStatusChangedEvent covers the whole batch.
+     *
+     * @return the orders that were cancelled
+     */
+    @Transactional
+    public List<OrderSummary> cancelStalePendingOrders(LocalDateTime createdBefore, int batchSize) {
+        List<OrderSummary> cancelled = orderRepository.cancelStalePendingOrders(createdBefore, batchSize,
+                LocalDateTime.now());
+        if (!cancelled.isEmpty()) {
+            eventPublisher.publishEvent(new OrdersStatusChangedEvent(OrderStatus.PENDING, OrderStatus.CANCELLED, cancelled));
+        }
+        return cancelled;
+    }
+    
+    /**
+     * Returns the current status of each given order. Orders that don't exist are absent.
+     */
+    public Map<Long, OrderStatus> getOrderStatuses(Collection<Long> orderIds) {
+        return orderRepository.findStatuses(orderIds);
+    }
+    
+    @Transactional
     public void cancelOrder(Long id) {
         orderRepository.findById(id).ifPresent(order -> {
-            if (order.status() == OrderStatus.PENDING || order.status() == OrderStatus.CONFIRMED) {
-                Order cancelled = order.withStatus(OrderStatus.CANCELLED);
-                orderRepository.save(cancelled);
-                eventPublisher.publishEvent(new OrderCancelledEvent(id, order.customerId()));
-            }
+            transition(order, OrderStatus.CANCELLED);
+            eventPublisher.publishEvent(new OrderCancelledEvent(id, order.customerId(), order.items(), order.status()));
         });
     }
     
+    /**
+     * Serves the most recent orders from the in-memory buffer, and from the database only before
+     * it has been loaded. Limits are capped at the buffer's capacity, so the database fallback
+     * is bounded too.
+     */
     public List<Order> getRecentOrders(Integer limit) {
-        return orderRepository.findRecentOrders(limit != null ? limit : 10);
+        int count = limit == null || limit <= 0 ? DEFAULT_RECENT_ORDERS : Math.min(limit, recentOrderBuffer.capacity());
+        return recentOrderBuffer.recent(count)
+                .orElseGet(() -> orderRepository.findRecentOrders(count));
+    }
+    
+    private Optional<OrderCreation> replay(String idempotencyKey, String fingerprint) {
+        return idempotencyStore.find(idempotencyKey).map(record -> {
+            if (!record.requestFingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyReusedException(idempotencyKey);
+            }
+            return orderRepository.findById(record.orderId())
+                    .map(order -> new OrderCreation(order, true))
+                    .orElseThrow(() -> new IllegalStateException("Order " + record.orderId() + " no longer exists"));
+        });
+    }
+    
+    /**
+     * Reads one page of order summaries by {@code (created_at, id)} keyset. Items are only
+     * loaded when requested, with one query for the whole page.
+     */
+    private OrderPage<?> page(Long customerId, OrderStatus status, String after, Integer limit,
+                              boolean includeItems) {
+        int pageSize = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        OrderCursor cursor = after != null ? OrderCursor.decode(after) : null;
+        List<OrderSummary> summaries = orderRepository.findSummaries(customerId, status, cursor, pageSize);
+        
+        String nextCursor = null;
+        if (summaries.size() == pageSize) {
+            OrderSummary last = summaries.get(summaries.size() - 1);
+            nextCursor = new OrderCursor(last.createdAt(), last.id()).encode();
+        }
+        if (!includeItems) {
+            return new OrderPage<>(summaries, nextCursor);
+        }
+        
+        Map<Long, Set<OrderItem>> items = orderRepository.findItemsByOrderIds(
+                summaries.stream().map(OrderSummary::id).toList());
+        List<Order> orders = summaries.stream()
+                .map(summary -> summary.withItems(items.getOrDefault(summary.id(), Set.of())))
+                .toList();
+        return new OrderPage<>(orders, nextCursor);
+    }
+    
+    /**
+     * Changes only the status row of an order. Saving the aggregate instead would delete and
+     * reinsert every order_items row just to change orders.status. The update is conditional
+     * on the version that was read, so a concurrent change fails fast instead of being
+     * overwritten and no row lock is held between the read and the write.
+     */
+    private Order transition(Order order, OrderStatus newStatus) {
+        if (!order.status().canTransitionTo(newStatus)) {
+            throw new IllegalStatusTransitionException(order.id(), order.status(), newStatus);
+        }
+        Order updated = order.transitionedTo(newStatus);
+        int changed = orderRepository.transitionStatus(order.id(), order.status(), newStatus,
+                order.version(), updated.updatedAt());
+        if (changed == 0) {
+            throw new OptimisticLockingFailureException("Order " + order.id() + " was modified concurrently");
+        }
+        return updated;
+    }
+    
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(MINOR_UNIT_SCALE).longValueExact();
+    }
+    
+    private static BigDecimal fromMinorUnits(long amount) {
+        return BigDecimal.valueOf(amount, MINOR_UNIT_SCALE);
     }
     
     private void publishStatusChangeEvent(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
         switch (newStatus) {
             case CONFIRMED -> eventPublisher.publishEvent(new OrderConfirmedEvent(order.id(), order.customerId()));
-            case PAID -> eventPublisher.publishEvent(new OrderPaidEvent(order.id(), order.customerId(), order.totalAmount()));
+            case PAID -> eventPublisher.publishEvent(new OrderPaidEvent(order.id(), order.customerId(), order.totalAmount(), oldStatus));
             case SHIPPED -> eventPublisher.publishEvent(new OrderShippedEvent(order.id(), order.customerId(), order.shippingAddress()));
             case DELIVERED -> eventPublisher.publishEvent(new OrderDeliveredEvent(order.id(), order.customerId()));
+            case CANCELLED -> eventPublisher.publishEvent(new OrderCancelledEvent(order.id(), order.customerId(), order.items(), oldStatus));
         }
     }
 }
\ No newline at end of file
@@ -1,10 +1,48 @@
 package com.negadras.modumart.orders;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public enum OrderStatus {
     PENDING,
     CONFIRMED,
     PAID,
     SHIPPED,
     DELIVERED,
-    CANCELLED
-}
\ No newline at end of file
+    CANCELLED;
+    
+    // Indexed by [from.ordinal()][to.ordinal()], built once so checks never allocate
+    private static final boolean[][] TRANSITIONS = new boolean[values().length][values().length];
+    private static final List<List<OrderStatus>> PREDECESSORS;
+    
+    static {
+        allow(PENDING, CONFIRMED, PAID, CANCELLED);
+        allow(CONFIRMED, PAID, CANCELLED);
+        allow(PAID, SHIPPED);
+        allow(SHIPPED, DELIVERED);
+        
+        List<List<OrderStatus>> predecessors = new ArrayList<>();
+        for (OrderStatus target : values()) {
+            predecessors.add(Arrays.stream(values()).filter(from -> from.canTransitionTo(target)).toList());
+        }
+        PREDECESSORS = List.copyOf(predecessors);
+    }
+    
+    private static void allow(OrderStatus from, OrderStatus... targets) {
+        for (OrderStatus target : targets) {
+            TRANSITIONS[from.ordinal()][target.ordinal()] = true;
+        }
+    }
+    
+    public boolean canTransitionTo(OrderStatus target) {
+        return TRANSITIONS[ordinal()][target.ordinal()];
+    }
+    
+    /**
+     * Returns the statuses an order may move to this one from.
+     */
+    public List<OrderStatus> predecessors() {
+        return PREDECESSORS.get(ordinal());
+    }
+}
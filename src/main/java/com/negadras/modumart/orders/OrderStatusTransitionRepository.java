@@ -0,0 +1,34 @@
+package com.negadras.modumart.orders;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based status transitions for many orders at once.
+ */
+public interface OrderStatusTransitionRepository {
+
+    /**
+     * Moves every given order that is currently in one of the {@code from} statuses to
+     * {@code to} in a single statement, without rewriting order items.
+     *
+     * @return the orders that were moved, as they are after the update
+     */
+    List<OrderSummary> transitionStatuses(Collection<Long> orderIds, Collection<OrderStatus> from, OrderStatus to,
+                                          LocalDateTime updatedAt);
+
+    /**
+     * Cancels up to {@code limit} of the oldest orders still PENDING that were created before the
+     * cutoff. Rows locked by concurrent transactions are skipped rather than waited on.
+     *
+     * @return the orders that were cancelled, as they are after the update
+     */
+    List<OrderSummary> cancelStalePendingOrders(LocalDateTime createdBefore, int limit, LocalDateTime updatedAt);
+
+    /**
+     * Returns the current status of each given order. Orders that don't exist are absent.
+     */
+    Map<Long, OrderStatus> findStatuses(Collection<Long> orderIds);
+}
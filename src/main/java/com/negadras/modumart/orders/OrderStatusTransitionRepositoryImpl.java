@@ -0,0 +1,70 @@
+package com.negadras.modumart.orders;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class OrderStatusTransitionRepositoryImpl implements OrderStatusTransitionRepository {
+
+    private static final String TRANSITION_STATUSES_SQL =
+            "UPDATE orders SET status = ?, version = version + 1, updated_at = ? " +
+            "WHERE id = ANY(?) AND status = ANY(?) " +
+            "RETURNING id, customer_id, status, total_amount, created_at, updated_at, version, shipping_address";
+
+    private static final String CANCEL_STALE_PENDING_ORDERS_SQL =
+            "UPDATE orders SET status = 'CANCELLED', version = version + 1, updated_at = ? " +
+            "WHERE id IN (SELECT id FROM orders WHERE status = 'PENDING' AND created_at < ? " +
+            "ORDER BY created_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, customer_id, status, total_amount, created_at, updated_at, version, shipping_address";
+
+    private static final String FIND_STATUSES_SQL =
+            "SELECT id, status FROM orders WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    OrderStatusTransitionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<OrderSummary> transitionStatuses(Collection<Long> orderIds, Collection<OrderStatus> from,
+                                                 OrderStatus to, LocalDateTime updatedAt) {
+        return jdbcTemplate.query(TRANSITION_STATUSES_SQL,
+                ps -> {
+                    ps.setString(1, to.name());
+                    ps.setTimestamp(2, Timestamp.valueOf(updatedAt));
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", orderIds.toArray()));
+                    ps.setArray(4, ps.getConnection().createArrayOf("varchar",
+                            from.stream().map(OrderStatus::name).toArray()));
+                },
+                OrderListingRepositoryImpl.SUMMARY_MAPPER);
+    }
+
+    @Override
+    public List<OrderSummary> cancelStalePendingOrders(LocalDateTime createdBefore, int limit,
+                                                      LocalDateTime updatedAt) {
+        return jdbcTemplate.query(CANCEL_STALE_PENDING_ORDERS_SQL,
+                ps -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(updatedAt));
+                    ps.setTimestamp(2, Timestamp.valueOf(createdBefore));
+                    ps.setInt(3, limit);
+                },
+                OrderListingRepositoryImpl.SUMMARY_MAPPER);
+    }
+
+    @Override
+    public Map<Long, OrderStatus> findStatuses(Collection<Long> orderIds) {
+        Map<Long, OrderStatus> statuses = new HashMap<>();
+        jdbcTemplate.query(FIND_STATUSES_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())),
+                rs -> {
+                    statuses.put(rs.getLong("id"), OrderStatus.valueOf(rs.getString("status")));
+                });
+        return statuses;
+    }
+}
@@ -0,0 +1,23 @@
+package com.negadras.modumart.orders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * An order without its items, as returned by the order listings.
+ */
+public record OrderSummary(
+        Long id,
+        Long customerId,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long version,
+        String shippingAddress
+) {
+    Order withItems(Set<OrderItem> items) {
+        return new Order(id, customerId, status, totalAmount, createdAt, updatedAt, version, shippingAddress, items);
+    }
+}
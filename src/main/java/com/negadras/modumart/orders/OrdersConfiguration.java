@@ -0,0 +1,119 @@
+package com.negadras.modumart.orders;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class OrdersConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.orders.idempotency")
+    public IdempotencyProperties idempotencyProperties() {
+        return new IdempotencyProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.orders.pending-expiry")
+    public PendingExpiryProperties pendingExpiryProperties() {
+        return new PendingExpiryProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.orders.recent")
+    public RecentOrdersProperties recentOrdersProperties() {
+        return new RecentOrdersProperties();
+    }
+
+    public static class IdempotencyProperties {
+        private Duration window = Duration.ofHours(24);
+        private long cacheSize = 100_000;
+        private Duration purgeInterval = Duration.ofHours(1);
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public long getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(long cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+
+        public Duration getPurgeInterval() {
+            return purgeInterval;
+        }
+
+        public void setPurgeInterval(Duration purgeInterval) {
+            this.purgeInterval = purgeInterval;
+        }
+    }
+
+    public static class PendingExpiryProperties {
+        private Duration maxAge = Duration.ofHours(24);
+        private Duration interval = Duration.ofMinutes(1);
+        private int batchSize = 500;
+        private int maxBatchesPerRun = 100;
+
+        public Duration getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+
+        public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+    }
+
+    public static class RecentOrdersProperties {
+        private int bufferSize = 1000;
+        private Duration reloadInterval = Duration.ofSeconds(30);
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public Duration getReloadInterval() {
+            return reloadInterval;
+        }
+
+        public void setReloadInterval(Duration reloadInterval) {
+            this.reloadInterval = reloadInterval;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.negadras.modumart.orders;
+
+import java.util.List;
+
+/**
+ * Published once for a bulk status update, listing every order that moved from
+ * {@code previousStatus} to {@code status}.
+ */
+public record OrdersStatusChangedEvent(OrderStatus previousStatus, OrderStatus status, List<OrderSummary> orders) {
+}
@@ -0,0 +1,72 @@
+package com.negadras.modumart.orders;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancels orders that are still PENDING after the configured age. Orders are cancelled in
+ * bounded batches, each in its own short transaction, and rows locked by live order traffic
+ * are skipped so the job never waits on them. A run stops at the first short batch or after
+ * the configured number of batches, leaving any remaining backlog to the next run.
+ */
+@Component
+public class PendingOrderExpiryJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingOrderExpiryJob.class);
+
+    private final OrderService orderService;
+    private final OrdersConfiguration.PendingExpiryProperties properties;
+    private final Counter expiredOrders;
+    private final Timer batchTimer;
+    private final AtomicLong lastRunExpired = new AtomicLong();
+
+    public PendingOrderExpiryJob(OrderService orderService, OrdersConfiguration.PendingExpiryProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.properties = properties;
+        this.expiredOrders = Counter.builder("modumart.orders.pending.expired")
+                .description("PENDING orders cancelled for exceeding their maximum age")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("modumart.orders.pending.expiry.batch")
+                .description("Time taken to cancel one batch of stale PENDING orders")
+                .register(meterRegistry);
+        Gauge.builder("modumart.orders.pending.expiry.last-run", lastRunExpired, AtomicLong::get)
+                .description("PENDING orders cancelled by the most recent expiry run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.orders.pending-expiry.interval:PT1M}")
+    public void expireStalePendingOrders() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getMaxAge());
+        int batchSize = properties.getBatchSize();
+        long expired = 0;
+        int batches = 0;
+        try {
+            List<OrderSummary> cancelled;
+            do {
+                cancelled = batchTimer.record(() -> orderService.cancelStalePendingOrders(cutoff, batchSize));
+                expiredOrders.increment(cancelled.size());
+                expired += cancelled.size();
+                batches++;
+            } while (cancelled.size() == batchSize && batches < properties.getMaxBatchesPerRun());
+        } catch (DataAccessException e) {
+            // Committed batches stay cancelled; the rest is picked up by the next run
+            logger.error("Failed to expire stale pending orders: {}", e.getMessage());
+        }
+        lastRunExpired.set(expired);
+        if (expired > 0) {
+            logger.info("Cancelled {} pending orders created before {} in {} batches", expired, cutoff, batches);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.negadras.modumart.orders;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Current product prices used to price new orders on the server.
+ *
+ * Declared here and implemented by the catalog module, so orders can look prices up
+ * without depending on catalog.
+ */
+public interface ProductPriceLookup {
+
+    /**
+     * Looks up all given products at once. Products that don't exist are absent from the result.
+     */
+    Map<Long, ProductPrice> findPrices(Collection<Long> productIds);
+
+    record ProductPrice(Long productId, String name, BigDecimal price) {
+    }
+}
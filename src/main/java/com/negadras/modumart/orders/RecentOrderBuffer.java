@@ -0,0 +1,211 @@
+package com.negadras.modumart.orders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded in-memory ring buffer of the most recently created orders, so the recent orders
+ * view is served without querying the database.
+ *
+ * Orders enter the buffer from OrderCreatedEvent and their status follows the module's
+ * status events, applied once the change has committed. When the buffer is full the oldest
+ * entry is overwritten. The buffer is loaded from the database once the application has
+ * started; until then, and for limits larger than the buffer, callers fall back to the
+ * database.
+ *
+ * Events only cover this node's changes, so the buffer is reloaded from the database on a
+ * fixed schedule to pick up orders created or changed on other nodes. Changes that arrive
+ * while a reload reads the database are replayed on top of it.
+ */
+@Component
+public class RecentOrderBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentOrderBuffer.class);
+
+    private static final Comparator<Order> NEWEST_FIRST = Comparator
+            .comparing(Order::createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Order::id, Comparator.reverseOrder());
+
+    private final OrderRepository orderRepository;
+    private final Order[] slots;
+    private final Map<Long, Integer> slotsByOrderId;
+    private int next;
+    private List<Runnable> changesDuringLoad;
+    private volatile boolean loaded;
+
+    public RecentOrderBuffer(OrderRepository orderRepository,
+                             OrdersConfiguration.RecentOrdersProperties properties) {
+        this.orderRepository = orderRepository;
+        this.slots = new Order[properties.getBufferSize()];
+        this.slotsByOrderId = new HashMap<>(properties.getBufferSize() * 2);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        synchronized (this) {
+            if (changesDuringLoad != null) {
+                return;
+            }
+            changesDuringLoad = new ArrayList<>();
+        }
+        List<Order> recent;
+        try {
+            recent = orderRepository.findRecentOrders(slots.length);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringLoad = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            Arrays.fill(slots, null);
+            slotsByOrderId.clear();
+            next = 0;
+            // Oldest first, so the newest orders are the last to be overwritten
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                put(recent.get(i));
+            }
+            // The query may have read an order before or after a concurrent change; replaying
+            // the change is idempotent either way
+            List<Runnable> changes = changesDuringLoad;
+            changesDuringLoad = null;
+            changes.forEach(Runnable::run);
+        }
+        if (!loaded) {
+            loaded = true;
+            logger.info("Loaded {} recent orders into the buffer", recent.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.orders.recent.reload-interval:PT30S}",
+               initialDelayString = "${modumart.orders.recent.reload-interval:PT30S}")
+    public void scheduledReload() {
+        load();
+    }
+
+    /**
+     * Returns the number of orders the buffer holds at most.
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Returns up to {@code limit} of the most recent orders, newest first, or empty if the
+     * buffer can't answer and the database has to be queried instead.
+     */
+    public Optional<List<Order>> recent(int limit) {
+        if (!loaded || limit > slots.length) {
+            return Optional.empty();
+        }
+        Order[] snapshot;
+        synchronized (this) {
+            snapshot = slots.clone();
+        }
+        return Optional.of(Arrays.stream(snapshot)
+                .filter(Objects::nonNull)
+                .sorted(NEWEST_FIRST)
+                .limit(Math.max(limit, 0))
+                .toList());
+    }
+
+    @EventListener
+    public void handleOrderCreated(OrderCreatedEvent event) {
+        Order order = new Order(event.orderId(), event.customerId(), OrderStatus.PENDING, event.totalAmount(),
+                event.createdAt(), event.createdAt(), 0L, event.shippingAddress(), event.items());
+        afterCommit(() -> add(order));
+    }
+
+    @EventListener
+    public void handleOrderConfirmed(OrderConfirmedEvent event) {
+        afterCommit(() -> update(event.orderId(), order -> order.transitionedTo(OrderStatus.CONFIRMED)));
+    }
+
+    @EventListener
+    public void handleOrderPaid(OrderPaidEvent event) {
+        afterCommit(() -> update(event.orderId(), order -> order.transitionedTo(OrderStatus.PAID)));
+    }
+
+    @EventListener
+    public void handleOrderShipped(OrderShippedEvent event) {
+        afterCommit(() -> update(event.orderId(), order -> order.transitionedTo(OrderStatus.SHIPPED)));
+    }
+
+    @EventListener
+    public void handleOrderDelivered(OrderDeliveredEvent event) {
+        afterCommit(() -> update(event.orderId(), order -> order.transitionedTo(OrderStatus.DELIVERED)));
+    }
+
+    @EventListener
+    public void handleOrderCancelled(OrderCancelledEvent event) {
+        afterCommit(() -> update(event.orderId(), order -> order.transitionedTo(OrderStatus.CANCELLED)));
+    }
+
+    @EventListener
+    public void handleOrdersStatusChanged(OrdersStatusChangedEvent event) {
+        afterCommit(() -> event.orders().forEach(summary ->
+                update(summary.id(), order -> summary.withItems(order.items()))));
+    }
+
+    private synchronized void apply(Runnable change) {
+        change.run();
+        if (changesDuringLoad != null) {
+            changesDuringLoad.add(change);
+        }
+    }
+
+    private void add(Order order) {
+        Integer slot = slotsByOrderId.get(order.id());
+        if (slot != null) {
+            slots[slot] = order;
+            return;
+        }
+        put(order);
+    }
+
+    private void update(Long orderId, UnaryOperator<Order> change) {
+        Integer slot = slotsByOrderId.get(orderId);
+        if (slot != null) {
+            slots[slot] = change.apply(slots[slot]);
+        }
+    }
+
+    private void put(Order order) {
+        Order evicted = slots[next];
+        if (evicted != null) {
+            slotsByOrderId.remove(evicted.id());
+        }
+        slots[next] = order;
+        slotsByOrderId.put(order.id(), next);
+        next = (next + 1) % slots.length;
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+}
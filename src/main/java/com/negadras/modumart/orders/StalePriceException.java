@@ -0,0 +1,20 @@
+package com.negadras.modumart.orders;
+
+import java.util.List;
+
+/**
+ * Thrown when an order was submitted with unit prices that no longer match the catalog.
+ */
+public class StalePriceException extends RuntimeException {
+
+    private final List<Long> productIds;
+
+    public StalePriceException(List<Long> productIds) {
+        super("Prices have changed for products " + productIds);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -4,8 +4,10 @@
  * This module handles:
  * - Order creation and management
  * - Order status tracking (PENDING, CONFIRMED, PAID, SHIPPED, DELIVERED, CANCELLED)
- * - Order items and pricing calculations
- * - Customer order history
+ * - Server-side order pricing against current catalog prices
+ * - Customer order history, with per-customer totals kept up to date from order events
+ * - In-memory buffer of the most recent orders
+ * - Scheduled cancellation of orders left PENDING past a configurable age
  * 
  * Events published:
  * - OrderCreatedEvent: When a new order is created
@@ -14,5 +16,7 @@
  * - OrderShippedEvent: When order is shipped
  * - OrderDeliveredEvent: When order is delivered
  * - OrderCancelledEvent: When order is cancelled
+ * - OrdersStatusChangedEvent: When a bulk status update or the pending order expiry
+ *   moves a batch of orders
  */
 package com.negadras.modumart.orders;
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.negadras.modumart.payments;
+
+/**
+ * Thrown when a payment is not in a status that allows the requested operation.
+ */
+public class IllegalPaymentStateException extends RuntimeException {
+
+    public IllegalPaymentStateException(Long paymentId, PaymentStatus status) {
+        super("Payment " + paymentId + " is " + status);
+    }
+}
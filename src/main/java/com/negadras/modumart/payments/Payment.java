@@ -17,21 +17,28 @@ public record Payment(
         String transactionId,
         LocalDateTime createdAt,
         LocalDateTime updatedAt,
-        String failureReason
+        String failureReason,
+        Integer attempt,
+        String idempotencyKey,
+        Long claimVersion
 ) {
     public Payment withId(Long id) {
-        return new Payment(id, orderId, customerId, amount, status, paymentMethod, transactionId, createdAt, updatedAt, failureReason);
+        return new Payment(id, orderId, customerId, amount, status, paymentMethod, transactionId, createdAt, updatedAt, failureReason, attempt, idempotencyKey, claimVersion);
     }
     
     public Payment withStatus(PaymentStatus status) {
-        return new Payment(id, orderId, customerId, amount, status, paymentMethod, transactionId, createdAt, LocalDateTime.now(), failureReason);
+        return new Payment(id, orderId, customerId, amount, status, paymentMethod, transactionId, createdAt, LocalDateTime.now(), failureReason, attempt, idempotencyKey, claimVersion);
     }
     
     public Payment withTransactionId(String transactionId) {
-        return new Payment(id, orderId, customerId, amount, status, paymentMethod, transactionId, createdAt, LocalDateTime.now(), failureReason);
+        return new Payment(id, orderId, customerId, amount, status, paymentMethod, transactionId, createdAt, LocalDateTime.now(), failureReason, attempt, idempotencyKey, claimVersion);
     }
     
     public Payment withFailureReason(String failureReason) {
-        return new Payment(id, orderId, customerId, amount, PaymentStatus.FAILED, paymentMethod, transactionId, createdAt, LocalDateTime.now(), failureReason);
+        return new Payment(id, orderId, customerId, amount, PaymentStatus.FAILED, paymentMethod, transactionId, createdAt, LocalDateTime.now(), failureReason, attempt, idempotencyKey, claimVersion);
+    }
+    
+    public Payment withCancellationReason(String cancellationReason) {
+        return new Payment(id, orderId, customerId, amount, PaymentStatus.CANCELLED, paymentMethod, transactionId, createdAt, LocalDateTime.now(), cancellationReason, attempt, idempotencyKey, claimVersion);
     }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package com.negadras.modumart.payments;
+
+import com.negadras.modumart.orders.OrderService;
+import com.negadras.modumart.orders.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures PENDING payments in the background. Each chunk is claimed by moving it to
+ * PROCESSING in one statement that skips rows locked by other nodes, so several nodes can
+ * share the workload without claiming the same payment. The chunk is then charged through the
+ * gateway in parallel, and the results are written back in JDBC batches. One
+ * PaymentsCapturedEvent per chunk is published after that write has committed, so a failing
+ * listener cannot roll back charges that were already made.
+ *
+ * Only payments of orders still awaiting payment (PENDING or CONFIRMED) are charged; the
+ * others are CANCELLED. As for directly processed payments, only a declined charge fails a
+ * payment. A charge refused before reaching the provider, by the open circuit breaker or the
+ * concurrent call limit, returns the payment to PENDING and ends the run, so a struggling
+ * provider isn't sent the rest of the backlog. A charge whose outcome is unknown leaves the
+ * payment PROCESSING.
+ *
+ * Payments left PROCESSING past the claim timeout, for example by a node that stopped
+ * mid-chunk or a charge that timed out, are claimed again and charged with the same
+ * idempotency key. A run stops at the first short chunk or after the configured number of
+ * chunks, leaving any remaining backlog to the next run.
+ */
+@Component
+public class PaymentCaptureJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentCaptureJob.class);
+
+    private static final Set<OrderStatus> PAYABLE_ORDER_STATUSES = EnumSet.of(OrderStatus.PENDING, OrderStatus.CONFIRMED);
+
+    private final PaymentService paymentService;
+    private final OrderService orderService;
+    private final PaymentGateway paymentGateway;
+    private final PaymentsConfiguration.CaptureProperties properties;
+    private final PaymentsConfiguration.ProcessingProperties processingProperties;
+    private final ExecutorService chargeExecutor;
+    private final Counter completedPayments;
+    private final Counter failedPayments;
+    private final Counter cancelledPayments;
+    private final Timer chunkTimer;
+    private final AtomicLong lastRunCaptured = new AtomicLong();
+
+    public PaymentCaptureJob(PaymentService paymentService, OrderService orderService, PaymentGateway paymentGateway,
+                             PaymentsConfiguration.CaptureProperties properties,
+                             PaymentsConfiguration.ProcessingProperties processingProperties,
+                             MeterRegistry meterRegistry) {
+        this.paymentService = paymentService;
+        this.orderService = orderService;
+        this.paymentGateway = paymentGateway;
+        this.properties = properties;
+        this.processingProperties = processingProperties;
+        this.chargeExecutor = Executors.newFixedThreadPool(properties.getParallelism(),
+                Thread.ofPlatform().name("payment-capture-", 0).daemon().factory());
+        this.completedPayments = Counter.builder("modumart.payments.captured")
+                .description("Payments charged by the capture job")
+                .tag("outcome", "completed")
+                .register(meterRegistry);
+        this.failedPayments = Counter.builder("modumart.payments.captured")
+                .description("Payments charged by the capture job")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.cancelledPayments = Counter.builder("modumart.payments.captured")
+                .description("Payments charged by the capture job")
+                .tag("outcome", "cancelled")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("modumart.payments.capture.chunk")
+                .description("Time taken to claim, charge and record one chunk of payments")
+                .register(meterRegistry);
+        Gauge.builder("modumart.payments.capture.last-run", lastRunCaptured, AtomicLong::get)
+                .description("Payments captured by the most recent capture run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${modumart.payments.capture.interval:PT10S}")
+    public void capturePendingPayments() {
+        int chunkSize = properties.getChunkSize();
+        long captured = 0;
+        int chunks = 0;
+        try {
+            Chunk chunk;
+            do {
+                chunk = chunkTimer.record(() -> captureChunk(chunkSize));
+                captured += chunk.claimed();
+                chunks++;
+            } while (chunk.claimed() == chunkSize && chunk.rejected() == 0 && chunks < properties.getMaxChunksPerRun());
+        } catch (DataAccessException e) {
+            // Claimed payments stay PROCESSING and are claimed again after the claim timeout
+            logger.error("Failed to capture pending payments: {}", e.getMessage());
+        }
+        lastRunCaptured.set(captured);
+        if (captured > 0) {
+            logger.info("Captured {} payments in {} chunks", captured, chunks);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        chargeExecutor.shutdownNow();
+    }
+
+    private Chunk captureChunk(int chunkSize) {
+        LocalDateTime claimedAt = LocalDateTime.now();
+        List<Payment> claimed = paymentService.claimPaymentsForCapture(
+                claimedAt.minus(properties.getMinAge()),
+                claimedAt.minus(processingProperties.getClaimTimeout()),
+                chunkSize, claimedAt);
+        if (claimed.isEmpty()) {
+            return new Chunk(0, 0);
+        }
+
+        Map<Long, OrderStatus> orderStatuses = orderService.getOrderStatuses(
+                claimed.stream().map(Payment::orderId).toList());
+        List<CompletableFuture<Optional<Payment>>> charges = claimed.stream()
+                .map(payment -> {
+                    OrderStatus orderStatus = orderStatuses.get(payment.orderId());
+                    if (!PAYABLE_ORDER_STATUSES.contains(orderStatus)) {
+                        return CompletableFuture.completedFuture(Optional.of(payment.withCancellationReason(
+                                orderStatus == null ? "Order not found" : "Order is " + orderStatus)));
+                    }
+                    return CompletableFuture.supplyAsync(() -> charge(payment), chargeExecutor);
+                })
+                .toList();
+        // Payments whose outcome is unknown are left out, so they stay PROCESSING
+        List<Payment> results = charges.stream()
+                .map(CompletableFuture::join)
+                .flatMap(Optional::stream)
+                .toList();
+
+        List<Payment> saved = paymentService.saveCaptureResults(results);
+        completedPayments.increment(count(saved, PaymentStatus.COMPLETED));
+        failedPayments.increment(count(saved, PaymentStatus.FAILED));
+        cancelledPayments.increment(count(saved, PaymentStatus.CANCELLED));
+        long rejected = count(results, PaymentStatus.PENDING);
+        if (rejected > 0) {
+            logger.warn("{} payments returned to PENDING, the gateway refused to charge them", rejected);
+        }
+        if (results.size() < claimed.size()) {
+            logger.warn("{} payments left PROCESSING until their claim times out, their outcome is unknown",
+                    claimed.size() - results.size());
+        }
+        if (saved.size() < results.size()) {
+            logger.warn("{} captured payments were claimed by another node before their results were saved",
+                    results.size() - saved.size());
+        }
+        return new Chunk(claimed.size(), rejected);
+    }
+
+    /**
+     * Charges a claimed payment. A payment the gateway refused to charge is returned to
+     * PENDING, and one whose outcome is unknown is left out.
+     */
+    private Optional<Payment> charge(Payment payment) {
+        PaymentGateway.ChargeResult result;
+        try {
+            result = paymentGateway.charge(payment);
+        } catch (PaymentGatewayRejectedException e) {
+            return Optional.of(payment.withStatus(PaymentStatus.PENDING));
+        } catch (RuntimeException e) {
+            logger.warn("Payment {} left PROCESSING until its claim times out, its outcome is unknown: {}",
+                    payment.id(), e.getMessage());
+            return Optional.empty();
+        }
+        return Optional.of(result.approved()
+                ? payment.withStatus(PaymentStatus.COMPLETED).withTransactionId(result.transactionId())
+                : payment.withFailureReason(result.failureReason()));
+    }
+
+    private static long count(List<Payment> payments, PaymentStatus status) {
+        return payments.stream().filter(payment -> payment.status() == status).count();
+    }
+
+    private record Chunk(int claimed, long rejected) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.negadras.modumart.payments;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Set-based claims and result writes for the batch payment capture job.
+ */
+public interface PaymentCaptureRepository {
+
+    /**
+     * Claims up to {@code limit} payments for capture by moving them to PROCESSING in one
+     * statement, each under a new claim version. PENDING payments created before {@code createdBefore} are claimed, as well as
+     * PROCESSING payments whose claim was last renewed before {@code claimedBefore} and is
+     * presumed abandoned. Rows locked by another transaction are skipped, so concurrent
+     * callers never claim the same payment.
+     *
+     * @return the claimed payments, in PROCESSING status
+     */
+    List<Payment> claimForCapture(LocalDateTime createdBefore, LocalDateTime claimedBefore, int limit,
+                                  LocalDateTime claimedAt);
+
+    /**
+     * Writes the outcome of captured payments in JDBC batches, including those returned to
+     * PENDING or CANCELLED without being charged. A payment is only written while it is still
+     * PROCESSING under the claim version it was read with.
+     *
+     * @return the payments that were written
+     */
+    List<Payment> saveCaptureResults(List<Payment> payments);
+}
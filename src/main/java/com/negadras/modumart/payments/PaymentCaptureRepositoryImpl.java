@@ -0,0 +1,84 @@
+package com.negadras.modumart.payments;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+class PaymentCaptureRepositoryImpl implements PaymentCaptureRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String CLAIM_FOR_CAPTURE_SQL =
+            "UPDATE payments SET status = 'PROCESSING', claim_version = claim_version + 1, updated_at = ? " +
+            "WHERE id IN (SELECT id FROM payments " +
+            "WHERE (status = 'PENDING' AND created_at < ?) OR (status = 'PROCESSING' AND updated_at < ?) " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, order_id, customer_id, amount, status, payment_method, transaction_id, " +
+            "created_at, updated_at, failure_reason, attempt, idempotency_key, claim_version";
+
+    private static final String SAVE_CAPTURE_RESULT_SQL =
+            "UPDATE payments SET status = ?, transaction_id = ?, failure_reason = ?, updated_at = ? " +
+            "WHERE id = ? AND status = 'PROCESSING' AND claim_version = ?";
+
+    static final RowMapper<Payment> PAYMENT_MAPPER = (rs, rowNum) -> new Payment(
+            rs.getLong("id"),
+            rs.getLong("order_id"),
+            rs.getLong("customer_id"),
+            rs.getBigDecimal("amount"),
+            PaymentStatus.valueOf(rs.getString("status")),
+            PaymentMethod.valueOf(rs.getString("payment_method")),
+            rs.getString("transaction_id"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime(),
+            rs.getString("failure_reason"),
+            rs.getInt("attempt"),
+            rs.getString("idempotency_key"),
+            rs.getLong("claim_version"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PaymentCaptureRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Payment> claimForCapture(LocalDateTime createdBefore, LocalDateTime claimedBefore, int limit,
+                                         LocalDateTime claimedAt) {
+        return jdbcTemplate.query(CLAIM_FOR_CAPTURE_SQL,
+                ps -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(claimedAt));
+                    ps.setTimestamp(2, Timestamp.valueOf(createdBefore));
+                    ps.setTimestamp(3, Timestamp.valueOf(claimedBefore));
+                    ps.setInt(4, limit);
+                },
+                PAYMENT_MAPPER);
+    }
+
+    @Override
+    public List<Payment> saveCaptureResults(List<Payment> payments) {
+        int[][] counts = jdbcTemplate.batchUpdate(SAVE_CAPTURE_RESULT_SQL, payments, BATCH_SIZE, (ps, payment) -> {
+            ps.setString(1, payment.status().name());
+            ps.setString(2, payment.transactionId());
+            ps.setString(3, payment.failureReason());
+            ps.setTimestamp(4, Timestamp.valueOf(payment.updatedAt()));
+            ps.setLong(5, payment.id());
+            ps.setLong(6, payment.claimVersion());
+        });
+
+        List<Payment> saved = new ArrayList<>(payments.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    saved.add(payments.get(index));
+                }
+                index++;
+            }
+        }
+        return saved;
+    }
+}
@@ -1,9 +1,12 @@
 package com.negadras.modumart.payments;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -42,14 +45,20 @@ public class PaymentController {
     
     @PostMapping
     public ResponseEntity<Payment> initiatePayment(@RequestBody PaymentRequest request) {
-        Payment payment = paymentService.initiatePayment(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(payment);
+        PaymentInitiationRepository.InitiatedPayment initiated = paymentService.initiatePayment(request);
+        if (!initiated.created()) {
+            return ResponseEntity.ok(initiated.payment());
+        }
+        return ResponseEntity.created(URI.create("/api/payments/" + initiated.payment().id()))
+                .body(initiated.payment());
     }
     
     @PutMapping("/{id}/process")
     public ResponseEntity<Payment> processPayment(@PathVariable Long id) {
         return paymentService.processPayment(id)
-                .map(payment -> ResponseEntity.ok(payment))
+                .map(payment -> ResponseEntity.accepted()
+                        .location(URI.create("/api/payments/" + payment.id()))
+                        .body(payment))
                 .orElse(ResponseEntity.notFound().build());
     }
     
@@ -64,4 +73,16 @@ public class PaymentController {
     public List<Payment> getRecentPayments(@RequestParam(defaultValue = "10") Integer limit) {
         return paymentService.getRecentPayments(limit);
     }
+    
+    @ExceptionHandler(IllegalPaymentStateException.class)
+    public ProblemDetail handleIllegalPaymentState(IllegalPaymentStateException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+    }
+    
+    @ExceptionHandler(PaymentQueueFullException.class)
+    public ResponseEntity<ProblemDetail> handlePaymentQueueFull(PaymentQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.negadras.modumart.payments;
+
+/**
+ * External payment provider that charges payments. Charges are keyed by the payment's
+ * idempotency key, one per order attempt, so charging the same payment again, for example
+ * after a restart, doesn't charge it twice.
+ */
+public interface PaymentGateway {
+
+    ChargeResult charge(Payment payment);
+
+    record ChargeResult(boolean approved, String transactionId, String failureReason) {
+
+        public static ChargeResult approved(String transactionId) {
+            return new ChargeResult(true, transactionId, null);
+        }
+
+        public static ChargeResult declined(String failureReason) {
+            return new ChargeResult(false, null, failureReason);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.negadras.modumart.payments;
+
+/**
+ * Thrown when a payment gateway call failed without an answer about the payment. Unlike a
+ * declined charge, it says nothing about the payment itself. Unless it is a
+ * {@link PaymentGatewayRejectedException}, the provider may have charged the payment.
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
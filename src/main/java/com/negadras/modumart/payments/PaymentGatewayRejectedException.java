@@ -0,0 +1,13 @@
+package com.negadras.modumart.payments;
+
+/**
+ * Thrown when a charge was refused before reaching the payment provider, because its circuit
+ * breaker is open or it is at its concurrent call limit. The payment was not charged, so it
+ * can safely be charged again later.
+ */
+public class PaymentGatewayRejectedException extends PaymentGatewayException {
+
+    public PaymentGatewayRejectedException(String message) {
+        super(message);
+    }
+}
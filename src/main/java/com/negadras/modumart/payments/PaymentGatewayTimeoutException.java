@@ -0,0 +1,13 @@
+package com.negadras.modumart.payments;
+
+/**
+ * Thrown when the payment provider did not answer in time. The charge may or may not have
+ * gone through, so the payment must be charged again with the same idempotency key rather
+ * than failed or charged afresh.
+ */
+public class PaymentGatewayTimeoutException extends PaymentGatewayException {
+
+    public PaymentGatewayTimeoutException(String message) {
+        super(message);
+    }
+}
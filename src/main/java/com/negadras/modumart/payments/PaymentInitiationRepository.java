@@ -0,0 +1,17 @@
+package com.negadras.modumart.payments;
+
+/**
+ * Idempotent payment initiation, keyed by order.
+ */
+public interface PaymentInitiationRepository {
+
+    /**
+     * Inserts the payment as the next attempt for its order, or returns the order's current
+     * attempt instead if that one has not FAILED, in one statement. Concurrent calls for the
+     * same order all return the same payment, exactly one of them as created.
+     */
+    InitiatedPayment initiate(Payment payment);
+
+    record InitiatedPayment(Payment payment, boolean created) {
+    }
+}
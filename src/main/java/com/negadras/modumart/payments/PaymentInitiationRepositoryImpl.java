@@ -0,0 +1,54 @@
+package com.negadras.modumart.payments;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+
+class PaymentInitiationRepositoryImpl implements PaymentInitiationRepository {
+
+    private static final String PAYMENT_COLUMNS =
+            "id, order_id, customer_id, amount, status, payment_method, transaction_id, " +
+            "created_at, updated_at, failure_reason, attempt, idempotency_key, claim_version";
+
+    // A concurrent insert of the same attempt is returned through the no-op ON CONFLICT update,
+    // which, unlike DO NOTHING, returns the row even though this statement's snapshot can't see it
+    private static final String INITIATE_SQL =
+            "WITH latest AS (" +
+            "SELECT " + PAYMENT_COLUMNS + " FROM payments WHERE order_id = ? ORDER BY attempt DESC LIMIT 1" +
+            "), inserted AS (" +
+            "INSERT INTO payments (order_id, customer_id, amount, status, payment_method, attempt, " +
+            "idempotency_key, created_at, updated_at) " +
+            "SELECT n.order_id, ?, ?, 'PENDING', ?, n.attempt, " +
+            "'order-' || n.order_id || '-attempt-' || n.attempt, ?, ? " +
+            "FROM (SELECT ?::bigint AS order_id, coalesce((SELECT attempt FROM latest), 0) + 1 AS attempt) n " +
+            "WHERE NOT EXISTS (SELECT 1 FROM latest WHERE status <> 'FAILED') " +
+            "ON CONFLICT (order_id, attempt) DO UPDATE SET attempt = EXCLUDED.attempt " +
+            "RETURNING " + PAYMENT_COLUMNS + ", xmax = 0 AS created" +
+            ") " +
+            "SELECT * FROM inserted " +
+            "UNION ALL " +
+            "SELECT " + PAYMENT_COLUMNS + ", false FROM latest WHERE NOT EXISTS (SELECT 1 FROM inserted)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PaymentInitiationRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public InitiatedPayment initiate(Payment payment) {
+        return jdbcTemplate.query(INITIATE_SQL,
+                ps -> {
+                    ps.setLong(1, payment.orderId());
+                    ps.setLong(2, payment.customerId());
+                    ps.setBigDecimal(3, payment.amount());
+                    ps.setString(4, payment.paymentMethod().name());
+                    ps.setTimestamp(5, Timestamp.valueOf(payment.createdAt()));
+                    ps.setTimestamp(6, Timestamp.valueOf(payment.updatedAt()));
+                    ps.setLong(7, payment.orderId());
+                },
+                (rs, rowNum) -> new InitiatedPayment(
+                        PaymentCaptureRepositoryImpl.PAYMENT_MAPPER.mapRow(rs, rowNum), rs.getBoolean("created")))
+                .getFirst();
+    }
+}
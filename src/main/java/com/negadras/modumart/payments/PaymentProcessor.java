@@ -0,0 +1,163 @@
+package com.negadras.modumart.payments;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Charges accepted payments off the request thread. Payment ids wait in a bounded queue that
+ * a fixed pool of workers drains, one gateway call at a time per worker. When the queue is
+ * full new payments are refused rather than queued without limit, so callers get immediate
+ * back-pressure. Workers run on platform threads, or on virtual threads if configured.
+ *
+ * A queued payment is only charged while its claim is younger than the claim timeout. Older
+ * claims, including those left behind by a node that stopped, are taken over by the
+ * {@link PaymentCaptureJob}, so the same payment is never charged by two nodes.
+ *
+ * Only a declined charge fails a payment. A charge the gateway refused without calling the
+ * provider returns the payment to PENDING, to be charged again by the capture job. A charge
+ * whose outcome is unknown, because the call timed out or errored, leaves the payment
+ * PROCESSING, so the capture job charges it again under the same idempotency key once its
+ * claim times out, and the provider answers with the original outcome.
+ */
+@Component
+public class PaymentProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentProcessor.class);
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentGateway paymentGateway;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentsConfiguration.ProcessingProperties properties;
+    private final BlockingQueue<Long> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public PaymentProcessor(PaymentRepository paymentRepository, PaymentGateway paymentGateway,
+                            ApplicationEventPublisher eventPublisher,
+                            PaymentsConfiguration.ProcessingProperties properties, MeterRegistry meterRegistry) {
+        this.paymentRepository = paymentRepository;
+        this.paymentGateway = paymentGateway;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        Gauge.builder("modumart.payments.queue.size", queue, BlockingQueue::size)
+                .description("Payments accepted and waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ThreadFactory threads = properties.isVirtualThreads()
+                ? Thread.ofVirtual().name("payment-worker-", 0).factory()
+                : Thread.ofPlatform().name("payment-worker-", 0).daemon().factory();
+        running = true;
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            Thread worker = threads.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+        logger.info("Started {} payment workers", workers.size());
+    }
+
+    /**
+     * Queues a payment that has been moved to PROCESSING.
+     *
+     * @return false if the queue is full
+     */
+    public boolean submit(Long paymentId) {
+        return running && queue.offer(paymentId);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        if (!queue.isEmpty()) {
+            // Left PROCESSING, so the capture job claims them once their claim times out
+            logger.warn("Stopped with {} payments still queued", queue.size());
+        }
+    }
+
+    private void work() {
+        while (running) {
+            Long paymentId;
+            try {
+                paymentId = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (paymentId != null) {
+                try {
+                    process(paymentId);
+                } catch (RuntimeException e) {
+                    logger.error("Failed to process payment {}: {}", paymentId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void process(Long paymentId) {
+        Payment payment = paymentRepository.findById(paymentId)
+                .filter(found -> found.status() == PaymentStatus.PROCESSING)
+                .orElse(null);
+        if (payment == null) {
+            return;
+        }
+        if (payment.updatedAt().isBefore(LocalDateTime.now().minus(properties.getClaimTimeout()))) {
+            logger.warn("Skipping payment {}: its claim timed out and is left to the capture job", paymentId);
+            return;
+        }
+
+        PaymentGateway.ChargeResult result;
+        try {
+            result = paymentGateway.charge(payment);
+        } catch (PaymentGatewayRejectedException e) {
+            if (paymentRepository.releaseClaimed(paymentId, payment.claimVersion(), LocalDateTime.now())) {
+                logger.warn("Payment {} returned to PENDING: {}", paymentId, e.getMessage());
+            }
+            return;
+        } catch (RuntimeException e) {
+            logger.warn("Payment {} left PROCESSING until its claim times out, its outcome is unknown: {}",
+                    paymentId, e.getMessage());
+            return;
+        }
+
+        // Written only under the claim the payment was charged with, so a payment claimed again
+        // by the capture job is never finished twice
+        LocalDateTime now = LocalDateTime.now();
+        if (result.approved()) {
+            if (!paymentRepository.completeClaimed(paymentId, payment.claimVersion(), result.transactionId(), now)) {
+                logger.warn("Payment {} was finished or claimed by another node, dropping its result", paymentId);
+                return;
+            }
+            eventPublisher.publishEvent(new PaymentCompletedEvent(payment.id(), payment.orderId(),
+                    payment.customerId(), payment.amount()));
+            logger.info("Payment completed successfully: {} with transaction ID: {}", paymentId, result.transactionId());
+        } else {
+            if (!paymentRepository.failClaimed(paymentId, payment.claimVersion(), result.failureReason(), now)) {
+                logger.warn("Payment {} was finished or claimed by another node, dropping its result", paymentId);
+                return;
+            }
+            eventPublisher.publishEvent(new PaymentFailedEvent(payment.id(), payment.orderId(), result.failureReason()));
+            logger.warn("Payment failed: {} - {}", paymentId, result.failureReason());
+        }
+    }
+}
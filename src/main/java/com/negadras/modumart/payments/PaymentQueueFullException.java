@@ -0,0 +1,11 @@
+package com.negadras.modumart.payments;
+
+/**
+ * Thrown when the payment processing queue is full and a payment can't be accepted right now.
+ */
+public class PaymentQueueFullException extends RuntimeException {
+
+    public PaymentQueueFullException(Long paymentId) {
+        super("Payment processing queue is full, payment " + paymentId + " was not accepted");
+    }
+}
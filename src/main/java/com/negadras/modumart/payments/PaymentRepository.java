@@ -1,17 +1,22 @@
 package com.negadras.modumart.payments;
 
+import org.springframework.data.jdbc.repository.query.Modifying;
 import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PaymentRepository extends CrudRepository<Payment, Long> {
+public interface PaymentRepository extends CrudRepository<Payment, Long>, PaymentCaptureRepository,
+        PaymentInitiationRepository {
     
-    Optional<Payment> findByOrderId(Long orderId);
+    @Query("SELECT * FROM payments WHERE order_id = :orderId ORDER BY attempt DESC LIMIT 1")
+    Optional<Payment> findLatestByOrderId(@Param("orderId") Long orderId);
     
     List<Payment> findByCustomerId(Long customerId);
     
@@ -24,4 +29,70 @@ public interface PaymentRepository extends CrudRepository<Payment, Long> {
     List<Payment> findRecentPayments(@Param("limit") Integer limit);
     
     Optional<Payment> findByTransactionId(String transactionId);
+    
+    /**
+     * Moves a payment from one status to another, only if it is still in the expected status.
+     *
+     * @return false if the payment was not in {@code from}, so another caller won the transition
+     */
+    @Modifying
+    @Query("UPDATE payments SET status = :to, updated_at = :updatedAt WHERE id = :id AND status = :from")
+    boolean transitionStatus(@Param("id") Long id, @Param("from") PaymentStatus from, @Param("to") PaymentStatus to,
+                             @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Claims a PENDING payment for processing, starting a new claim version.
+     *
+     * @return false if the payment was not PENDING, so another caller claimed it first
+     */
+    @Modifying
+    @Query("UPDATE payments SET status = 'PROCESSING', claim_version = claim_version + 1, updated_at = :updatedAt " +
+           "WHERE id = :id AND status = 'PENDING'")
+    boolean claim(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Completes a PROCESSING payment, only if it still carries the claim it was charged under.
+     *
+     * @return false if the payment was finished or claimed again in the meantime
+     */
+    @Modifying
+    @Query("UPDATE payments SET status = 'COMPLETED', transaction_id = :transactionId, updated_at = :updatedAt " +
+           "WHERE id = :id AND status = 'PROCESSING' AND claim_version = :claimVersion")
+    boolean completeClaimed(@Param("id") Long id, @Param("claimVersion") Long claimVersion,
+                            @Param("transactionId") String transactionId, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Fails a PROCESSING payment, only if it still carries the claim it was charged under.
+     *
+     * @return false if the payment was finished or claimed again in the meantime
+     */
+    @Modifying
+    @Query("UPDATE payments SET status = 'FAILED', failure_reason = :failureReason, updated_at = :updatedAt " +
+           "WHERE id = :id AND status = 'PROCESSING' AND claim_version = :claimVersion")
+    boolean failClaimed(@Param("id") Long id, @Param("claimVersion") Long claimVersion,
+                        @Param("failureReason") String failureReason, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Returns a PROCESSING payment that was never charged to PENDING, only if it still carries
+     * the claim it was read under.
+     *
+     * @return false if the payment was finished or claimed again in the meantime
+     */
+    @Modifying
+    @Query("UPDATE payments SET status = 'PENDING', updated_at = :updatedAt " +
+           "WHERE id = :id AND status = 'PROCESSING' AND claim_version = :claimVersion")
+    boolean releaseClaimed(@Param("id") Long id, @Param("claimVersion") Long claimVersion,
+                           @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Cancels the PENDING payments of the given orders in one statement, so they are never
+     * charged. Payments already claimed for processing are left to finish.
+     *
+     * @return the number of payments cancelled
+     */
+    @Modifying
+    @Query("UPDATE payments SET status = 'CANCELLED', failure_reason = :reason, updated_at = :updatedAt " +
+           "WHERE order_id IN (:orderIds) AND status = 'PENDING'")
+    int cancelPendingByOrderIds(@Param("orderIds") Collection<Long> orderIds, @Param("reason") String reason,
+                                @Param("updatedAt") LocalDateTime updatedAt);
 }
\ No newline at end of file
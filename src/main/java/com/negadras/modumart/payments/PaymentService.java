@@ -4,11 +4,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 public class PaymentService {
@@ -16,11 +17,16 @@ public class PaymentService {
     private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
     
     private final PaymentRepository paymentRepository;
+    private final PaymentProcessor paymentProcessor;
     private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
     
-    public PaymentService(PaymentRepository paymentRepository, ApplicationEventPublisher eventPublisher) {
+    public PaymentService(PaymentRepository paymentRepository, PaymentProcessor paymentProcessor,
+                          ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
         this.paymentRepository = paymentRepository;
+        this.paymentProcessor = paymentProcessor;
         this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
     }
     
     public List<Payment> getAllPayments() {
@@ -32,16 +38,23 @@ public class PaymentService {
     }
     
     public Optional<Payment> getPaymentByOrderId(Long orderId) {
-        return paymentRepository.findByOrderId(orderId);
+        return paymentRepository.findLatestByOrderId(orderId);
     }
     
     public List<Payment> getPaymentsByCustomer(Long customerId) {
         return paymentRepository.findByCustomerId(customerId);
     }
     
-    public Payment initiatePayment(PaymentRequest request) {
+    /**
+     * Initiates a payment for an order, unless the order already has a payment that has not
+     * FAILED, in which case that payment is returned instead. Retried or concurrent requests for
+     * the same order therefore share one payment, and a new attempt is only created once the
+     * previous one has failed.
+     */
+    public PaymentInitiationRepository.InitiatedPayment initiatePayment(PaymentRequest request) {
         logger.info("Initiating payment for order: {}", request.orderId());
         
+        LocalDateTime now = LocalDateTime.now();
         Payment payment = new Payment(
                 null,
                 request.orderId(),
@@ -50,72 +63,127 @@ public class PaymentService {
                 PaymentStatus.PENDING,
                 request.paymentMethod(),
                 null,
-                LocalDateTime.now(),
-                LocalDateTime.now(),
-                null
+                now,
+                now,
+                null,
+                null,
+                null,
+                0L
         );
         
-        Payment savedPayment = paymentRepository.save(payment);
-        eventPublisher.publishEvent(new PaymentInitiatedEvent(savedPayment.id(), savedPayment.orderId(), savedPayment.amount()));
+        PaymentInitiationRepository.InitiatedPayment initiated = paymentRepository.initiate(payment);
+        Payment savedPayment = initiated.payment();
+        if (initiated.created()) {
+            eventPublisher.publishEvent(new PaymentInitiatedEvent(savedPayment.id(), savedPayment.orderId(), savedPayment.amount()));
+        } else {
+            logger.info("Order {} already has payment {} (attempt {}), returning it", request.orderId(),
+                    savedPayment.id(), savedPayment.attempt());
+        }
         
-        return savedPayment;
+        return initiated;
     }
     
+    /**
+     * Accepts a PENDING payment for processing and returns it as PROCESSING. The gateway is
+     * called later by a {@link PaymentProcessor} worker, which completes or fails the payment.
+     *
+     * @throws IllegalPaymentStateException if the payment is not PENDING
+     * @throws PaymentQueueFullException if no more payments can be queued right now
+     */
     public Optional<Payment> processPayment(Long paymentId) {
         return paymentRepository.findById(paymentId)
                 .map(payment -> {
-                    logger.info("Processing payment: {}", paymentId);
-                    Payment processing = payment.withStatus(PaymentStatus.PROCESSING);
-                    Payment saved = paymentRepository.save(processing);
-                    
-                    // Simulate payment processing
-                    boolean success = simulatePaymentProcessing();
-                    
-                    if (success) {
-                        String transactionId = generateTransactionId();
-                        Payment completed = saved.withStatus(PaymentStatus.COMPLETED).withTransactionId(transactionId);
-                        Payment finalPayment = paymentRepository.save(completed);
-                        
-                        eventPublisher.publishEvent(new PaymentCompletedEvent(finalPayment.id(), finalPayment.orderId(), finalPayment.customerId(), finalPayment.amount()));
-                        logger.info("Payment completed successfully: {} with transaction ID: {}", paymentId, transactionId);
-                        
-                        return finalPayment;
-                    } else {
-                        String failureReason = "Payment processing failed - insufficient funds";
-                        Payment failed = saved.withFailureReason(failureReason);
-                        Payment finalPayment = paymentRepository.save(failed);
-                        
-                        eventPublisher.publishEvent(new PaymentFailedEvent(finalPayment.id(), finalPayment.orderId(), failureReason));
-                        logger.warn("Payment failed: {} - {}", paymentId, failureReason);
-                        
-                        return finalPayment;
+                    LocalDateTime now = LocalDateTime.now();
+                    // Claimed before queueing, so a repeated request can't charge the payment twice
+                    if (!paymentRepository.claim(paymentId, now)) {
+                        PaymentStatus current = paymentRepository.findById(paymentId)
+                                .map(Payment::status)
+                                .orElse(payment.status());
+                        throw new IllegalPaymentStateException(paymentId, current);
                     }
+                    if (!paymentProcessor.submit(paymentId)) {
+                        paymentRepository.transitionStatus(paymentId, PaymentStatus.PROCESSING,
+                                PaymentStatus.PENDING, LocalDateTime.now());
+                        throw new PaymentQueueFullException(paymentId);
+                    }
+                    logger.info("Payment {} queued for processing", paymentId);
+                    return payment.withStatus(PaymentStatus.PROCESSING);
                 });
     }
     
+    /**
+     * Claims the next chunk of payments for the capture job, skipping any locked by another
+     * node. See {@link PaymentCaptureRepository#claimForCapture}.
+     */
+    public List<Payment> claimPaymentsForCapture(LocalDateTime createdBefore, LocalDateTime claimedBefore,
+                                                 int limit, LocalDateTime claimedAt) {
+        return paymentRepository.claimForCapture(createdBefore, claimedBefore, limit, claimedAt);
+    }
+    
+    /**
+     * Writes the outcome of a captured chunk and, once the write has committed, publishes one
+     * PaymentsCapturedEvent for the payments that were charged. A failing listener is logged
+     * rather than thrown, as the charges are final by then and must not be made again.
+     * Payments whose claim was taken over in the meantime are left to their new owner.
+     *
+     * @return the payments that were written
+     */
+    public List<Payment> saveCaptureResults(List<Payment> results) {
+        List<Payment> saved = transactionTemplate.execute(status -> paymentRepository.saveCaptureResults(results));
+        if (saved.isEmpty()) {
+            return saved;
+        }
+        
+        List<PaymentCompletedEvent> completed = saved.stream()
+                .filter(payment -> payment.status() == PaymentStatus.COMPLETED)
+                .map(payment -> new PaymentCompletedEvent(payment.id(), payment.orderId(), payment.customerId(),
+                        payment.amount()))
+                .toList();
+        List<PaymentFailedEvent> failed = saved.stream()
+                .filter(payment -> payment.status() == PaymentStatus.FAILED)
+                .map(payment -> new PaymentFailedEvent(payment.id(), payment.orderId(), payment.failureReason()))
+                .toList();
+        // Payments returned to PENDING or CANCELLED were never charged
+        if (!completed.isEmpty() || !failed.isEmpty()) {
+            try {
+                eventPublisher.publishEvent(new PaymentsCapturedEvent(completed, failed));
+            } catch (RuntimeException e) {
+                logger.error("Failed to publish the capture of {} payments: {}", completed.size() + failed.size(),
+                        e.getMessage());
+            }
+        }
+        return saved;
+    }
+    
+    /**
+     * Cancels the PENDING payments of the given orders, e.g. because the orders were
+     * cancelled, so neither the capture job nor a later processing request charges them.
+     *
+     * @return the number of payments cancelled
+     */
+    public int cancelPendingPayments(Collection<Long> orderIds, String reason) {
+        int cancelled = paymentRepository.cancelPendingByOrderIds(orderIds, reason, LocalDateTime.now());
+        if (cancelled > 0) {
+            logger.info("Cancelled {} pending payments: {}", cancelled, reason);
+        }
+        return cancelled;
+    }
+    
     public Optional<Payment> refundPayment(Long paymentId) {
         return paymentRepository.findById(paymentId)
                 .filter(payment -> payment.status() == PaymentStatus.COMPLETED)
+                .filter(payment -> paymentRepository.transitionStatus(paymentId, PaymentStatus.COMPLETED,
+                        PaymentStatus.REFUNDED, LocalDateTime.now()))
                 .map(payment -> {
-                    logger.info("Processing refund for payment: {}", paymentId);
+                    logger.info("Refunded payment: {}", paymentId);
                     Payment refunded = payment.withStatus(PaymentStatus.REFUNDED);
-                    Payment saved = paymentRepository.save(refunded);
                     
-                    eventPublisher.publishEvent(new PaymentRefundedEvent(saved.id(), saved.orderId(), saved.customerId(), saved.amount()));
-                    return saved;
+                    eventPublisher.publishEvent(new PaymentRefundedEvent(refunded.id(), refunded.orderId(), refunded.customerId(), refunded.amount()));
+                    return refunded;
                 });
     }
     
     public List<Payment> getRecentPayments(Integer limit) {
         return paymentRepository.findRecentPayments(limit != null ? limit : 10);
     }
-    
-    private boolean simulatePaymentProcessing() {
-        // Simulate 90% success rate for demo
-        return Math.random() > 0.1;
-    }
-    
-    private String generateTransactionId() {
-        return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
 }
\ No newline at end of file
@@ -5,5 +5,6 @@ public enum PaymentStatus {
     PROCESSING,
     COMPLETED,
     FAILED,
+    CANCELLED,
     REFUNDED
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.negadras.modumart.payments;
+
+import java.util.List;
+
+/**
+ * Published once per chunk of payments charged by the capture job, in place of one
+ * PaymentCompletedEvent or PaymentFailedEvent per payment.
+ */
+public record PaymentsCapturedEvent(List<PaymentCompletedEvent> completed, List<PaymentFailedEvent> failed) {
+}
@@ -0,0 +1,304 @@
+package com.negadras.modumart.payments;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class PaymentsConfiguration {
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.payments.processing")
+    public ProcessingProperties processingProperties() {
+        return new ProcessingProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.payments.capture")
+    public CaptureProperties captureProperties() {
+        return new CaptureProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.payments.gateway")
+    public GatewayProperties gatewayProperties() {
+        return new GatewayProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "modumart.payments.gateway.simulated")
+    public SimulatedGatewayProperties simulatedGatewayProperties() {
+        return new SimulatedGatewayProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "modumart.payments.gateway.type", havingValue = "simulated", matchIfMissing = true)
+    public PaymentGateway simulatedPaymentGateway(SimulatedGatewayProperties simulated, GatewayProperties properties,
+                                                  MeterRegistry meterRegistry) {
+        return new ResilientPaymentGateway("simulated", new SimulatedPaymentGateway(simulated), properties,
+                meterRegistry);
+    }
+
+    public static class ProcessingProperties {
+        private int workers = 8;
+        private int queueCapacity = 1000;
+        private boolean virtualThreads = false;
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+        private Duration claimTimeout = Duration.ofMinutes(15);
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+
+        public Duration getShutdownTimeout() {
+            return shutdownTimeout;
+        }
+
+        public void setShutdownTimeout(Duration shutdownTimeout) {
+            this.shutdownTimeout = shutdownTimeout;
+        }
+
+        public Duration getClaimTimeout() {
+            return claimTimeout;
+        }
+
+        public void setClaimTimeout(Duration claimTimeout) {
+            this.claimTimeout = claimTimeout;
+        }
+    }
+
+    public static class CaptureProperties {
+        private Duration interval = Duration.ofSeconds(10);
+        private Duration minAge = Duration.ofSeconds(30);
+        private int chunkSize = 100;
+        private int maxChunksPerRun = 20;
+        private int parallelism = 10;
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public Duration getMinAge() {
+            return minAge;
+        }
+
+        public void setMinAge(Duration minAge) {
+            this.minAge = minAge;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getMaxChunksPerRun() {
+            return maxChunksPerRun;
+        }
+
+        public void setMaxChunksPerRun(int maxChunksPerRun) {
+            this.maxChunksPerRun = maxChunksPerRun;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    public static class GatewayProperties {
+        private String type = "simulated";
+        private Duration timeout = Duration.ofSeconds(2);
+        private int maxConcurrentCalls = 20;
+        private final CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getMaxConcurrentCalls() {
+            return maxConcurrentCalls;
+        }
+
+        public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        public CircuitBreakerProperties getCircuitBreaker() {
+            return circuitBreaker;
+        }
+
+        public static class CircuitBreakerProperties {
+            private int slidingWindowSize = 20;
+            private int minimumCalls = 10;
+            private int failureRateThreshold = 50;
+            private Duration openDuration = Duration.ofSeconds(30);
+            private int halfOpenCalls = 3;
+
+            public int getSlidingWindowSize() {
+                return slidingWindowSize;
+            }
+
+            public void setSlidingWindowSize(int slidingWindowSize) {
+                this.slidingWindowSize = slidingWindowSize;
+            }
+
+            public int getMinimumCalls() {
+                return minimumCalls;
+            }
+
+            public void setMinimumCalls(int minimumCalls) {
+                this.minimumCalls = minimumCalls;
+            }
+
+            public int getFailureRateThreshold() {
+                return failureRateThreshold;
+            }
+
+            public void setFailureRateThreshold(int failureRateThreshold) {
+                this.failureRateThreshold = failureRateThreshold;
+            }
+
+            public Duration getOpenDuration() {
+                return openDuration;
+            }
+
+            public void setOpenDuration(Duration openDuration) {
+                this.openDuration = openDuration;
+            }
+
+            public int getHalfOpenCalls() {
+                return halfOpenCalls;
+            }
+
+            public void setHalfOpenCalls(int halfOpenCalls) {
+                this.halfOpenCalls = halfOpenCalls;
+            }
+        }
+    }
+
+    public static class SimulatedGatewayProperties {
+
+        public enum LatencyDistribution {
+            FIXED, UNIFORM, EXPONENTIAL
+        }
+
+        private LatencyDistribution latencyDistribution = LatencyDistribution.UNIFORM;
+        private Duration minLatency = Duration.ofMillis(50);
+        private Duration meanLatency = Duration.ofMillis(100);
+        private Duration maxLatency = Duration.ofMillis(200);
+        private double stallRate = 0.0;
+        private Duration stallDuration = Duration.ofSeconds(5);
+        private double declineRate = 0.1;
+        private double errorRate = 0.0;
+
+        public LatencyDistribution getLatencyDistribution() {
+            return latencyDistribution;
+        }
+
+        public void setLatencyDistribution(LatencyDistribution latencyDistribution) {
+            this.latencyDistribution = latencyDistribution;
+        }
+
+        public Duration getMinLatency() {
+            return minLatency;
+        }
+
+        public void setMinLatency(Duration minLatency) {
+            this.minLatency = minLatency;
+        }
+
+        public Duration getMeanLatency() {
+            return meanLatency;
+        }
+
+        public void setMeanLatency(Duration meanLatency) {
+            this.meanLatency = meanLatency;
+        }
+
+        public Duration getMaxLatency() {
+            return maxLatency;
+        }
+
+        public void setMaxLatency(Duration maxLatency) {
+            this.maxLatency = maxLatency;
+        }
+
+        public double getStallRate() {
+            return stallRate;
+        }
+
+        public void setStallRate(double stallRate) {
+            this.stallRate = stallRate;
+        }
+
+        public Duration getStallDuration() {
+            return stallDuration;
+        }
+
+        public void setStallDuration(Duration stallDuration) {
+            this.stallDuration = stallDuration;
+        }
+
+        public double getDeclineRate() {
+            return declineRate;
+        }
+
+        public void setDeclineRate(double declineRate) {
+            this.declineRate = declineRate;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public void setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+        }
+    }
+}
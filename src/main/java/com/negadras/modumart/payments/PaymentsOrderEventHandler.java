@@ -1,32 +1,47 @@
 package com.negadras.modumart.payments;
 
+import com.negadras.modumart.orders.OrderCancelledEvent;
 import com.negadras.modumart.orders.OrderConfirmedEvent;
+import com.negadras.modumart.orders.OrderStatus;
+import com.negadras.modumart.orders.OrderSummary;
+import com.negadras.modumart.orders.OrdersStatusChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class PaymentsOrderEventHandler {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(PaymentsOrderEventHandler.class);
-    
+
+    static final String ORDER_CANCELLED_REASON = "Order cancelled";
+
     private final PaymentService paymentService;
-    
+
     public PaymentsOrderEventHandler(PaymentService paymentService) {
         this.paymentService = paymentService;
     }
-    
+
     @EventListener
     public void handleOrderConfirmed(OrderConfirmedEvent event) {
-        logger.info("Processing order confirmed event for order: {}", event.orderId());
-        
-        // In a real system, we would fetch order details to get the amount
-        // For demo purposes, we'll create a payment record that can be processed later
-        logger.info("Order {} is confirmed and ready for payment processing", event.orderId());
-        
-        // The payment initiation would typically be triggered by the customer
-        // through the UI, but we log that the order is ready for payment
-        logger.info("Payment can now be initiated for order: {}", event.orderId());
+        // The payment is initiated by the customer; PaymentCaptureJob then charges it if it
+        // isn't processed directly, as long as the order is still awaiting payment
+        logger.info("Order {} is confirmed and ready for payment", event.orderId());
+    }
+
+    @EventListener
+    public void handleOrderCancelled(OrderCancelledEvent event) {
+        paymentService.cancelPendingPayments(List.of(event.orderId()), ORDER_CANCELLED_REASON);
+    }
+
+    @EventListener
+    public void handleOrdersStatusChanged(OrdersStatusChangedEvent event) {
+        if (event.status() == OrderStatus.CANCELLED) {
+            List<Long> orderIds = event.orders().stream().map(OrderSummary::id).toList();
+            paymentService.cancelPendingPayments(orderIds, ORDER_CANCELLED_REASON);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package com.negadras.modumart.payments;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Guards calls to one payment gateway so a slow or failing provider can't tie up the payment
+ * workers.
+ *
+ * Every charge runs on its own virtual thread and is abandoned after the configured timeout.
+ * A bulkhead caps the calls in flight, counting abandoned calls until they really return, and
+ * a {@link GatewayCircuitBreaker} fails calls fast while the provider keeps timing out or
+ * erroring. Declined charges are normal answers and don't count as failures. Call latencies are
+ * recorded as histograms, tagged with the gateway name and outcome.
+ *
+ * Calls refused by the circuit breaker or the bulkhead throw
+ * {@link PaymentGatewayRejectedException}, since the provider never saw them. Abandoned calls
+ * throw {@link PaymentGatewayTimeoutException} and failed calls {@link PaymentGatewayException},
+ * since the provider may have charged the payment anyway.
+ */
+class ResilientPaymentGateway implements PaymentGateway {
+
+    private static final String METER_NAME = "modumart.payments.gateway.calls";
+
+    private final String name;
+    private final PaymentGateway delegate;
+    private final Duration timeout;
+    private final Semaphore bulkhead;
+    private final GatewayCircuitBreaker circuitBreaker;
+    private final Map<String, Timer> timers;
+
+    ResilientPaymentGateway(String name, PaymentGateway delegate, PaymentsConfiguration.GatewayProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.name = name;
+        this.delegate = delegate;
+        this.timeout = properties.getTimeout();
+        this.bulkhead = new Semaphore(properties.getMaxConcurrentCalls());
+        this.circuitBreaker = new GatewayCircuitBreaker(properties.getCircuitBreaker());
+        this.timers = Stream.of("approved", "declined", "error", "timeout", "rejected")
+                .collect(Collectors.toMap(Function.identity(), outcome -> Timer.builder(METER_NAME)
+                        .description("Payment gateway call latency")
+                        .tag("gateway", name)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)));
+        Gauge.builder("modumart.payments.gateway.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("gateway", name)
+                .register(meterRegistry);
+        Gauge.builder("modumart.payments.gateway.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Calls the gateway can still take before the bulkhead rejects them")
+                .tag("gateway", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ChargeResult charge(Payment payment) {
+        if (!circuitBreaker.tryAcquire()) {
+            timers.get("rejected").record(Duration.ZERO);
+            throw new PaymentGatewayRejectedException(name + " gateway circuit breaker is open");
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.release();
+            timers.get("rejected").record(Duration.ZERO);
+            throw new PaymentGatewayRejectedException(name + " gateway is at its concurrent call limit");
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<ChargeResult> call = new CompletableFuture<>();
+        Thread caller = Thread.ofVirtual().name("payment-gateway-" + name).start(() -> {
+            try {
+                call.complete(delegate.charge(payment));
+            } catch (Throwable e) {
+                call.completeExceptionally(e);
+            } finally {
+                bulkhead.release();
+            }
+        });
+
+        try {
+            ChargeResult result = call.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+            record(result.approved() ? "approved" : "declined", start);
+            return result;
+        } catch (TimeoutException e) {
+            caller.interrupt();
+            circuitBreaker.onFailure();
+            record("timeout", start);
+            throw new PaymentGatewayTimeoutException(name + " gateway timed out after " + timeout.toMillis() + " ms");
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            record("error", start);
+            throw new PaymentGatewayException(name + " gateway failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            caller.interrupt();
+            circuitBreaker.release();
+            throw new PaymentGatewayException(name + " gateway call was interrupted", e);
+        }
+    }
+
+    GatewayCircuitBreaker.State circuitState() {
+        return circuitBreaker.state();
+    }
+
+    private void record(String outcome, long start) {
+        timers.get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,57 @@
+package com.negadras.modumart.payments;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for a payment provider, for development and load tests. Every charge takes
+ * a latency drawn from the configured distribution, and is declined or fails at the configured
+ * rates. A share of calls can stall for much longer, to rehearse a provider slowing down.
+ */
+class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final PaymentsConfiguration.SimulatedGatewayProperties properties;
+
+    SimulatedPaymentGateway(PaymentsConfiguration.SimulatedGatewayProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public ChargeResult charge(Payment payment) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        sleep(latency(random));
+        if (random.nextDouble() < properties.getErrorRate()) {
+            throw new IllegalStateException("Simulated gateway error");
+        }
+        if (random.nextDouble() < properties.getDeclineRate()) {
+            return ChargeResult.declined("Payment processing failed - insufficient funds");
+        }
+        return ChargeResult.approved("TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+    }
+
+    private Duration latency(ThreadLocalRandom random) {
+        if (random.nextDouble() < properties.getStallRate()) {
+            return properties.getStallDuration();
+        }
+        long min = properties.getMinLatency().toMillis();
+        long max = Math.max(min, properties.getMaxLatency().toMillis());
+        long millis = switch (properties.getLatencyDistribution()) {
+            case FIXED -> properties.getMeanLatency().toMillis();
+            case UNIFORM -> min == max ? min : random.nextLong(min, max + 1);
+            // Shifted by the minimum so the mean is meanLatency, and capped at the maximum
+            case EXPONENTIAL -> Math.min(max, min + Math.round(-Math.log(1 - random.nextDouble())
+                    * Math.max(0, properties.getMeanLatency().toMillis() - min)));
+        };
+        return Duration.ofMillis(millis);
+    }
+
+    private static void sleep(Duration latency) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while charging", e);
+        }
+    }
+}
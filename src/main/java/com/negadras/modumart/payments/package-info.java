@@ -2,9 +2,12 @@
  * Payments module for handling payment processing in the e-commerce platform.
  * 
  * This module handles:
- * - Payment initiation and processing
+ * - Payment initiation and asynchronous processing by a bounded worker pool
+ * - Scheduled batch capture of PENDING payments, shared safely between nodes
+ * - Pluggable payment gateways, with a simulated gateway for development and load tests
+ * - Gateway call timeouts, a concurrency bulkhead and a circuit breaker around the provider
  * - Multiple payment methods (credit card, PayPal, etc.)
- * - Payment status tracking (PENDING, PROCESSING, COMPLETED, FAILED, REFUNDED)
+ * - Payment status tracking (PENDING, PROCESSING, COMPLETED, FAILED, CANCELLED, REFUNDED)
  * - Transaction ID generation and management
  * - Payment refunds
  * 
@@ -12,9 +15,12 @@
  * - PaymentInitiatedEvent: When a payment is initiated
  * - PaymentCompletedEvent: When payment processing succeeds
  * - PaymentFailedEvent: When payment processing fails
+ * - PaymentsCapturedEvent: When the results of a chunk charged by the capture job have committed
  * - PaymentRefundedEvent: When a payment is refunded
  * 
  * Events consumed:
  * - OrderConfirmedEvent: Indicates order is ready for payment
+ * - OrderCancelledEvent: Cancels the order's PENDING payment
+ * - OrdersStatusChangedEvent: Cancels the PENDING payments of orders cancelled in bulk
  */
 package com.negadras.modumart.payments;
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.negadras.modumart.shipping;
+
+import java.util.List;
+
+/**
+ * Set-based writes for shipments created in bulk.
+ */
+public interface ShipmentBatchRepository {
+
+    /**
+     * Inserts the given shipments, at most one per order, in one statement. Unlike
+     * {@code saveAll}, no aggregate lifecycle events are published per shipment.
+     *
+     * @return the shipments with their generated ids, in the given order
+     */
+    List<Shipment> insertAll(List<Shipment> shipments);
+}
@@ -0,0 +1,53 @@
+package com.negadras.modumart.shipping;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ShipmentBatchRepositoryImpl implements ShipmentBatchRepository {
+
+    private static final String INSERT_SHIPMENTS_SQL =
+            "INSERT INTO shipments (order_id, customer_id, shipping_address, status, carrier, created_at) " +
+            "SELECT * FROM unnest(?, ?, ?, ?, ?, ?) " +
+            "RETURNING id, order_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    ShipmentBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Shipment> insertAll(List<Shipment> shipments) {
+        if (shipments.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Long> idsByOrderId = new HashMap<>();
+        jdbcTemplate.query(INSERT_SHIPMENTS_SQL,
+                ps -> {
+                    Connection connection = ps.getConnection();
+                    ps.setArray(1, connection.createArrayOf("bigint",
+                            shipments.stream().map(Shipment::orderId).toArray()));
+                    ps.setArray(2, connection.createArrayOf("bigint",
+                            shipments.stream().map(Shipment::customerId).toArray()));
+                    ps.setArray(3, connection.createArrayOf("text",
+                            shipments.stream().map(Shipment::shippingAddress).toArray()));
+                    ps.setArray(4, connection.createArrayOf("varchar",
+                            shipments.stream().map(shipment -> shipment.status().name()).toArray()));
+                    ps.setArray(5, connection.createArrayOf("varchar",
+                            shipments.stream().map(shipment -> shipment.carrier().name()).toArray()));
+                    ps.setArray(6, connection.createArrayOf("timestamp",
+                            shipments.stream().map(shipment -> Timestamp.valueOf(shipment.createdAt())).toArray()));
+                },
+                rs -> {
+                    idsByOrderId.put(rs.getLong("order_id"), rs.getLong("id"));
+                });
+        return shipments.stream()
+                .map(shipment -> shipment.withId(idsByOrderId.get(shipment.orderId())))
+                .toList();
+    }
+}
@@ -9,7 +9,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ShipmentRepository extends CrudRepository<Shipment, Long> {
+public interface ShipmentRepository extends CrudRepository<Shipment, Long>, ShipmentBatchRepository {
     
     Optional<Shipment> findByOrderId(Long orderId);
     
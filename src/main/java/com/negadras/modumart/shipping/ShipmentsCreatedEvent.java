@@ -0,0 +1,10 @@
+package com.negadras.modumart.shipping;
+
+import java.util.List;
+
+/**
+ * Published once for shipments created in bulk, which start out PREPARING, in place of a
+ * ShipmentCreatedEvent and ShipmentPreparingEvent per shipment.
+ */
+public record ShipmentsCreatedEvent(List<ShipmentCreatedEvent> shipments) {
+}
@@ -1,11 +1,14 @@
 package com.negadras.modumart.shipping;
 
 import com.negadras.modumart.payments.PaymentCompletedEvent;
+import com.negadras.modumart.payments.PaymentsCapturedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class ShippingPaymentEventHandler {
     
@@ -40,4 +43,27 @@ public class ShippingPaymentEventHandler {
             logger.error("Failed to create shipment for order {}: {}", event.orderId(), e.getMessage());
         }
     }
+    
+    @EventListener
+    public void handlePaymentsCaptured(PaymentsCapturedEvent event) {
+        if (event.completed().isEmpty()) {
+            return;
+        }
+        logger.info("Processing payments captured event for {} completed payments", event.completed().size());
+        
+        List<ShipmentRequest> requests = event.completed().stream()
+                .map(payment -> new ShipmentRequest(
+                        payment.orderId(),
+                        payment.customerId(),
+                        "Default shipping address" // In real system, would fetch from order
+                ))
+                .toList();
+        
+        // Created in one batch, so a captured chunk doesn't fan out into per-shipment events
+        try {
+            shippingService.createPreparedShipments(requests);
+        } catch (Exception e) {
+            logger.error("Failed to create shipments for {} captured payments: {}", requests.size(), e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -4,11 +4,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ShippingService {
@@ -66,6 +70,43 @@ public class ShippingService {
         return savedShipment;
     }
     
+    /**
+     * Creates shipments for many orders at once, already PREPARING, and publishes a single
+     * ShipmentsCreatedEvent for them. Requests repeating an order are ignored.
+     */
+    @Transactional
+    public List<Shipment> createPreparedShipments(List<ShipmentRequest> requests) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Shipment> shipments = requests.stream()
+                .collect(Collectors.toMap(ShipmentRequest::orderId, Function.identity(), (first, repeated) -> first,
+                        LinkedHashMap::new))
+                .values().stream()
+                .map(request -> new Shipment(
+                        null,
+                        request.orderId(),
+                        request.customerId(),
+                        request.shippingAddress(),
+                        ShipmentStatus.PREPARING,
+                        selectCarrier(),
+                        null,
+                        now,
+                        null,
+                        null,
+                        null
+                ))
+                .toList();
+        if (shipments.isEmpty()) {
+            return shipments;
+        }
+        
+        logger.info("Creating {} prepared shipments", shipments.size());
+        List<Shipment> saved = shipmentRepository.insertAll(shipments);
+        eventPublisher.publishEvent(new ShipmentsCreatedEvent(saved.stream()
+                .map(shipment -> new ShipmentCreatedEvent(shipment.id(), shipment.orderId(), shipment.customerId()))
+                .toList()));
+        return saved;
+    }
+    
     public Optional<Shipment> prepareShipment(Long shipmentId) {
         return shipmentRepository.findById(shipmentId)
                 .map(shipment -> {
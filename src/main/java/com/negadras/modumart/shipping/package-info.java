@@ -10,6 +10,7 @@
  * 
  * Events published:
  * - ShipmentCreatedEvent: When a shipment is created
+ * - ShipmentsCreatedEvent: When shipments are created in bulk, already preparing
  * - ShipmentPreparingEvent: When shipment preparation begins
  * - ShipmentShippedEvent: When shipment is shipped with tracking
  * - ShipmentInTransitEvent: When shipment is in transit
@@ -19,5 +20,6 @@
  * 
  * Events consumed:
  * - PaymentCompletedEvent: Automatically creates and prepares shipment when payment completes
+ * - PaymentsCapturedEvent: Creates prepared shipments for a chunk of captured payments
  */
 package com.negadras.modumart.shipping;
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.negadras.modumart;
+
+import com.negadras.modumart.customers.Customer;
+import com.negadras.modumart.customers.CustomerService;
+import com.negadras.modumart.orders.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Base class for integration tests that need a real PostgreSQL database.
+ * The container is started once and shared by every subclass so the Spring
+ * test context cache stays valid. Tests are skipped when Docker is unavailable.
+ *
+ * The database is shared by every test, so fixtures create fresh rows rather than
+ * relying on a known state.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTests {
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configureDatasource(DynamicPropertyRegistry registry) {
+        postgres.start();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JdbcTemplate fixtureJdbcTemplate;
+
+    /**
+     * Registers a customer with a unique email address.
+     */
+    protected Long createCustomer() {
+        return customerService.createCustomer(new Customer(null, "Test", "Customer",
+                "customer-" + UUID.randomUUID() + "@example.com", null, null, null)).id();
+    }
+
+    /**
+     * Inserts a bare order row, without items, for tests that only need an order to refer to.
+     */
+    protected Long insertOrder(Long customerId, OrderStatus status, BigDecimal totalAmount) {
+        return fixtureJdbcTemplate.queryForObject(
+                "INSERT INTO orders (customer_id, status, total_amount, shipping_address) " +
+                "VALUES (?, ?, ?, 'Test address') RETURNING id", Long.class, customerId, status.name(), totalAmount);
+    }
+
+    /**
+     * Calls {@code task} from {@code threads} threads that are released at the same moment.
+     *
+     * @return the results, one per thread
+     */
+    protected static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<T> results = new ArrayList<>(threads);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<T>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,174 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Verifies that hot products are sold from stock leases without overselling: sales leave the
+ * products row alone, a rolled back sale gives its units back, and the unsold units of a lease
+ * whose node stopped renewing it are returned to the products table.
+ */
+@TestPropertySource(properties = "modumart.catalog.hot-inventory.enabled=true")
+class HotInventoryLedgerTests extends PostgresIntegrationTests {
+
+    private static final int INITIAL_STOCK = 500;
+    private static final int LEASE_SIZE = 100;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    HotInventoryLedger hotInventoryLedger;
+
+    @Autowired
+    CatalogConfiguration.HotInventoryProperties properties;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Product product;
+
+    @BeforeEach
+    void flagHotProduct() {
+        product = productRepository.save(new Product(null, "Flash Sale Console", "Hot SKU",
+                new BigDecimal("299.00"), INITIAL_STOCK, "Deals", null));
+        properties.setLeaseSize(LEASE_SIZE);
+        properties.getProducts().add(product.id());
+    }
+
+    @AfterEach
+    void unflagHotProduct() {
+        properties.getProducts().remove(product.id());
+        hotInventoryLedger.untrack(product.id());
+    }
+
+    @Test
+    void reservationsAreSoldFromTheLeaseWithoutTouchingTheProductsRow() throws Exception {
+        assertThat(reserve(1)).isTrue();
+        awaitLease();
+        assertThat(tableStock()).isEqualTo(INITIAL_STOCK - 1 - LEASE_SIZE);
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            tasks.add(() -> reserve(1));
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+
+        assertThat(tableStock()).isEqualTo(INITIAL_STOCK - 1 - LEASE_SIZE);
+        assertThat(soldFromLeases()).isEqualTo(40);
+        assertThat(overlayStock()).isEqualTo(INITIAL_STOCK - 1 - 40);
+    }
+
+    @Test
+    void rolledBackReservationGivesItsUnitsBackToTheLease() {
+        reserve(1);
+        awaitLease();
+        int available = overlayStock();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(reserve(5)).isTrue();
+            status.setRollbackOnly();
+        });
+
+        assertThat(overlayStock()).isEqualTo(available);
+        assertThat(soldFromLeases()).isZero();
+    }
+
+    @Test
+    void unsoldUnitsOfAnExpiredLeaseAreReturnedToTheProductsTable() {
+        Long orderId = nextOrderId();
+        HotInventoryLeaseRepository.Grant grant = transactionTemplate.execute(status -> {
+            HotInventoryLeaseRepository.Grant granted = productRepository.grantLease(product.id(), "crashed-node",
+                    LEASE_SIZE, LocalDateTime.now().minus(Duration.ofHours(1))).orElseThrow();
+            productRepository.recordReservation(orderId, LocalDateTime.now().plusMinutes(30));
+            productRepository.recordReservationLines(orderId, new TreeMap<>(Map.of(product.id(), 30)),
+                    Map.of(product.id(), granted.leaseId()));
+            return granted;
+        });
+        assertThat(tableStock()).isEqualTo(INITIAL_STOCK - LEASE_SIZE);
+
+        hotInventoryLedger.maintainLeases();
+
+        assertThat(tableStock()).isEqualTo(INITIAL_STOCK - 30);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT quantity FROM hot_inventory_leases WHERE id = ? AND closed_at IS NOT NULL",
+                Integer.class, grant.leaseId())).isEqualTo(30);
+    }
+
+    @Test
+    void leaseClosedByAnotherNodeFallsBackToTheProductsRow() {
+        reserve(1);
+        awaitLease();
+        Long leaseId = jdbcTemplate.queryForObject(
+                "SELECT id FROM hot_inventory_leases WHERE product_id = ? AND closed_at IS NULL", Long.class,
+                product.id());
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.lockOpenLease(leaseId);
+            productRepository.closeLeases(List.of(leaseId), LocalDateTime.now());
+        });
+        assertThat(tableStock()).isEqualTo(INITIAL_STOCK - 1);
+
+        assertThat(reserve(2)).isTrue();
+
+        assertThat(tableStock()).isEqualTo(INITIAL_STOCK - 3);
+        assertThat(soldFromLeases()).isZero();
+    }
+
+    private boolean reserve(int quantity) {
+        return productService.reserveStock(nextOrderId(), Map.of(product.id(), quantity));
+    }
+
+    private Long nextOrderId() {
+        // Reservations aren't tied to order rows, but sharing the sequence keeps their ids unique
+        return jdbcTemplate.queryForObject("SELECT nextval('orders_id_seq')", Long.class);
+    }
+
+    private void awaitLease() {
+        await().atMost(Duration.ofSeconds(5)).until(() -> overlayStock() > tableStock());
+    }
+
+    private int overlayStock() {
+        return hotInventoryLedger.overlay(productRepository.findById(product.id()).orElseThrow()).stock();
+    }
+
+    private int tableStock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.id());
+    }
+
+    private int soldFromLeases() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(r.quantity), 0) FROM stock_reservation_lines r " +
+                "JOIN hot_inventory_leases l ON l.id = r.lease_id WHERE l.product_id = ?", Integer.class, product.id());
+    }
+}
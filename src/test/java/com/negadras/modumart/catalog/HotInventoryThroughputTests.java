@@ -0,0 +1,119 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Benchmarks concurrent single-unit reservations of one product sold from a stock lease against
+ * one reserved by locking its products row. Every reservation must succeed and the stock left
+ * must account for every unit sold.
+ */
+@TestPropertySource(properties = "modumart.catalog.hot-inventory.enabled=true")
+class HotInventoryThroughputTests extends PostgresIntegrationTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotInventoryThroughputTests.class);
+
+    private static final int THREADS = 8;
+    private static final int RESERVATIONS_PER_THREAD = 100;
+    private static final int INITIAL_STOCK = 50_000;
+    private static final int LEASE_SIZE = 5_000;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    HotInventoryLedger hotInventoryLedger;
+
+    @Autowired
+    CatalogConfiguration.HotInventoryProperties properties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Product hot;
+    Product regular;
+
+    @BeforeEach
+    void flagHotProduct() {
+        hot = productRepository.save(new Product(null, "Flash Sale Headphones", "Hot SKU",
+                new BigDecimal("99.00"), INITIAL_STOCK, "Deals", null));
+        regular = productRepository.save(new Product(null, "Everyday Headphones", "Regular SKU",
+                new BigDecimal("99.00"), INITIAL_STOCK, "Deals", null));
+        properties.setLeaseSize(LEASE_SIZE);
+        properties.getProducts().add(hot.id());
+    }
+
+    @AfterEach
+    void unflagHotProduct() {
+        properties.getProducts().remove(hot.id());
+        hotInventoryLedger.untrack(hot.id());
+    }
+
+    @Test
+    void leasedAndRowLockedReservationsAccountForEveryUnit() throws Exception {
+        // The first sale requests the lease; later ones are sold from it
+        assertThat(reserve(hot, 1)).isTrue();
+        await().atMost(Duration.ofSeconds(5)).until(() -> overlayStock(hot) > tableStock(hot));
+
+        long leasedNanos = reserveConcurrently(hot);
+        long rowLockedNanos = reserveConcurrently(regular);
+
+        int reservations = THREADS * RESERVATIONS_PER_THREAD;
+        logger.info("{} reservations on {} threads: leased {} ops/s, row-locked {} ops/s",
+                reservations, THREADS, reservations * 1_000_000_000L / leasedNanos,
+                reservations * 1_000_000_000L / rowLockedNanos);
+
+        assertThat(overlayStock(hot)).isEqualTo(INITIAL_STOCK - 1 - reservations);
+        assertThat(tableStock(regular)).isEqualTo(INITIAL_STOCK - reservations);
+    }
+
+    private long reserveConcurrently(Product product) throws Exception {
+        long start = System.nanoTime();
+        List<Integer> reserved = runConcurrently(THREADS, () -> {
+            int count = 0;
+            for (int i = 0; i < RESERVATIONS_PER_THREAD; i++) {
+                if (reserve(product, 1)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        long elapsed = System.nanoTime() - start;
+        assertThat(reserved).containsOnly(RESERVATIONS_PER_THREAD);
+        return elapsed;
+    }
+
+    private boolean reserve(Product product, int quantity) {
+        return productService.reserveStock(nextOrderId(), Map.of(product.id(), quantity));
+    }
+
+    private Long nextOrderId() {
+        return jdbcTemplate.queryForObject("SELECT nextval('orders_id_seq')", Long.class);
+    }
+
+    private int overlayStock(Product product) {
+        return hotInventoryLedger.overlay(productRepository.findById(product.id()).orElseThrow()).stock();
+    }
+
+    private int tableStock(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.id());
+    }
+}
@@ -0,0 +1,152 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies the product cache: concurrent misses for one id share a single load, updates and
+ * stock changes invalidate the entry once their transaction commits, and hits and misses are
+ * published as {@code cache.gets} metrics.
+ */
+class ProductCacheTests extends PostgresIntegrationTests {
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ProductCache productCache;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Product product;
+
+    @BeforeEach
+    void createProduct() {
+        product = productService.createProduct(new Product(null, "Cached Lamp", "Desk lamp",
+                new BigDecimal("39.00"), 20, "Lighting", null));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ProductCache cache = new ProductCache(countingRepository(loads, loading, release), cacheProperties(),
+                new SimpleMeterRegistry());
+
+        Thread.ofPlatform().start(() -> cache.get(product.id()));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CountDownLatch started = new CountDownLatch(8);
+        Thread.ofPlatform().start(() -> {
+            try {
+                started.await();
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+
+        runConcurrently(8, () -> {
+            started.countDown();
+            return cache.get(product.id());
+        }).forEach(loaded -> assertThat(loaded).map(Product::name).contains("Cached Lamp"));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void updatingAProductInvalidatesItsEntry() {
+        assertThat(productCache.get(product.id())).map(Product::price).contains(new BigDecimal("39.00"));
+
+        productService.updateProduct(product.id(), new Product(null, "Cached Lamp", "Desk lamp",
+                new BigDecimal("29.00"), 20, "Lighting", null));
+
+        assertThat(productCache.get(product.id())).map(Product::price).contains(new BigDecimal("29.00"));
+    }
+
+    @Test
+    void stockChangesInvalidateTheEntryOnceCommitted() {
+        assertThat(productCache.get(product.id())).map(Product::stock).contains(20);
+
+        assertThat(productService.reduceStock(product.id(), 3)).isTrue();
+        assertThat(productCache.get(product.id())).map(Product::stock).contains(17);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(productService.reserveStock(nextOrderId(), Map.of(product.id(), 5))).isTrue();
+            // Not invalidated before commit, so a concurrent read can't cache the old row again
+            assertThat(productCache.get(product.id())).map(Product::stock).contains(17);
+        });
+        assertThat(productCache.get(product.id())).map(Product::stock).contains(12);
+    }
+
+    @Test
+    void hitsAndMissesArePublishedAsMetrics() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProductCache cache = new ProductCache(productRepository, cacheProperties(), meterRegistry);
+
+        cache.get(product.id());
+        cache.get(product.id());
+        cache.get(product.id());
+        cache.invalidate(product.id());
+        cache.get(product.id());
+
+        assertThat(gets(meterRegistry, "miss")).isEqualTo(2);
+        assertThat(gets(meterRegistry, "hit")).isEqualTo(2);
+    }
+
+    private ProductRepository countingRepository(AtomicInteger loads, CountDownLatch loading, CountDownLatch release) {
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findById")) {
+                        loads.incrementAndGet();
+                        loading.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    try {
+                        return method.invoke(productRepository, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private Long nextOrderId() {
+        return jdbcTemplate.queryForObject("SELECT nextval('orders_id_seq')", Long.class);
+    }
+
+    private static CatalogConfiguration.ProductCacheProperties cacheProperties() {
+        CatalogConfiguration.ProductCacheProperties properties = new CatalogConfiguration.ProductCacheProperties();
+        properties.setMaximumSize(100);
+        properties.setTimeToLive(Duration.ofMinutes(10));
+        return properties;
+    }
+
+    private static double gets(SimpleMeterRegistry meterRegistry, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "products").tag("result", result)
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,114 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that category facets follow product creates, stock changes, category moves and
+ * deletes once they commit, and that a consistency check rebuilds the index when the products
+ * table was changed behind its back.
+ */
+class ProductFacetIndexTests extends PostgresIntegrationTests {
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    String category;
+    Product cheap;
+    Product pricey;
+
+    @BeforeEach
+    void createCategory() {
+        // A category of its own keeps products created by other tests out of the counts
+        category = "Facets-" + UUID.randomUUID();
+        cheap = productService.createProduct(product(category, "5.00", 2));
+        pricey = productService.createProduct(product(category, "50.00", 1));
+    }
+
+    @Test
+    void createdProductsAreCountedWithTheirPriceRange() {
+        assertThat(facet(category)).contains(new CategoryFacet(category, 2, 2, new BigDecimal("5.00"),
+                new BigDecimal("50.00")));
+    }
+
+    @Test
+    void stockChangesMoveProductsInAndOutOfStock() {
+        assertThat(productService.reduceStock(pricey.id(), 1)).isTrue();
+        assertThat(facet(category)).map(CategoryFacet::inStockProducts).contains(1L);
+
+        Long orderId = jdbcTemplate.queryForObject("SELECT nextval('orders_id_seq')", Long.class);
+        assertThat(productService.reserveStock(orderId, Map.of(cheap.id(), 2))).isTrue();
+        assertThat(facet(category)).map(CategoryFacet::inStockProducts).contains(0L);
+
+        assertThat(productService.restoreStock(orderId)).isTrue();
+        assertThat(facet(category)).map(CategoryFacet::inStockProducts).contains(1L);
+        assertThat(facet(category)).map(CategoryFacet::totalProducts).contains(2L);
+    }
+
+    @Test
+    void rolledBackStockChangesAreNotApplied() {
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(productService.reduceStock(pricey.id(), 1)).isTrue();
+            status.setRollbackOnly();
+        });
+
+        assertThat(facet(category)).map(CategoryFacet::inStockProducts).contains(2L);
+    }
+
+    @Test
+    void movingAndDeletingProductsUpdatesBothCategories() {
+        String other = category + "-other";
+
+        productService.updateProduct(pricey.id(), product(other, "80.00", 1));
+
+        assertThat(facet(category)).contains(new CategoryFacet(category, 1, 1, new BigDecimal("5.00"),
+                new BigDecimal("5.00")));
+        assertThat(facet(other)).contains(new CategoryFacet(other, 1, 1, new BigDecimal("80.00"),
+                new BigDecimal("80.00")));
+
+        productService.deleteProduct(pricey.id());
+
+        assertThat(facet(other)).isEmpty();
+    }
+
+    @Test
+    void consistencyCheckRebuildsFacetsThatDrifted() {
+        jdbcTemplate.update("UPDATE products SET stock = 0, price = 1.00 WHERE id = ?", cheap.id());
+
+        assertThat(productFacetIndex.checkConsistency()).contains(category);
+
+        assertThat(facet(category)).contains(new CategoryFacet(category, 2, 1, new BigDecimal("1.00"),
+                new BigDecimal("50.00")));
+        assertThat(productFacetIndex.checkConsistency()).doesNotContain(category);
+    }
+
+    private Optional<CategoryFacet> facet(String category) {
+        return productFacetIndex.getFacets().stream()
+                .filter(facet -> category.equals(facet.category()))
+                .findFirst();
+    }
+
+    private static Product product(String category, String price, int stock) {
+        return new Product(null, "Faceted Item", "Facet test", new BigDecimal(price), stock, category, null);
+    }
+}
@@ -0,0 +1,145 @@
+package com.negadras.modumart.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Verifies product feed imports: the CSV parser handles quoted fields and reports rows with
+ * bad numbers, re-importing a SKU updates its product instead of inserting another one, and
+ * an import that fails unexpectedly ends FAILED rather than staying RUNNING.
+ */
+class ProductImportTests extends PostgresIntegrationTests {
+
+    @Autowired
+    ProductImportService productImportService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    CatalogConfiguration.ImportProperties importProperties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    String sku;
+
+    @BeforeEach
+    void createSkuPrefix() {
+        sku = "IMP-" + UUID.randomUUID() + "-";
+    }
+
+    @Test
+    void quotedFieldsKeepTheirCommasQuotesAndLineBreaks() throws Exception {
+        ProductImportReport report = importCsv(productImportService, """
+                sku,name,description,price,stock,category
+                %1$s1,"Lamp, brass","The ""classic"" lamp
+                with a second line",19.90,3,Lighting
+                %1$s2,Plain Lamp,,9.50,,Lighting
+                """.formatted(sku));
+
+        assertThat(report.status()).isEqualTo(ProductImportReport.Status.COMPLETED);
+        assertThat(report.inserted()).isEqualTo(2);
+        assertThat(product(sku + "1")).containsEntry("name", "Lamp, brass")
+                .containsEntry("description", "The \"classic\" lamp\nwith a second line")
+                .containsEntry("stock", 3);
+        assertThat(product(sku + "2")).containsEntry("description", null).containsEntry("stock", 0);
+    }
+
+    @Test
+    void rowsWithBadNumbersAreReportedAndSkipped() throws Exception {
+        ProductImportReport report = importCsv(productImportService, """
+                sku,name,price,stock
+                %1$s1,Good Row,5.00,1
+                %1$s2,Bad Price,five,1
+                %1$s3,Bad Stock,5.00,1.5
+                %1$s4,Negative Stock,5.00,-1
+                """.formatted(sku));
+
+        assertThat(report.status()).isEqualTo(ProductImportReport.Status.COMPLETED);
+        assertThat(report.rowsRead()).isEqualTo(4);
+        assertThat(report.inserted()).isEqualTo(1);
+        assertThat(report.failed()).isEqualTo(3);
+        assertThat(report.errors()).extracting(ProductImportReport.RowError::row).containsExactly(2L, 3L, 4L);
+        assertThat(report.errors().get(0).message()).startsWith("invalid number");
+        assertThat(report.errors().get(2).message()).isEqualTo("stock must be zero or positive");
+    }
+
+    @Test
+    void reimportedSkusAreCountedAsUpdates() throws Exception {
+        importCsv(productImportService, """
+                sku,name,price,stock
+                %1$s1,First,1.00,1
+                %1$s2,Second,2.00,2
+                """.formatted(sku));
+
+        ProductImportReport report = importCsv(productImportService, """
+                sku,name,price,stock
+                %1$s1,First Renamed,1.50,1
+                %1$s2,Second,2.00,5
+                %1$s3,Third,3.00,3
+                """.formatted(sku));
+
+        assertThat(report.inserted()).isEqualTo(1);
+        assertThat(report.updated()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM products WHERE sku LIKE ?", Integer.class,
+                sku + "%")).isEqualTo(3);
+        assertThat(product(sku + "1")).containsEntry("name", "First Renamed")
+                .containsEntry("price", new BigDecimal("1.50"));
+    }
+
+    @Test
+    void unexpectedFailuresEndTheImportAsFailed() throws Exception {
+        ProductImportService failingImports = new ProductImportService(productRepository, productService,
+                transactionTemplate, objectMapper, event -> {
+                    throw new IllegalStateException("test listener failed");
+                }, importProperties);
+        try {
+            ProductImportReport report = importCsv(failingImports, """
+                    sku,name,price
+                    %1$s1,Imported Before The Failure,1.00
+                    """.formatted(sku));
+
+            assertThat(report.status()).isEqualTo(ProductImportReport.Status.FAILED);
+        } finally {
+            failingImports.shutdown();
+        }
+    }
+
+    private ProductImportReport importCsv(ProductImportService service, String csv) throws IOException {
+        String importId = service.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)))
+                .importId();
+        return await().atMost(Duration.ofSeconds(10))
+                .until(() -> service.getImport(importId).orElseThrow(),
+                        report -> report.status() != ProductImportReport.Status.RUNNING);
+    }
+
+    private Map<String, Object> product(String sku) {
+        return jdbcTemplate.queryForMap("SELECT name, description, price, stock FROM products WHERE sku = ?", sku);
+    }
+}
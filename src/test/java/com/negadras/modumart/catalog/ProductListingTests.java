@@ -0,0 +1,144 @@
+package com.negadras.modumart.catalog;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies keyset pagination of product listings, including a full last page followed by an
+ * empty one, and the NDJSON exports: one product per line in id order.
+ */
+@AutoConfigureMockMvc
+class ProductListingTests extends PostgresIntegrationTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ProductService productService;
+
+    String category;
+    List<Long> productIds;
+
+    @BeforeEach
+    void createCategory() {
+        // A category of its own keeps products created by other tests out of the listing
+        category = "Listing-" + UUID.randomUUID();
+        productIds = IntStream.range(0, 5)
+                .mapToObj(i -> productService.createProduct(new Product(null, "Listed Item " + i, "Listing test",
+                        new BigDecimal("5.00"), i == 2 ? 0 : 10, category, null)).id())
+                .toList();
+    }
+
+    @Test
+    void pagesFollowTheCursorUntilItIsNull() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String after = null;
+        do {
+            JsonNode page = page(after, 2);
+            page.get("products").forEach(product -> seen.add(product.get("id").asLong()));
+            pageSizes.add(page.get("products").size());
+            after = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (after != null);
+
+        assertThat(seen).containsExactlyElementsOf(productIds);
+        assertThat(pageSizes).containsExactly(2, 2, 1);
+    }
+
+    @Test
+    void aFullLastPageIsFollowedByAnEmptyOne() throws Exception {
+        JsonNode full = page(null, productIds.size());
+        assertThat(full.get("products")).hasSize(productIds.size());
+        assertThat(full.get("nextCursor").asLong()).isEqualTo(productIds.get(productIds.size() - 1));
+
+        JsonNode empty = page(full.get("nextCursor").asText(), productIds.size());
+
+        assertThat(empty.get("products")).isEmpty();
+        assertThat(empty.get("nextCursor").isNull()).isTrue();
+    }
+
+    @Test
+    void pagesStartAfterTheCursorEvenIfItsProductWasDeleted() throws Exception {
+        productService.deleteProduct(productIds.get(1));
+
+        JsonNode page = page(productIds.get(1).toString(), 10);
+
+        assertThat(page.get("products").findValuesAsText("id"))
+                .containsExactlyElementsOf(productIds.subList(2, 5).stream().map(String::valueOf).toList());
+    }
+
+    @Test
+    void exportWritesOneProductPerLineInIdOrder() throws Exception {
+        String body = export("/api/products/category/" + category + "/export");
+
+        assertThat(body).endsWith("\n");
+        List<JsonNode> lines = body.lines().map(this::parse).toList();
+        assertThat(lines).extracting(line -> line.get("id").asLong()).containsExactlyElementsOf(productIds);
+        assertThat(lines.get(0).get("name").asText()).isEqualTo("Listed Item 0");
+        assertThat(lines.get(0).get("category").asText()).isEqualTo(category);
+    }
+
+    @Test
+    void inStockExportLeavesOutProductsWithoutStock() throws Exception {
+        List<Long> exported = export("/api/products/in-stock/export").lines()
+                .map(line -> parse(line).get("id").asLong())
+                .filter(productIds::contains)
+                .toList();
+
+        assertThat(exported).containsExactly(productIds.get(0), productIds.get(1), productIds.get(3),
+                productIds.get(4));
+    }
+
+    private JsonNode page(String after, int limit) throws Exception {
+        var request = get("/api/products/category/{category}", category).param("limit", String.valueOf(limit));
+        if (after != null) {
+            request.param("after", after);
+        }
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private String export(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThat(started.getResponse().getContentType()).startsWith(MediaType.APPLICATION_NDJSON_VALUE);
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+        return result.getResponse().getContentAsString();
+    }
+
+    private JsonNode parse(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new AssertionError("Not a JSON line: " + line, e);
+        }
+    }
+}
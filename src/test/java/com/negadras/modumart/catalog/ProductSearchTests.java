@@ -0,0 +1,93 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the in-memory search index and the database fallback find and rank the same
+ * products: every match is ranked before a page is cut, and queries shorter than a trigram
+ * match any substring of a name rather than only word prefixes.
+ */
+class ProductSearchTests extends PostgresIntegrationTests {
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    ProductSearchIndex index;
+    String token;
+
+    @BeforeEach
+    void createToken() {
+        // Matches only the products created here, though the database is shared
+        token = "zq" + ThreadLocalRandom.current().ints(8, 'a', 'z' + 1)
+                .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append);
+        index = new ProductSearchIndex(productRepository, transactionTemplate,
+                new CatalogConfiguration.SearchProperties());
+    }
+
+    @Test
+    void theBestMatchIsFoundAmongMoreMatchesThanThePageHolds() {
+        for (int i = 0; i < 30; i++) {
+            save("Pre" + token + " filler " + i);
+        }
+        Product exact = save(token);
+        index.rebuild();
+
+        assertThat(index.search(token, 0, 1)).containsExactly(exact.id());
+        assertThat(index.search(token, 0, 40)).hasSize(31).first().isEqualTo(exact.id());
+    }
+
+    @Test
+    void pagesMatchTheDatabaseFallback() {
+        save("Pre" + token + " lamp");
+        save(token + " lamp");
+        save("Desk " + token + " lamp");
+        save(token);
+        save("Long " + token + " lamp with a longer name");
+        save("Lamp " + token.toUpperCase());
+        index.rebuild();
+
+        for (int offset = 0; offset < 6; offset += 2) {
+            assertThat(index.search(token, offset, 2)).isEqualTo(fallback(token, offset, 2));
+        }
+        assertThat(index.search(token, 0, 10)).hasSize(6);
+    }
+
+    @Test
+    void shortQueriesMatchAnySubstringLikeTheDatabaseFallback() {
+        String pair = "ðþ";
+        Product midWord = save("Ka" + pair + "ak " + token);
+        Product wordPrefix = save("Blue " + pair + "ing " + token);
+        Product exact = save(pair);
+        index.rebuild();
+
+        List<Long> found = index.search(pair, 0, 100);
+
+        // Earlier runs against a reused database leave products with the same pair behind
+        assertThat(found).filteredOn(List.of(exact.id(), wordPrefix.id(), midWord.id())::contains)
+                .containsExactly(exact.id(), wordPrefix.id(), midWord.id());
+        assertThat(found).isEqualTo(fallback(pair, 0, 100));
+    }
+
+    private Product save(String name) {
+        return productRepository.save(new Product(null, name, "Search test", new BigDecimal("10.00"), 5,
+                "Search", null));
+    }
+
+    private List<Long> fallback(String query, int offset, int limit) {
+        String needle = ProductSearchIndex.normalize(query);
+        return productRepository.searchByName(needle, needle, offset, limit).stream().map(Product::id).toList();
+    }
+}
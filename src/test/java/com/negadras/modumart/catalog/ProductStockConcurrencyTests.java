@@ -0,0 +1,78 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that concurrent stock reductions on a single product never lose
+ * updates and never drive stock below zero.
+ */
+// Every reduction fans out to @Async listeners; keep them from rejecting the burst
+@TestPropertySource(properties = "spring.task.execution.pool.queue-capacity=10000")
+class ProductStockConcurrencyTests extends PostgresIntegrationTests {
+
+    private static final int INITIAL_STOCK = 100;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 250;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Test
+    void concurrentReductionsSellExactlyTheAvailableStock() throws Exception {
+        Product product = productRepository.save(new Product(null, "Flash Sale Item", "Hot SKU",
+                new BigDecimal("9.99"), INITIAL_STOCK, "Deals", null));
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            tasks.add(() -> productService.reduceStock(product.id(), 1));
+        }
+
+        int successful = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                if (result.get()) {
+                    successful++;
+                }
+            }
+        }
+
+        assertThat(successful).isEqualTo(INITIAL_STOCK);
+        assertThat(productRepository.findById(product.id()).orElseThrow().stock()).isZero();
+    }
+
+    @Test
+    void concurrentReductionsLeaveExactRemainder() throws Exception {
+        Product product = productRepository.save(new Product(null, "Popular Item", "Warm SKU",
+                new BigDecimal("19.99"), INITIAL_STOCK * 10, "Deals", null));
+
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            tasks.add(() -> productService.reduceStock(product.id(), 3));
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+
+        assertThat(productRepository.findById(product.id()).orElseThrow().stock())
+                .isEqualTo(INITIAL_STOCK * 10 - ATTEMPTS * 3);
+    }
+}
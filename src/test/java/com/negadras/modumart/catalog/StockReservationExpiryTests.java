@@ -0,0 +1,183 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import com.negadras.modumart.orders.CreateOrderRequest;
+import com.negadras.modumart.orders.OrderItem;
+import com.negadras.modumart.orders.OrderService;
+import com.negadras.modumart.orders.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies what happens when a stock reservation outlives its TTL: its stock is released while
+ * the order is left to the orders module, a confirmed order holds its stock for the held TTL
+ * only, and paying for an order whose reservation was released takes the stock again or records
+ * a shortfall without undoing the payment.
+ */
+@RecordApplicationEvents
+class StockReservationExpiryTests extends PostgresIntegrationTests {
+
+    private static final int INITIAL_STOCK = 10;
+    private static final int ORDERED = 3;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    StockReservationQueue stockReservationQueue;
+
+    @Autowired
+    StockReservationExpiryJob stockReservationExpiryJob;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ApplicationEvents events;
+
+    Product product;
+    Long customerId;
+    Long orderId;
+
+    @BeforeEach
+    void placeOrder() {
+        product = saveProduct();
+        customerId = createCustomer();
+        orderId = placeOrder(product);
+        assertThat(stock(product)).isEqualTo(INITIAL_STOCK - ORDERED);
+    }
+
+    @Test
+    void expiryReleasesTheStockButLeavesTheOrderPending() {
+        // Overdue by more than the catch-up interval, as if the node that made it had stopped
+        jdbcTemplate.update("UPDATE stock_reservations SET expires_at = now() - interval '5 minutes' " +
+                "WHERE order_id = ?", orderId);
+
+        stockReservationQueue.catchUp();
+        stockReservationExpiryJob.expireDueReservations();
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.PENDING);
+        assertThat(reservationStatus(orderId)).isEqualTo("EXPIRED");
+        assertThat(stock(product)).isEqualTo(INITIAL_STOCK);
+        assertThat(events.stream(StockReservationsExpiredEvent.class))
+                .anySatisfy(event -> assertThat(event.orderIds()).contains(orderId));
+    }
+
+    @Test
+    void stalePendingOrdersAreCancelledByTheOrdersModule() {
+        // Backdated past any other order, so only this one is stale
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", LocalDateTime.of(2000, 1, 1, 0, 0),
+                orderId);
+
+        orderService.cancelStalePendingOrders(LocalDateTime.of(2000, 1, 2, 0, 0), 10_000);
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(reservationStatus(orderId)).isEqualTo("RELEASED");
+        assertThat(stock(product)).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void confirmedOrderHoldsItsStockForTheHeldTtlOnly() {
+        orderService.updateOrderStatus(orderId, OrderStatus.CONFIRMED);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT expires_at > now() + interval '1 hour' " +
+                "FROM stock_reservations WHERE order_id = ?", Boolean.class, orderId)).isTrue();
+        assertThat(productService.expireReservations(List.of(orderId))).isEmpty();
+        assertThat(stock(product)).isEqualTo(INITIAL_STOCK - ORDERED);
+
+        assertThat(expire(orderId)).containsExactly(orderId);
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(stock(product)).isEqualTo(INITIAL_STOCK);
+    }
+
+    @Test
+    void payingForAnExpiredReservationTakesTheStockAgain() {
+        expire(orderId);
+        assertThat(stock(product)).isEqualTo(INITIAL_STOCK);
+
+        orderService.updateOrderStatus(orderId, OrderStatus.PAID);
+
+        assertThat(reservationStatus(orderId)).isEqualTo("COMMITTED");
+        assertThat(stock(product)).isEqualTo(INITIAL_STOCK - ORDERED);
+    }
+
+    @Test
+    void payingAfterTheStockIsGoneKeepsThePaymentAndRecordsTheShortfall() {
+        expire(orderId);
+        assertThat(productService.reduceStock(product.id(), INITIAL_STOCK - 1)).isTrue();
+
+        orderService.updateOrderStatus(orderId, OrderStatus.PAID);
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.PAID);
+        assertThat(reservationStatus(orderId)).isEqualTo("SHORTFALL");
+        assertThat(stock(product)).isEqualTo(1);
+        assertThat(events.stream(PaidOrderStockShortfallEvent.class).toList()).singleElement()
+                .isEqualTo(new PaidOrderStockShortfallEvent(orderId, customerId,
+                        List.of(new ProductOutOfStockEvent.Shortage(product.id(), 1, ORDERED))));
+    }
+
+    @Test
+    void oneShortOrderDoesNotFailTheOthersPaidInBulk() {
+        Product other = saveProduct();
+        Long otherOrderId = placeOrder(other);
+        expire(orderId);
+        expire(otherOrderId);
+        assertThat(productService.reduceStock(product.id(), INITIAL_STOCK)).isTrue();
+
+        orderService.updateOrderStatuses(List.of(orderId, otherOrderId), OrderStatus.PAID);
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.PAID);
+        assertThat(orderStatus(otherOrderId)).isEqualTo(OrderStatus.PAID);
+        assertThat(reservationStatus(orderId)).isEqualTo("SHORTFALL");
+        assertThat(reservationStatus(otherOrderId)).isEqualTo("COMMITTED");
+        assertThat(stock(other)).isEqualTo(INITIAL_STOCK - ORDERED);
+    }
+
+    private Product saveProduct() {
+        return productRepository.save(new Product(null, "Reserved Lamp", "Expiry test",
+                new BigDecimal("25.00"), INITIAL_STOCK, "Home", null));
+    }
+
+    private Long placeOrder(Product product) {
+        return orderService.createOrder(new CreateOrderRequest(customerId, "1 Expiry Lane",
+                Set.of(OrderItem.create(product.id(), product.name(), ORDERED, product.price())))).id();
+    }
+
+    private List<Long> expire(Long orderId) {
+        jdbcTemplate.update("UPDATE stock_reservations SET expires_at = now() - interval '1 second' " +
+                "WHERE order_id = ?", orderId);
+        return productService.expireReservations(List.of(orderId));
+    }
+
+    private int stock(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.id());
+    }
+
+    private OrderStatus orderStatus(Long orderId) {
+        return OrderStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?",
+                String.class, orderId));
+    }
+
+    private String reservationStatus(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM stock_reservations WHERE order_id = ?",
+                String.class, orderId);
+    }
+}
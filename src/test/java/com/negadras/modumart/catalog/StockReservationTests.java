@@ -0,0 +1,164 @@
+package com.negadras.modumart.catalog;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that an order's lines are reserved all or nothing: every line is decremented when
+ * the stock covers them, nothing is when one line is short, and the shortages of an order are
+ * reported in a single event. Restoring the stock of cancelled orders gives it back once, however
+ * often or concurrently it is requested.
+ */
+@RecordApplicationEvents
+class StockReservationTests extends PostgresIntegrationTests {
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ApplicationEvents events;
+
+    Product desk;
+    Product chair;
+    Product lamp;
+
+    @BeforeEach
+    void createProducts() {
+        desk = saveProduct("Standing Desk", 10);
+        chair = saveProduct("Office Chair", 5);
+        lamp = saveProduct("Desk Lamp", 1);
+    }
+
+    @Test
+    void everyLineIsReservedWhenTheStockCoversThem() {
+        Long orderId = nextOrderId();
+
+        assertThat(productService.reserveStock(orderId, Map.of(desk.id(), 2, chair.id(), 5, lamp.id(), 1))).isTrue();
+
+        assertThat(stock(desk)).isEqualTo(8);
+        assertThat(stock(chair)).isZero();
+        assertThat(stock(lamp)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM stock_reservation_lines WHERE order_id = ?",
+                Integer.class, orderId)).isEqualTo(3);
+        assertThat(events.stream(ProductOutOfStockEvent.class)).isEmpty();
+    }
+
+    @Test
+    void shortLinesLeaveTheWholeOrderUnreservedAndAreReportedTogether() {
+        Long orderId = nextOrderId();
+
+        assertThat(productService.reserveStock(orderId, Map.of(desk.id(), 2, chair.id(), 6, lamp.id(), 3))).isFalse();
+
+        assertThat(stock(desk)).isEqualTo(10);
+        assertThat(stock(chair)).isEqualTo(5);
+        assertThat(stock(lamp)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM stock_reservations WHERE order_id = ?",
+                String.class, orderId)).isEqualTo("REJECTED");
+        // A redelivered event doesn't report the rejected order again
+        assertThat(productService.reserveStock(orderId, Map.of(desk.id(), 2, chair.id(), 6, lamp.id(), 3))).isFalse();
+        assertThat(events.stream(ProductOutOfStockEvent.class).toList()).singleElement().satisfies(event -> {
+            assertThat(event.orderId()).isEqualTo(orderId);
+            assertThat(event.shortages()).containsExactlyInAnyOrder(
+                    new ProductOutOfStockEvent.Shortage(chair.id(), 5, 6),
+                    new ProductOutOfStockEvent.Shortage(lamp.id(), 1, 3));
+        });
+    }
+
+    @Test
+    void unknownProductFailsTheReservation() {
+        assertThat(productService.reserveStock(nextOrderId(), Map.of(desk.id(), 1, Long.MAX_VALUE, 1))).isFalse();
+
+        assertThat(stock(desk)).isEqualTo(10);
+        assertThat(events.stream(ProductNotFoundEvent.class).map(ProductNotFoundEvent::productId))
+                .containsExactly(Long.MAX_VALUE);
+    }
+
+    @Test
+    void redeliveredOrderIsReservedOnce() {
+        Long orderId = nextOrderId();
+
+        assertThat(productService.reserveStock(orderId, Map.of(desk.id(), 3))).isTrue();
+        assertThat(productService.reserveStock(orderId, Map.of(desk.id(), 3))).isTrue();
+
+        assertThat(stock(desk)).isEqualTo(7);
+    }
+
+    @Test
+    void restoringTwiceReturnsTheStockOnce() {
+        Long first = nextOrderId();
+        Long second = nextOrderId();
+        Long neverReserved = nextOrderId();
+        assertThat(productService.reserveStock(first, Map.of(desk.id(), 2, chair.id(), 1))).isTrue();
+        assertThat(productService.reserveStock(second, Map.of(desk.id(), 3))).isTrue();
+
+        assertThat(productService.restoreStock(List.of(first, second, neverReserved)))
+                .containsExactlyInAnyOrder(first, second);
+        assertThat(productService.restoreStock(List.of(first, second, neverReserved))).isEmpty();
+        assertThat(productService.restoreStock(first)).isFalse();
+
+        assertThat(stock(desk)).isEqualTo(10);
+        assertThat(stock(chair)).isEqualTo(5);
+        assertThat(events.stream(OrderStockRestoredEvent.class).toList()).singleElement()
+                .satisfies(event -> assertThat(event.orderIds()).containsExactlyInAnyOrder(first, second));
+    }
+
+    @Test
+    void concurrentRestoresReturnTheStockOnce() throws Exception {
+        Long orderId = nextOrderId();
+        assertThat(productService.reserveStock(orderId, Map.of(desk.id(), 4))).isTrue();
+
+        List<List<Long>> restored = runConcurrently(8, () -> productService.restoreStock(List.of(orderId)));
+
+        assertThat(restored.stream().filter(ids -> !ids.isEmpty())).hasSize(1);
+        assertThat(stock(desk)).isEqualTo(10);
+    }
+
+    @Test
+    void overlappingOrdersNeitherDeadlockNorOversell() throws Exception {
+        // Half the orders list the products in reverse; locking in id order keeps them from deadlocking
+        AtomicInteger order = new AtomicInteger();
+        List<Boolean> results = runConcurrently(20, () -> {
+            boolean reversed = order.getAndIncrement() % 2 == 0;
+            Map<Long, Integer> lines = reversed
+                    ? Map.of(chair.id(), 1, desk.id(), 1)
+                    : Map.of(desk.id(), 1, chair.id(), 1);
+            return productService.reserveStock(nextOrderId(), lines);
+        });
+
+        assertThat(results.stream().filter(Boolean::booleanValue)).hasSize(5);
+        assertThat(stock(desk)).isEqualTo(5);
+        assertThat(stock(chair)).isZero();
+    }
+
+    private Product saveProduct(String name, int stock) {
+        return productRepository.save(new Product(null, name, "Reservation test", new BigDecimal("10.00"),
+                stock, "Office", null));
+    }
+
+    private Long nextOrderId() {
+        // Reservations aren't tied to order rows, but sharing the sequence keeps their ids unique
+        return jdbcTemplate.queryForObject("SELECT nextval('orders_id_seq')", Long.class);
+    }
+
+    private int stock(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, product.id());
+    }
+}
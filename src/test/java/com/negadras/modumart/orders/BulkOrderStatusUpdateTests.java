@@ -0,0 +1,108 @@
+package com.negadras.modumart.orders;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies the bulk status endpoint: every requested id gets its own outcome, only legal
+ * transitions are applied, and one event is published per previous status.
+ */
+@AutoConfigureMockMvc
+@RecordApplicationEvents
+class BulkOrderStatusUpdateTests extends PostgresIntegrationTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ApplicationEvents events;
+
+    Long customerId;
+
+    @BeforeEach
+    void registerCustomer() {
+        customerId = createCustomer();
+    }
+
+    @Test
+    void everyIdIsReportedWithItsOwnOutcome() throws Exception {
+        Long pending = insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("10.00"));
+        Long confirmed = insertOrder(customerId, OrderStatus.CONFIRMED, new BigDecimal("20.00"));
+        Long shipped = insertOrder(customerId, OrderStatus.SHIPPED, new BigDecimal("30.00"));
+        Long missing = Long.MAX_VALUE;
+
+        mockMvc.perform(updateStatuses(List.of(pending, confirmed, shipped, missing, pending), OrderStatus.PAID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PAID"))
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.outcomes.length()").value(4))
+                .andExpect(jsonPath("$.outcomes[0].orderId").value(pending))
+                .andExpect(jsonPath("$.outcomes[0].result").value("UPDATED"))
+                .andExpect(jsonPath("$.outcomes[0].currentStatus").value("PAID"))
+                .andExpect(jsonPath("$.outcomes[1].orderId").value(confirmed))
+                .andExpect(jsonPath("$.outcomes[1].result").value("UPDATED"))
+                .andExpect(jsonPath("$.outcomes[2].orderId").value(shipped))
+                .andExpect(jsonPath("$.outcomes[2].result").value("ILLEGAL_TRANSITION"))
+                .andExpect(jsonPath("$.outcomes[2].currentStatus").value("SHIPPED"))
+                .andExpect(jsonPath("$.outcomes[3].orderId").value(missing))
+                .andExpect(jsonPath("$.outcomes[3].result").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.outcomes[3].currentStatus").doesNotExist());
+
+        assertThat(orderStatus(pending)).isEqualTo(OrderStatus.PAID);
+        assertThat(orderStatus(confirmed)).isEqualTo(OrderStatus.PAID);
+        assertThat(orderStatus(shipped)).isEqualTo(OrderStatus.SHIPPED);
+        assertThat(events.stream(OrdersStatusChangedEvent.class)
+                .collect(Collectors.toMap(OrdersStatusChangedEvent::previousStatus, event -> event.orders().size())))
+                .containsOnlyKeys(OrderStatus.PENDING, OrderStatus.CONFIRMED)
+                .containsValues(1, 1);
+    }
+
+    @Test
+    void cancellationIsRejected() throws Exception {
+        Long pending = insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("10.00"));
+
+        mockMvc.perform(updateStatuses(List.of(pending), OrderStatus.CANCELLED))
+                .andExpect(status().isBadRequest());
+
+        assertThat(orderStatus(pending)).isEqualTo(OrderStatus.PENDING);
+    }
+
+    @Test
+    void emptyRequestIsRejected() throws Exception {
+        mockMvc.perform(updateStatuses(List.of(), OrderStatus.PAID))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static RequestBuilder updateStatuses(List<Long> orderIds, OrderStatus status) {
+        String ids = orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return put("/api/orders/status")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orderIds\":[" + ids + "],\"status\":\"" + status + "\"}");
+    }
+
+    private OrderStatus orderStatus(Long orderId) {
+        return OrderStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?",
+                String.class, orderId));
+    }
+}
@@ -0,0 +1,133 @@
+package com.negadras.modumart.orders;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that the incrementally maintained customer summary matches a full recount of the
+ * customer's orders after single, bulk and cancelling status changes.
+ */
+class CustomerOrderSummaryTests extends PostgresIntegrationTests {
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductPriceLookup productPriceLookup;
+
+    @Autowired
+    OrderIdempotencyStore idempotencyStore;
+
+    @Autowired
+    RecentOrderBuffer recentOrderBuffer;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+    Long productId;
+
+    @BeforeEach
+    void createCustomerAndProduct() {
+        customerId = createCustomer();
+        productId = jdbcTemplate.queryForObject(
+                "INSERT INTO products (name, description, price, stock, category) " +
+                "VALUES ('Summary Item', 'Test', 12.50, 1000, 'Test') RETURNING id", Long.class);
+    }
+
+    @Test
+    void summaryMatchesRecountAfterStatusChanges() {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            orderIds.add(createOrder(i).id());
+        }
+
+        orderService.updateOrderStatus(orderIds.get(0), OrderStatus.CONFIRMED);
+        orderService.updateOrderStatus(orderIds.get(1), OrderStatus.CONFIRMED);
+        orderService.updateOrderStatus(orderIds.get(2), OrderStatus.PAID);
+        orderService.updateOrderStatus(orderIds.get(2), OrderStatus.SHIPPED);
+        orderService.cancelOrder(orderIds.get(3));
+        orderService.cancelOrder(orderIds.get(1));
+        orderService.updateOrderStatus(orderIds.get(6), OrderStatus.CANCELLED);
+        // Moves one CONFIRMED and two PENDING orders in one call
+        orderService.updateOrderStatuses(List.of(orderIds.get(0), orderIds.get(4), orderIds.get(5)), OrderStatus.PAID);
+        orderService.updateOrderStatuses(List.of(orderIds.get(2), orderIds.get(4)), OrderStatus.SHIPPED);
+        orderService.updateOrderStatuses(List.of(orderIds.get(2)), OrderStatus.DELIVERED);
+
+        CustomerOrderSummary summary = orderService.getCustomerOrderSummary(customerId);
+
+        assertThat(summary.orderCount()).isEqualTo(8);
+        assertThat(summary.statusCounts()).isEqualTo(recountStatuses());
+        assertThat(summary.totalSpend()).isEqualByComparingTo(jdbcTemplate.queryForObject(
+                "SELECT sum(total_amount) FROM orders WHERE customer_id = ? AND status <> 'CANCELLED'",
+                BigDecimal.class, customerId));
+        assertThat(summary.lastOrderAt()).isEqualTo(jdbcTemplate.queryForObject(
+                "SELECT max(created_at) FROM orders WHERE customer_id = ?", Timestamp.class, customerId)
+                .toLocalDateTime());
+    }
+
+    @Test
+    void failedStatusChangeLeavesTheSummaryUntouched() {
+        Long orderId = createOrder(2).id();
+        OrderService failingListeners = new OrderService(orderRepository, productPriceLookup, idempotencyStore,
+                recentOrderBuffer, event -> {
+                    throw new IllegalStateException("test listener failed");
+                });
+
+        // Run in a transaction of its own, as the service bean would
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(
+                status -> failingListeners.updateOrderStatus(orderId, OrderStatus.PAID)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, orderId))
+                .isEqualTo("PENDING");
+        assertThat(orderService.getCustomerOrderSummary(customerId).statusCounts()).isEqualTo(recountStatuses());
+    }
+
+    @Test
+    void customerWithoutOrdersHasEmptySummary() {
+        CustomerOrderSummary summary = orderService.getCustomerOrderSummary(customerId);
+
+        assertThat(summary.orderCount()).isZero();
+        assertThat(summary.totalSpend()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(summary.statusCounts().values()).containsOnly(0L);
+    }
+
+    private Order createOrder(int quantity) {
+        return orderService.createOrder(new CreateOrderRequest(customerId, "1 Summary Street",
+                Set.of(new OrderItem(productId, null, quantity, null, null))));
+    }
+
+    private Map<OrderStatus, Long> recountStatuses() {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, 0L);
+        }
+        jdbcTemplate.query("SELECT status, count(*) AS orders FROM orders WHERE customer_id = ? GROUP BY status",
+                rs -> {
+                    counts.put(OrderStatus.valueOf(rs.getString("status")), rs.getLong("orders"));
+                }, customerId);
+        return counts;
+    }
+}
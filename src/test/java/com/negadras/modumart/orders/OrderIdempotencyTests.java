@@ -0,0 +1,113 @@
+package com.negadras.modumart.orders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Verifies order creation with an Idempotency-Key: a retry with the same body replays the
+ * original order, concurrent retries create it once, and reusing the key for a different
+ * body is rejected with 422.
+ */
+@AutoConfigureMockMvc
+class OrderIdempotencyTests extends PostgresIntegrationTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+    Long productId;
+
+    @BeforeEach
+    void createCustomerAndProduct() {
+        customerId = createCustomer();
+        productId = jdbcTemplate.queryForObject(
+                "INSERT INTO products (name, description, price, stock, category) " +
+                "VALUES ('Idempotent Mug', 'Idempotency test', 12.50, 1000, 'Kitchen') RETURNING id", Long.class);
+    }
+
+    @Test
+    void retryWithTheSameBodyReplaysTheOrder() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        MockHttpServletResponse first = createOrder(key, 2);
+        MockHttpServletResponse retry = createOrder(key, 2);
+
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getHeader("Idempotent-Replayed")).isEqualTo("false");
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(orderId(retry)).isEqualTo(orderId(first));
+        assertThat(ordersOfCustomer()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentRetriesCreateOneOrder() throws Exception {
+        String key = UUID.randomUUID().toString();
+
+        List<MockHttpServletResponse> responses = runConcurrently(8, () -> createOrder(key, 1));
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.getStatus()).isEqualTo(201));
+        assertThat(responses.stream().map(this::orderId).distinct()).hasSize(1);
+        assertThat(responses.stream().filter(response -> "false".equals(response.getHeader("Idempotent-Replayed"))))
+                .hasSize(1);
+        assertThat(ordersOfCustomer()).isEqualTo(1);
+    }
+
+    @Test
+    void reusingTheKeyForADifferentBodyIsRejected() throws Exception {
+        String key = UUID.randomUUID().toString();
+        createOrder(key, 1);
+
+        MockHttpServletResponse reused = createOrder(key, 3);
+
+        assertThat(reused.getStatus()).isEqualTo(422);
+        assertThat(ordersOfCustomer()).isEqualTo(1);
+    }
+
+    private MockHttpServletResponse createOrder(String idempotencyKey, int quantity) throws Exception {
+        String body = """
+                {"customerId": %d, "shippingAddress": "1 Retry Road",
+                 "items": [{"productId": %d, "quantity": %d}]}
+                """.formatted(customerId, productId, quantity);
+        return mockMvc.perform(post("/api/orders")
+                        .header("Idempotency-Key", idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+    }
+
+    private Long orderId(MockHttpServletResponse response) {
+        try {
+            JsonNode order = objectMapper.readTree(response.getContentAsString());
+            return order.get("id").asLong();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int ordersOfCustomer() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM orders WHERE customer_id = ?", Integer.class,
+                customerId);
+    }
+}
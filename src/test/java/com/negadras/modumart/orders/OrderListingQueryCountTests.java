@@ -0,0 +1,145 @@
+package com.negadras.modumart.orders;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the order list queries against N+1 loading of order_items: however many orders a
+ * list returns, it must take one statement for the orders and one for all of their items.
+ */
+@Import(OrderListingQueryCountTests.StatementCountingConfiguration.class)
+class OrderListingQueryCountTests extends PostgresIntegrationTests {
+
+    private static final int ORDERS = 50;
+    private static final int LINES = 3;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderService orderService;
+
+    Long customerId;
+
+    @BeforeEach
+    void createOrders() {
+        customerId = createCustomer();
+        for (int i = 0; i < ORDERS; i++) {
+            Set<OrderItem> items = new HashSet<>();
+            for (long productId = 1; productId <= LINES; productId++) {
+                items.add(OrderItem.create(productId, "Product " + productId, 1, new BigDecimal("5.00")));
+            }
+            orderRepository.save(new Order(null, customerId, OrderStatus.CANCELLED, new BigDecimal("15.00"),
+                    LocalDateTime.now(), LocalDateTime.now(), null, "1 Query Lane", items));
+        }
+    }
+
+    @Test
+    void customerPageLoadsItemsInOneQuery() {
+        assertLoadedWithTwoStatements(() -> orders(orderService.getOrdersByCustomer(customerId, null, ORDERS, true)));
+    }
+
+    @Test
+    void statusPageLoadsItemsInOneQuery() {
+        List<Order> orders = assertLoadedWithTwoStatements(() ->
+                orders(orderService.getOrdersByStatus(OrderStatus.CANCELLED, null, ORDERS, true)));
+        assertThat(orders).hasSize(ORDERS);
+    }
+
+    @Test
+    void findRecentOrdersLoadsItemsInOneQuery() {
+        List<Order> orders = assertLoadedWithTwoStatements(() -> orderRepository.findRecentOrders(ORDERS));
+        assertThat(orders).hasSize(ORDERS);
+    }
+
+    private List<Order> assertLoadedWithTwoStatements(Supplier<List<Order>> query) {
+        StatementCountingConfiguration.start();
+        List<Order> orders = query.get();
+        int statements = StatementCountingConfiguration.stop();
+
+        assertThat(statements).isEqualTo(2);
+        assertThat(orders).filteredOn(order -> customerId.equals(order.customerId()))
+                .hasSize(ORDERS)
+                .allSatisfy(order -> assertThat(order.items()).hasSize(LINES));
+        return orders;
+    }
+
+    private static List<Order> orders(OrderPage<?> page) {
+        return page.orders().stream().map(Order.class::cast).toList();
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfiguration {
+
+        // Scheduled jobs share the data source, so only statements from the test thread count
+        private static final ThreadLocal<AtomicInteger> counter = new ThreadLocal<>();
+
+        static void start() {
+            counter.set(new AtomicInteger());
+        }
+
+        static int stop() {
+            int statements = counter.get().get();
+            counter.remove();
+            return statements;
+        }
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+
+        private static class CountingDataSource extends DelegatingDataSource {
+
+            CountingDataSource(DataSource target) {
+                super(target);
+            }
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                            String name = method.getName();
+                            AtomicInteger statements = counter.get();
+                            if (statements != null && (name.equals("prepareStatement")
+                                    || name.equals("prepareCall") || name.equals("createStatement"))) {
+                                statements.incrementAndGet();
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getTargetException();
+                            }
+                        });
+            }
+        }
+    }
+}
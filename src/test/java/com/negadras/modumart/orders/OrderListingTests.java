@@ -0,0 +1,120 @@
+package com.negadras.modumart.orders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies keyset pagination of order listings: cursors survive a round trip with their full
+ * timestamp precision, tampered cursors are rejected with 400, and following the cursor visits
+ * every order once, newest first, even when orders share a creation time or new ones arrive.
+ */
+@AutoConfigureMockMvc
+class OrderListingTests extends PostgresIntegrationTests {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_000);
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+    List<Long> orderIds;
+
+    @BeforeEach
+    void createOrders() {
+        customerId = createCustomer();
+        orderIds = IntStream.range(0, 5)
+                .mapToObj(i -> insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("10.00")))
+                .toList();
+        // The first three share a creation time, so only their ids tell them apart
+        for (int i = 0; i < orderIds.size(); i++) {
+            jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?",
+                    CREATED_AT.plusSeconds(Math.max(0, i - 2)), orderIds.get(i));
+        }
+    }
+
+    @Test
+    void cursorsSurviveARoundTrip() {
+        OrderCursor cursor = new OrderCursor(CREATED_AT, 42L);
+
+        assertThat(OrderCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(cursor.encode()).doesNotContain("|", "=", "/", "+");
+    }
+
+    @Test
+    void tamperedCursorsAreRejected() throws Exception {
+        List<String> tampered = List.of("not a cursor!", encode("2024-03-01T12:00"), encode("yesterday|5"),
+                encode("2024-03-01T12:00|five"));
+
+        for (String cursor : tampered) {
+            assertThatThrownBy(() -> OrderCursor.decode(cursor)).isInstanceOf(IllegalArgumentException.class);
+            mockMvc.perform(get("/api/orders/customer/{customerId}", customerId).param("after", cursor))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void pagesVisitEveryOrderOnceNewestFirst() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        String after = null;
+        do {
+            JsonNode page = page(after, 2);
+            page.get("orders").forEach(order -> seen.add(order.get("id").asLong()));
+            after = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (after != null);
+
+        assertThat(seen).containsExactly(orderIds.get(4), orderIds.get(3), orderIds.get(2), orderIds.get(1),
+                orderIds.get(0));
+    }
+
+    @Test
+    void ordersCreatedWhilePagingDoNotShiftLaterPages() throws Exception {
+        JsonNode first = page(null, 2);
+
+        insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("10.00"));
+        JsonNode second = page(first.get("nextCursor").asText(), 2);
+
+        assertThat(second.get("orders").findValuesAsText("id"))
+                .containsExactly(orderIds.get(2).toString(), orderIds.get(1).toString());
+    }
+
+    private JsonNode page(String after, int limit) throws Exception {
+        var request = get("/api/orders/customer/{customerId}", customerId).param("limit", String.valueOf(limit));
+        if (after != null) {
+            request.param("after", after);
+        }
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
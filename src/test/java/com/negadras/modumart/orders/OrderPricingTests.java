@@ -0,0 +1,142 @@
+package com.negadras.modumart.orders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Verifies that orders are priced on the server: names and prices come from the catalog and
+ * totals are summed exactly, a unit price sent by the client must match the current one or the
+ * order is rejected with 409, and a product listed twice is rejected with 400.
+ */
+@AutoConfigureMockMvc
+class OrderPricingTests extends PostgresIntegrationTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+    Long mugId;
+    Long spoonId;
+
+    @BeforeEach
+    void createCustomerAndProducts() {
+        customerId = createCustomer();
+        mugId = insertProduct("Priced Mug", "12.50");
+        spoonId = insertProduct("Priced Spoon", "0.10");
+    }
+
+    @Test
+    void itemsArePricedFromTheCatalog() throws Exception {
+        MockHttpServletResponse response = createOrder("""
+                [{"productId": %d, "productName": "Client Name", "quantity": 2},
+                 {"productId": %d, "quantity": 3}]
+                """.formatted(mugId, spoonId));
+
+        assertThat(response.getStatus()).isEqualTo(201);
+        JsonNode order = objectMapper.readTree(response.getContentAsString());
+        assertThat(order.get("totalAmount").decimalValue()).isEqualByComparingTo("25.30");
+        assertThat(item(order, mugId).get("productName").asText()).isEqualTo("Priced Mug");
+        assertThat(item(order, mugId).get("totalPrice").decimalValue()).isEqualByComparingTo("25.00");
+        assertThat(item(order, spoonId).get("unitPrice").decimalValue()).isEqualByComparingTo("0.10");
+        assertThat(item(order, spoonId).get("totalPrice").decimalValue()).isEqualByComparingTo("0.30");
+    }
+
+    @Test
+    void aMatchingClientPriceIsAcceptedAtAnyScale() throws Exception {
+        MockHttpServletResponse response = createOrder("""
+                [{"productId": %d, "quantity": 1, "unitPrice": 12.5}]
+                """.formatted(mugId));
+
+        assertThat(response.getStatus()).isEqualTo(201);
+    }
+
+    @Test
+    void staleClientPricesAreRejectedWithConflict() throws Exception {
+        jdbcTemplate.update("UPDATE products SET price = 14.00 WHERE id = ?", mugId);
+
+        MockHttpServletResponse response = createOrder("""
+                [{"productId": %d, "quantity": 1, "unitPrice": 12.50},
+                 {"productId": %d, "quantity": 1, "unitPrice": 0.10}]
+                """.formatted(mugId, spoonId));
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        JsonNode problem = objectMapper.readTree(response.getContentAsString());
+        assertThat(problem.get("productIds")).extracting(JsonNode::asLong).containsExactly(mugId);
+        assertThat(ordersOfCustomer()).isZero();
+    }
+
+    @Test
+    void aProductListedTwiceIsRejected() throws Exception {
+        MockHttpServletResponse response = createOrder("""
+                [{"productId": %d, "quantity": 1},
+                 {"productId": %d, "quantity": 2}]
+                """.formatted(mugId, mugId));
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(objectMapper.readTree(response.getContentAsString()).get("detail").asText())
+                .contains("listed more than once");
+        assertThat(ordersOfCustomer()).isZero();
+    }
+
+    @Test
+    void unknownProductsAreRejected() throws Exception {
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", spoonId);
+
+        MockHttpServletResponse response = createOrder("""
+                [{"productId": %d, "quantity": 1}]
+                """.formatted(spoonId));
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(ordersOfCustomer()).isZero();
+    }
+
+    private Long insertProduct(String name, String price) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO products (name, description, price, stock, category) " +
+                "VALUES (?, 'Pricing test', ?, 1000, 'Kitchen') RETURNING id", Long.class, name, new BigDecimal(price));
+    }
+
+    private MockHttpServletResponse createOrder(String items) throws Exception {
+        String body = """
+                {"customerId": %d, "shippingAddress": "1 Price Street", "items": %s}
+                """.formatted(customerId, items);
+        return mockMvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn().getResponse();
+    }
+
+    private static JsonNode item(JsonNode order, Long productId) {
+        for (JsonNode item : order.get("items")) {
+            if (item.get("productId").asLong() == productId) {
+                return item;
+            }
+        }
+        throw new AssertionError("No item for product " + productId + " in " + order);
+    }
+
+    private int ordersOfCustomer() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM orders WHERE customer_id = ?", Integer.class,
+                customerId);
+    }
+}
@@ -0,0 +1,121 @@
+package com.negadras.modumart.orders;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies the order status endpoints: illegal transitions and lost races are answered with
+ * 409 Conflict, and of two concurrent changes to one order exactly one wins.
+ */
+@AutoConfigureMockMvc
+class OrderStatusTransitionTests extends PostgresIntegrationTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+
+    @BeforeEach
+    void registerCustomer() {
+        customerId = createCustomer();
+    }
+
+    @Test
+    void legalTransitionIsApplied() throws Exception {
+        Long orderId = insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("10.00"));
+
+        mockMvc.perform(updateStatus(orderId, OrderStatus.CONFIRMED))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"));
+    }
+
+    @Test
+    void illegalTransitionIsAConflict() throws Exception {
+        Long orderId = insertOrder(customerId, OrderStatus.SHIPPED, new BigDecimal("10.00"));
+
+        mockMvc.perform(updateStatus(orderId, OrderStatus.PAID))
+                .andExpect(status().isConflict());
+        mockMvc.perform(delete("/api/orders/{id}/cancel", orderId))
+                .andExpect(status().isConflict());
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void unknownOrderIsNotFound() throws Exception {
+        mockMvc.perform(updateStatus(Long.MAX_VALUE, OrderStatus.CONFIRMED))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void cancellingThroughTheStatusEndpointRestoresStock() throws Exception {
+        Long productId = jdbcTemplate.queryForObject(
+                "INSERT INTO products (name, description, price, stock, category) " +
+                "VALUES ('Returned Chair', 'Transition test', 40.00, 10, 'Office') RETURNING id", Long.class);
+        Long orderId = orderService.createOrder(new CreateOrderRequest(customerId, "1 Refund Road",
+                Set.of(OrderItem.create(productId, "Returned Chair", 3, new BigDecimal("40.00"))))).id();
+        assertThat(stock(productId)).isEqualTo(7);
+
+        mockMvc.perform(updateStatus(orderId, OrderStatus.CANCELLED))
+                .andExpect(status().isOk());
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(stock(productId)).isEqualTo(10);
+    }
+
+    @Test
+    void concurrentPayAndCancelHaveExactlyOneWinner() throws Exception {
+        for (int round = 0; round < 10; round++) {
+            Long orderId = insertOrder(customerId, OrderStatus.CONFIRMED, new BigDecimal("10.00"));
+            List<RequestBuilder> requests = List.of(updateStatus(orderId, OrderStatus.PAID),
+                    delete("/api/orders/{id}/cancel", orderId));
+            AtomicInteger next = new AtomicInteger();
+
+            List<Integer> statuses = runConcurrently(2, () ->
+                    mockMvc.perform(requests.get(next.getAndIncrement())).andReturn().getResponse().getStatus());
+
+            assertThat(statuses).containsExactlyInAnyOrderElementsOf(
+                    orderStatus(orderId) == OrderStatus.PAID ? List.of(200, 409) : List.of(409, 204));
+            assertThat(orderStatus(orderId)).isIn(Set.of(OrderStatus.PAID, OrderStatus.CANCELLED));
+        }
+    }
+
+    private static RequestBuilder updateStatus(Long orderId, OrderStatus status) {
+        return put("/api/orders/{id}/status", orderId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\":\"" + status + "\"}");
+    }
+
+    private OrderStatus orderStatus(Long orderId) {
+        return OrderStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?",
+                String.class, orderId));
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
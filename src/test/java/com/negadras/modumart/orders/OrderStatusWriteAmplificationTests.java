@@ -0,0 +1,109 @@
+package com.negadras.modumart.orders;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmarks a status change on orders of 1, 10 and 100 lines, comparing a save of the whole
+ * aggregate with the dedicated status transition. Write amplification is measured as the
+ * number of order_items rows that end up physically rewritten (their ctid and xmin change).
+ */
+class OrderStatusWriteAmplificationTests extends PostgresIntegrationTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusWriteAmplificationTests.class);
+
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void statusTransitionNeverRewritesOrderItems(int lines) {
+        Order order = orderRepository.save(newOrder(lines));
+
+        long aggregateRewrites = 0;
+        long aggregateNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            Order current = orderRepository.findById(order.id()).orElseThrow();
+            List<String> before = itemLocations(order.id());
+            long start = System.nanoTime();
+            orderRepository.save(current.withStatus(flip(current.status())));
+            aggregateNanos += System.nanoTime() - start;
+            aggregateRewrites += rewritten(before, itemLocations(order.id()));
+        }
+
+        long transitionRewrites = 0;
+        long transitionNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            Order current = orderRepository.findById(order.id()).orElseThrow();
+            List<String> before = itemLocations(order.id());
+            long start = System.nanoTime();
+            int updated = orderRepository.transitionStatus(current.id(), current.status(), flip(current.status()),
+                    current.version(), LocalDateTime.now());
+            transitionNanos += System.nanoTime() - start;
+            assertThat(updated).isEqualTo(1);
+            transitionRewrites += rewritten(before, itemLocations(order.id()));
+        }
+
+        logger.info("{} lines: aggregate save rewrote {} item rows/op in {} us/op, " +
+                        "status transition rewrote {} item rows/op in {} us/op",
+                lines, aggregateRewrites / ROUNDS, aggregateNanos / ROUNDS / 1000,
+                transitionRewrites / ROUNDS, transitionNanos / ROUNDS / 1000);
+
+        assertThat(aggregateRewrites).isEqualTo((long) lines * ROUNDS);
+        assertThat(transitionRewrites).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10})
+    void staleTransitionIsRejected(int lines) {
+        Order order = orderRepository.save(newOrder(lines));
+
+        assertThat(orderRepository.transitionStatus(order.id(), OrderStatus.PENDING, OrderStatus.CONFIRMED,
+                order.version(), LocalDateTime.now())).isEqualTo(1);
+        assertThat(orderRepository.transitionStatus(order.id(), OrderStatus.PENDING, OrderStatus.CANCELLED,
+                order.version(), LocalDateTime.now())).isZero();
+        assertThat(orderRepository.findById(order.id()).orElseThrow().status()).isEqualTo(OrderStatus.CONFIRMED);
+    }
+
+    private Order newOrder(int lines) {
+        Long customerId = createCustomer();
+        Set<OrderItem> items = new HashSet<>();
+        for (long productId = 1; productId <= lines; productId++) {
+            items.add(OrderItem.create(productId, "Product " + productId, 1, new BigDecimal("9.99")));
+        }
+        return new Order(null, customerId, OrderStatus.PENDING, new BigDecimal("9.99").multiply(BigDecimal.valueOf(lines)),
+                LocalDateTime.now(), LocalDateTime.now(), null, "1 Benchmark Way", items);
+    }
+
+    private List<String> itemLocations(Long orderId) {
+        return jdbcTemplate.queryForList("SELECT ctid::text || '/' || xmin::text FROM order_items WHERE order_id = ?",
+                String.class, orderId);
+    }
+
+    private static long rewritten(List<String> before, List<String> after) {
+        Set<String> unchanged = new HashSet<>(before);
+        return after.stream().filter(location -> !unchanged.contains(location)).count();
+    }
+
+    private static OrderStatus flip(OrderStatus status) {
+        return status == OrderStatus.PENDING ? OrderStatus.CONFIRMED : OrderStatus.PENDING;
+    }
+}
@@ -0,0 +1,171 @@
+package com.negadras.modumart.orders;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Verifies that the pending order expiry job cancels only PENDING orders older than the
+ * maximum age, in bounded batches, without waiting on rows locked by other transactions,
+ * and that cancelled orders get their stock back and their customers notified.
+ */
+class PendingOrderExpiryTests extends PostgresIntegrationTests {
+
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_BATCHES_PER_RUN = 2;
+
+    @Autowired
+    PendingOrderExpiryJob pendingOrderExpiryJob;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrdersConfiguration.PendingExpiryProperties properties;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+    int batchSize;
+    int maxBatchesPerRun;
+
+    @BeforeEach
+    void boundBatches() {
+        customerId = createCustomer();
+        // The database is shared, so start without stale orders left behind by other tests
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getMaxAge());
+        List<OrderSummary> drained;
+        do {
+            drained = orderService.cancelStalePendingOrders(cutoff, 500);
+        } while (!drained.isEmpty());
+        batchSize = properties.getBatchSize();
+        maxBatchesPerRun = properties.getMaxBatchesPerRun();
+        properties.setBatchSize(BATCH_SIZE);
+        properties.setMaxBatchesPerRun(MAX_BATCHES_PER_RUN);
+    }
+
+    @AfterEach
+    void restoreBatches() {
+        properties.setBatchSize(batchSize);
+        properties.setMaxBatchesPerRun(maxBatchesPerRun);
+    }
+
+    @Test
+    void onlyPendingOrdersOlderThanTheMaximumAgeAreCancelled() {
+        Long stale = insertOrder(OrderStatus.PENDING, properties.getMaxAge().plusHours(1));
+        Long fresh = insertOrder(OrderStatus.PENDING, properties.getMaxAge().minusHours(1));
+        Long staleConfirmed = insertOrder(OrderStatus.CONFIRMED, properties.getMaxAge().plusHours(1));
+
+        pendingOrderExpiryJob.expireStalePendingOrders();
+
+        assertThat(orderStatus(stale)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(orderStatus(fresh)).isEqualTo(OrderStatus.PENDING);
+        assertThat(orderStatus(staleConfirmed)).isEqualTo(OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void runCancelsAtMostItsBatchesOldestFirst() {
+        List<Long> stale = new ArrayList<>();
+        int limit = BATCH_SIZE * MAX_BATCHES_PER_RUN;
+        for (int i = 0; i <= limit; i++) {
+            // Created one minute apart, oldest first
+            stale.add(insertOrder(OrderStatus.PENDING, properties.getMaxAge().plusMinutes(60 - i)));
+        }
+
+        pendingOrderExpiryJob.expireStalePendingOrders();
+
+        assertThat(stale.subList(0, limit)).allSatisfy(id -> assertThat(orderStatus(id)).isEqualTo(OrderStatus.CANCELLED));
+        assertThat(orderStatus(stale.get(limit))).isEqualTo(OrderStatus.PENDING);
+
+        pendingOrderExpiryJob.expireStalePendingOrders();
+
+        assertThat(orderStatus(stale.get(limit))).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void rowsLockedByAnotherTransactionAreSkipped() throws Exception {
+        Long locked = insertOrder(OrderStatus.PENDING, properties.getMaxAge().plusHours(2));
+        Long unlocked = insertOrder(OrderStatus.PENDING, properties.getMaxAge().plusHours(1));
+        CountDownLatch lockHeld = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT id FROM orders WHERE id = ? FOR UPDATE", Long.class, locked);
+            lockHeld.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        try {
+            lockHeld.await();
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), pendingOrderExpiryJob::expireStalePendingOrders);
+
+            assertThat(orderStatus(locked)).isEqualTo(OrderStatus.PENDING);
+            assertThat(orderStatus(unlocked)).isEqualTo(OrderStatus.CANCELLED);
+        } finally {
+            release.countDown();
+            holder.get();
+        }
+
+        pendingOrderExpiryJob.expireStalePendingOrders();
+
+        assertThat(orderStatus(locked)).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void cancelledOrderGetsItsStockBackAndItsCustomerNotified() {
+        Long productId = jdbcTemplate.queryForObject(
+                "INSERT INTO products (name, description, price, stock, category) " +
+                "VALUES ('Forgotten Kettle', 'Expiry test', 30.00, 10, 'Kitchen') RETURNING id", Long.class);
+        Long orderId = orderService.createOrder(new CreateOrderRequest(customerId, "1 Abandoned Cart Way",
+                Set.of(OrderItem.create(productId, "Forgotten Kettle", 4, new BigDecimal("30.00"))))).id();
+        assertThat(stock(productId)).isEqualTo(6);
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?",
+                LocalDateTime.now().minus(properties.getMaxAge()).minusHours(1), orderId);
+
+        pendingOrderExpiryJob.expireStalePendingOrders();
+
+        assertThat(orderStatus(orderId)).isEqualTo(OrderStatus.CANCELLED);
+        assertThat(stock(productId)).isEqualTo(10);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM notifications WHERE customer_id = ? AND type = 'ORDER_CANCELLED' " +
+                "AND related_entity_id = ?", Integer.class, customerId, orderId)).isEqualTo(1);
+    }
+
+    private Long insertOrder(OrderStatus status, Duration age) {
+        Long orderId = insertOrder(customerId, status, new BigDecimal("10.00"));
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", LocalDateTime.now().minus(age), orderId);
+        return orderId;
+    }
+
+    private OrderStatus orderStatus(Long orderId) {
+        return OrderStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?",
+                String.class, orderId));
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.negadras.modumart.orders;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the recent order buffer picks up orders created and changed without going
+ * through this node's events, as another node would, once it is reloaded, and that limits are
+ * capped at its capacity even when the database has to answer.
+ */
+class RecentOrderBufferTests extends PostgresIntegrationTests {
+
+    @Autowired
+    RecentOrderBuffer recentOrderBuffer;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    ProductPriceLookup productPriceLookup;
+
+    @Autowired
+    OrderIdempotencyStore idempotencyStore;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+
+    @BeforeEach
+    void registerCustomer() {
+        customerId = createCustomer();
+        recentOrderBuffer.load();
+    }
+
+    @Test
+    void orderCreatedOnAnotherNodeAppearsAfterAReload() {
+        Long orderId = insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("15.00"));
+        assertThat(recentIds()).doesNotContain(orderId);
+
+        recentOrderBuffer.load();
+
+        assertThat(recentIds().get(0)).isEqualTo(orderId);
+    }
+
+    @Test
+    void statusChangedOnAnotherNodeIsReflectedAfterAReload() {
+        Long orderId = insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("15.00"));
+        recentOrderBuffer.load();
+        jdbcTemplate.update("UPDATE orders SET status = 'SHIPPED', version = version + 1 WHERE id = ?", orderId);
+
+        recentOrderBuffer.load();
+
+        assertThat(recent()).filteredOn(order -> order.id().equals(orderId))
+                .singleElement()
+                .extracting(Order::status)
+                .isEqualTo(OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void localChangesAreAppliedWithoutAReload() {
+        Long orderId = insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("15.00"));
+        recentOrderBuffer.load();
+
+        orderService.updateOrderStatus(orderId, OrderStatus.CONFIRMED);
+
+        assertThat(recent()).filteredOn(order -> order.id().equals(orderId))
+                .singleElement()
+                .extracting(Order::status)
+                .isEqualTo(OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void limitsAreCappedAtTheBufferCapacityBeforeItIsLoaded() {
+        for (int i = 0; i < 3; i++) {
+            insertOrder(customerId, OrderStatus.PENDING, new BigDecimal("15.00"));
+        }
+        OrdersConfiguration.RecentOrdersProperties properties = new OrdersConfiguration.RecentOrdersProperties();
+        properties.setBufferSize(2);
+        RecentOrderBuffer coldBuffer = new RecentOrderBuffer(orderRepository, properties);
+        OrderService coldService = new OrderService(orderRepository, productPriceLookup, idempotencyStore,
+                coldBuffer, eventPublisher);
+
+        assertThat(coldService.getRecentOrders(Integer.MAX_VALUE)).hasSize(2);
+    }
+
+    private List<Order> recent() {
+        return recentOrderBuffer.recent(10).orElseThrow();
+    }
+
+    private List<Long> recentIds() {
+        return recent().stream().map(Order::id).toList();
+    }
+}
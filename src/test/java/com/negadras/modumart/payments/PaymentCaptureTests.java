@@ -0,0 +1,227 @@
+package com.negadras.modumart.payments;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import com.negadras.modumart.orders.OrderService;
+import com.negadras.modumart.orders.OrderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies the payment capture job as several nodes would run it: every payment is charged
+ * exactly once, only payments of orders still awaiting payment are charged, a charge the
+ * gateway refused returns its payment to PENDING and ends the run, and payments of cancelled
+ * orders are cancelled rather than charged. The results stay saved even when a listener of the
+ * capture fails, so nothing is charged twice.
+ */
+// Keeps the scheduled capture job out of the way of the jobs built here
+@TestPropertySource(properties = "modumart.payments.capture.interval=PT1H")
+class PaymentCaptureTests extends PostgresIntegrationTests {
+
+    private static final int CHUNK_SIZE = 5;
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    PaymentRepository paymentRepository;
+
+    @Autowired
+    PaymentProcessor paymentProcessor;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PaymentsConfiguration.ProcessingProperties processingProperties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    List<PaymentCaptureJob> jobs = new ArrayList<>();
+    Long customerId;
+
+    @BeforeEach
+    void drainPendingPayments() {
+        customerId = createCustomer();
+        // The database is shared, so start without PENDING payments left behind by other tests
+        PaymentsConfiguration.CaptureProperties properties = captureProperties();
+        properties.setChunkSize(500);
+        properties.setMaxChunksPerRun(Integer.MAX_VALUE);
+        captureJob(properties, payment -> PaymentGateway.ChargeResult.approved("TXN-DRAINED"))
+                .capturePendingPayments();
+    }
+
+    @AfterEach
+    void stopJobs() {
+        jobs.forEach(PaymentCaptureJob::stop);
+    }
+
+    @Test
+    void concurrentNodesChargeEachPaymentOnce() throws Exception {
+        List<Payment> payments = IntStream.range(0, 40)
+                .mapToObj(i -> initiatePayment(OrderStatus.CONFIRMED))
+                .toList();
+        Map<Long, AtomicInteger> charges = new ConcurrentHashMap<>();
+        List<PaymentCaptureJob> nodes = IntStream.range(0, 4)
+                .mapToObj(node -> captureJob(captureProperties(), payment -> {
+                    charges.computeIfAbsent(payment.id(), id -> new AtomicInteger()).incrementAndGet();
+                    return PaymentGateway.ChargeResult.approved("TXN-NODE-" + node + "-" + payment.id());
+                }))
+                .toList();
+        AtomicInteger nextNode = new AtomicInteger();
+
+        runConcurrently(nodes.size(), () -> {
+            nodes.get(nextNode.getAndIncrement()).capturePendingPayments();
+            return null;
+        });
+
+        assertThat(payments).allSatisfy(payment -> {
+            assertThat(charges.get(payment.id())).hasValue(1);
+            assertThat(status(payment)).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(transactionId(payment)).startsWith("TXN-NODE-").endsWith("-" + payment.id());
+        });
+    }
+
+    @Test
+    void rejectedChargesReturnPaymentsToPendingAndEndTheRun() {
+        List<Payment> payments = IntStream.range(0, CHUNK_SIZE * 3)
+                .mapToObj(i -> initiatePayment(OrderStatus.CONFIRMED))
+                .toList();
+        AtomicInteger attempts = new AtomicInteger();
+
+        captureJob(captureProperties(), payment -> {
+            attempts.incrementAndGet();
+            throw new PaymentGatewayRejectedException("test gateway circuit breaker is open");
+        }).capturePendingPayments();
+
+        assertThat(attempts).hasValue(CHUNK_SIZE);
+        assertThat(payments).allSatisfy(payment -> assertThat(status(payment)).isEqualTo(PaymentStatus.PENDING));
+    }
+
+    @Test
+    void chargesWithAnUnknownOutcomeAreLeftProcessing() {
+        Payment payment = initiatePayment(OrderStatus.CONFIRMED);
+
+        captureJob(captureProperties(), charged -> {
+            throw new PaymentGatewayTimeoutException("test gateway timed out after 2000 ms");
+        }).capturePendingPayments();
+
+        assertThat(status(payment)).isEqualTo(PaymentStatus.PROCESSING);
+    }
+
+    @Test
+    void aFailingListenerDoesNotUndoTheCapture() {
+        Payment payment = initiatePayment(OrderStatus.CONFIRMED);
+        PaymentService failingListeners = new PaymentService(paymentRepository, paymentProcessor, event -> {
+            throw new IllegalStateException("test listener failed");
+        }, transactionTemplate);
+        // Claims nothing left PROCESSING by other tests
+        Payment claimed = failingListeners.claimPaymentsForCapture(LocalDateTime.now(),
+                LocalDateTime.of(2000, 1, 1, 0, 0), 500, LocalDateTime.now()).stream()
+                .filter(candidate -> candidate.id().equals(payment.id()))
+                .findFirst().orElseThrow();
+
+        List<Payment> saved = failingListeners.saveCaptureResults(List.of(claimed.withStatus(PaymentStatus.COMPLETED)
+                .withTransactionId("TXN-" + payment.id())));
+
+        assertThat(saved).extracting(Payment::id).containsExactly(payment.id());
+        assertThat(status(payment)).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(transactionId(payment)).isEqualTo("TXN-" + payment.id());
+    }
+
+    @Test
+    void paymentsOfOrdersNoLongerAwaitingPaymentAreCancelledUncharged() {
+        Payment payable = initiatePayment(OrderStatus.PENDING);
+        Payment shipped = initiatePayment(OrderStatus.CONFIRMED);
+        jdbcTemplate.update("UPDATE orders SET status = 'SHIPPED' WHERE id = ?", shipped.orderId());
+        Map<Long, AtomicInteger> charges = new ConcurrentHashMap<>();
+
+        captureJob(captureProperties(), payment -> {
+            charges.computeIfAbsent(payment.id(), id -> new AtomicInteger()).incrementAndGet();
+            return PaymentGateway.ChargeResult.approved("TXN-" + payment.id());
+        }).capturePendingPayments();
+
+        assertThat(status(payable)).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(status(shipped)).isEqualTo(PaymentStatus.CANCELLED);
+        assertThat(charges).containsKey(payable.id()).doesNotContainKey(shipped.id());
+    }
+
+    @Test
+    void cancellingAnOrderCancelsItsPendingPayment() {
+        Payment payment = initiatePayment(OrderStatus.CONFIRMED);
+
+        orderService.cancelOrder(payment.orderId());
+
+        assertThat(status(payment)).isEqualTo(PaymentStatus.CANCELLED);
+        assertThat(jdbcTemplate.queryForObject("SELECT failure_reason FROM payments WHERE id = ?", String.class,
+                payment.id())).isEqualTo(PaymentsOrderEventHandler.ORDER_CANCELLED_REASON);
+    }
+
+    @Test
+    void cancellingOrdersInBulkCancelsTheirPendingPayments() {
+        Payment pending = initiatePayment(OrderStatus.PENDING);
+        Payment confirmed = initiatePayment(OrderStatus.CONFIRMED);
+
+        // Backdated past any other order, so only these two are stale
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id IN (?, ?)", LocalDateTime.of(2000, 1, 1, 0, 0),
+                pending.orderId(), confirmed.orderId());
+        orderService.cancelStalePendingOrders(LocalDateTime.of(2000, 1, 2, 0, 0), 10_000);
+
+        assertThat(status(pending)).isEqualTo(PaymentStatus.CANCELLED);
+        // Only PENDING orders are cancelled, so the confirmed order's payment stays payable
+        assertThat(status(confirmed)).isEqualTo(PaymentStatus.PENDING);
+    }
+
+    private PaymentsConfiguration.CaptureProperties captureProperties() {
+        PaymentsConfiguration.CaptureProperties properties = new PaymentsConfiguration.CaptureProperties();
+        properties.setMinAge(Duration.ZERO);
+        properties.setChunkSize(CHUNK_SIZE);
+        properties.setMaxChunksPerRun(100);
+        properties.setParallelism(2);
+        return properties;
+    }
+
+    private PaymentCaptureJob captureJob(PaymentsConfiguration.CaptureProperties properties, PaymentGateway gateway) {
+        PaymentCaptureJob job = new PaymentCaptureJob(paymentService, orderService, gateway, properties,
+                processingProperties, new SimpleMeterRegistry());
+        jobs.add(job);
+        return job;
+    }
+
+    private Payment initiatePayment(OrderStatus orderStatus) {
+        Long orderId = insertOrder(customerId, orderStatus, new BigDecimal("42.00"));
+        return paymentService.initiatePayment(new PaymentRequest(orderId, customerId, new BigDecimal("42.00"),
+                PaymentMethod.CREDIT_CARD)).payment();
+    }
+
+    private PaymentStatus status(Payment payment) {
+        return PaymentStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM payments WHERE id = ?",
+                String.class, payment.id()));
+    }
+
+    private String transactionId(Payment payment) {
+        return jdbcTemplate.queryForObject("SELECT transaction_id FROM payments WHERE id = ?", String.class,
+                payment.id());
+    }
+}
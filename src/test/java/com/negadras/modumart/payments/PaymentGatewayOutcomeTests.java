@@ -0,0 +1,130 @@
+package com.negadras.modumart.payments;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import com.negadras.modumart.orders.OrderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies what the payment workers make of each kind of gateway outcome: only a declined
+ * charge fails the payment, a charge refused before reaching the provider returns it to
+ * PENDING, and a charge whose outcome is unknown leaves it PROCESSING.
+ */
+class PaymentGatewayOutcomeTests extends PostgresIntegrationTests {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    PaymentRepository paymentRepository;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    PaymentProcessor processor;
+    Payment payment;
+
+    @BeforeEach
+    void claimPayment() {
+        Long customerId = createCustomer();
+        Long orderId = insertOrder(customerId, OrderStatus.CONFIRMED, new BigDecimal("42.00"));
+        payment = paymentService.initiatePayment(new PaymentRequest(orderId, customerId, new BigDecimal("42.00"),
+                PaymentMethod.CREDIT_CARD)).payment();
+        assertThat(paymentRepository.transitionStatus(payment.id(), PaymentStatus.PENDING, PaymentStatus.PROCESSING,
+                LocalDateTime.now())).isTrue();
+    }
+
+    @AfterEach
+    void stopProcessor() throws InterruptedException {
+        if (processor != null) {
+            processor.stop();
+        }
+    }
+
+    @Test
+    void approvedChargeCompletesThePayment() throws InterruptedException {
+        process(payment -> PaymentGateway.ChargeResult.approved("TXN-APPROVED"));
+
+        assertThat(status()).isEqualTo(PaymentStatus.COMPLETED);
+    }
+
+    @Test
+    void declinedChargeFailsThePayment() throws InterruptedException {
+        process(payment -> PaymentGateway.ChargeResult.declined("insufficient funds"));
+
+        assertThat(status()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(jdbcTemplate.queryForObject("SELECT failure_reason FROM payments WHERE id = ?", String.class,
+                payment.id())).isEqualTo("insufficient funds");
+    }
+
+    @Test
+    void rejectedChargeReturnsThePaymentToPending() throws InterruptedException {
+        process(payment -> {
+            throw new PaymentGatewayRejectedException("test gateway circuit breaker is open");
+        });
+
+        assertThat(status()).isEqualTo(PaymentStatus.PENDING);
+    }
+
+    @Test
+    void timedOutChargeLeavesThePaymentProcessing() throws InterruptedException {
+        process(payment -> {
+            throw new PaymentGatewayTimeoutException("test gateway timed out after 2000 ms");
+        });
+
+        assertThat(status()).isEqualTo(PaymentStatus.PROCESSING);
+    }
+
+    @Test
+    void failedCallLeavesThePaymentProcessing() throws InterruptedException {
+        process(payment -> {
+            throw new PaymentGatewayException("test gateway failed: connection reset");
+        });
+
+        assertThat(status()).isEqualTo(PaymentStatus.PROCESSING);
+    }
+
+    /**
+     * Charges the payment on a dedicated processor and waits for its worker to finish.
+     */
+    private void process(PaymentGateway gateway) throws InterruptedException {
+        CountDownLatch charged = new CountDownLatch(1);
+        PaymentsConfiguration.ProcessingProperties properties = new PaymentsConfiguration.ProcessingProperties();
+        properties.setWorkers(1);
+        properties.setQueueCapacity(1);
+        processor = new PaymentProcessor(paymentRepository, payment -> {
+            try {
+                return gateway.charge(payment);
+            } finally {
+                charged.countDown();
+            }
+        }, eventPublisher, properties, new SimpleMeterRegistry());
+        processor.start();
+
+        assertThat(processor.submit(payment.id())).isTrue();
+        assertThat(charged.await(5, TimeUnit.SECONDS)).isTrue();
+        // Joins the worker, so the outcome has been written once it returns
+        processor.stop();
+        processor = null;
+    }
+
+    private PaymentStatus status() {
+        return PaymentStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM payments WHERE id = ?",
+                String.class, payment.id()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.negadras.modumart.payments;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import com.negadras.modumart.orders.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that payment initiation is idempotent per order: parallel requests for the same
+ * order share one payment, and a new attempt is only created after the previous one failed.
+ */
+class PaymentInitiationConcurrencyTests extends PostgresIntegrationTests {
+
+    private static final int REQUESTS = 100;
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    PaymentRepository paymentRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+    Long orderId;
+
+    @BeforeEach
+    void registerCustomerAndOrder() {
+        customerId = createCustomer();
+        orderId = insertOrder(customerId, OrderStatus.CONFIRMED, new BigDecimal("42.00"));
+    }
+
+    @Test
+    void parallelInitiationsForOneOrderCreateExactlyOnePayment() throws Exception {
+        List<PaymentInitiationRepository.InitiatedPayment> results =
+                runConcurrently(REQUESTS, () -> paymentService.initiatePayment(request()));
+
+        assertThat(paymentCount()).isEqualTo(1);
+        assertThat(results).filteredOn(PaymentInitiationRepository.InitiatedPayment::created).hasSize(1);
+        assertThat(results).extracting(result -> result.payment().id()).containsOnly(results.getFirst().payment().id());
+        Payment payment = results.getFirst().payment();
+        assertThat(payment.attempt()).isEqualTo(1);
+        assertThat(payment.idempotencyKey()).isEqualTo("order-" + orderId + "-attempt-1");
+    }
+
+    @Test
+    void newAttemptIsOnlyCreatedAfterTheLatestFailed() {
+        PaymentInitiationRepository.InitiatedPayment first = paymentService.initiatePayment(request());
+        PaymentInitiationRepository.InitiatedPayment retried = paymentService.initiatePayment(request());
+
+        assertThat(first.created()).isTrue();
+        assertThat(retried.created()).isFalse();
+        assertThat(retried.payment().id()).isEqualTo(first.payment().id());
+
+        paymentRepository.save(first.payment().withFailureReason("Card declined"));
+        PaymentInitiationRepository.InitiatedPayment second = paymentService.initiatePayment(request());
+
+        assertThat(second.created()).isTrue();
+        assertThat(second.payment().attempt()).isEqualTo(2);
+        assertThat(paymentService.getPaymentByOrderId(orderId)).contains(second.payment());
+        assertThat(paymentCount()).isEqualTo(2);
+    }
+
+    private PaymentRequest request() {
+        return new PaymentRequest(orderId, customerId, new BigDecimal("42.00"), PaymentMethod.CREDIT_CARD);
+    }
+
+    private int paymentCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM payments WHERE order_id = ?", Integer.class, orderId);
+    }
+}
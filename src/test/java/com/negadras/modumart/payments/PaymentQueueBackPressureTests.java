@@ -0,0 +1,108 @@
+package com.negadras.modumart.payments;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import com.negadras.modumart.orders.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Verifies the back-pressure of asynchronous payment processing: once the queue is full a
+ * payment is refused with 503 and left PENDING for a retry, and a queued payment whose claim
+ * timed out, as if its node had stopped, is charged by the capture job.
+ */
+// No workers, so queued payments stay queued and a single one fills the queue
+@TestPropertySource(properties = {
+        "modumart.payments.processing.workers=0",
+        "modumart.payments.processing.queue-capacity=1",
+        "modumart.payments.gateway.simulated.decline-rate=0"
+})
+@AutoConfigureMockMvc
+class PaymentQueueBackPressureTests extends PostgresIntegrationTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    PaymentCaptureJob paymentCaptureJob;
+
+    @Autowired
+    PaymentsConfiguration.ProcessingProperties processingProperties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Long customerId;
+
+    @BeforeEach
+    void registerCustomer() {
+        customerId = createCustomer();
+    }
+
+    @Test
+    void paymentIsRefusedAndLeftPendingWhenTheQueueIsFull() throws Exception {
+        // The queue may already be full from another test, so process until a payment is refused
+        List<Payment> accepted = new ArrayList<>();
+        Payment refused = null;
+        MockHttpServletResponse refusal = null;
+        for (int i = 0; i <= processingProperties.getQueueCapacity() && refused == null; i++) {
+            Payment payment = initiatePayment();
+            MockHttpServletResponse response = mockMvc.perform(put("/api/payments/{id}/process", payment.id()))
+                    .andReturn().getResponse();
+            if (response.getStatus() == 202) {
+                assertThat(response.getHeader(HttpHeaders.LOCATION)).isEqualTo("/api/payments/" + payment.id());
+                accepted.add(payment);
+            } else {
+                refused = payment;
+                refusal = response;
+            }
+        }
+
+        assertThat(refused).isNotNull();
+        assertThat(refusal.getStatus()).isEqualTo(503);
+        assertThat(refusal.getHeader(HttpHeaders.RETRY_AFTER)).isNotNull();
+        assertThat(status(refused)).isEqualTo(PaymentStatus.PENDING);
+        assertThat(accepted).allSatisfy(payment -> assertThat(status(payment)).isEqualTo(PaymentStatus.PROCESSING));
+    }
+
+    @Test
+    void abandonedClaimIsChargedByTheCaptureJob() {
+        Payment payment = initiatePayment();
+        jdbcTemplate.update("UPDATE payments SET status = 'PROCESSING', updated_at = ? WHERE id = ?",
+                LocalDateTime.now().minus(processingProperties.getClaimTimeout()).minusMinutes(1), payment.id());
+
+        paymentCaptureJob.capturePendingPayments();
+
+        assertThat(status(payment)).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject("SELECT transaction_id FROM payments WHERE id = ?", String.class,
+                payment.id())).startsWith("TXN-");
+    }
+
+    private Payment initiatePayment() {
+        Long orderId = insertOrder(customerId, OrderStatus.CONFIRMED, new BigDecimal("42.00"));
+        return paymentService.initiatePayment(new PaymentRequest(orderId, customerId, new BigDecimal("42.00"),
+                PaymentMethod.CREDIT_CARD)).payment();
+    }
+
+    private PaymentStatus status(Payment payment) {
+        return PaymentStatus.valueOf(jdbcTemplate.queryForObject("SELECT status FROM payments WHERE id = ?",
+                String.class, payment.id()));
+    }
+}
@@ -0,0 +1,92 @@
+package com.negadras.modumart.payments;
+
+import com.negadras.modumart.PostgresIntegrationTests;
+import com.negadras.modumart.orders.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that payment status transitions are compare-and-set writes: of many concurrent
+ * claims exactly one wins, and a result is only written under the claim version it was charged
+ * with, even if a later claim carries the same timestamp.
+ */
+class PaymentStatusTransitionTests extends PostgresIntegrationTests {
+
+    private static final int CLAIMS = 50;
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    PaymentRepository paymentRepository;
+
+    Payment payment;
+
+    @BeforeEach
+    void createPayment() {
+        Long customerId = createCustomer();
+        Long orderId = insertOrder(customerId, OrderStatus.CONFIRMED, new BigDecimal("42.00"));
+        payment = paymentService.initiatePayment(new PaymentRequest(orderId, customerId, new BigDecimal("42.00"),
+                PaymentMethod.CREDIT_CARD)).payment();
+    }
+
+    @Test
+    void concurrentClaimsHaveExactlyOneWinner() throws Exception {
+        List<Boolean> claims = runConcurrently(CLAIMS, () -> paymentRepository.claim(payment.id(),
+                LocalDateTime.now()));
+
+        assertThat(claims).containsOnlyOnce(true);
+        assertThat(status()).isEqualTo(PaymentStatus.PROCESSING);
+        assertThat(paymentRepository.findById(payment.id()).orElseThrow().claimVersion())
+                .isEqualTo(payment.claimVersion() + 1);
+    }
+
+    @Test
+    void resultIsOnlyWrittenUnderTheCurrentClaim() {
+        assertThat(paymentRepository.claim(payment.id(), LocalDateTime.now())).isTrue();
+        Payment claimed = paymentRepository.findById(payment.id()).orElseThrow();
+
+        assertThat(paymentRepository.completeClaimed(payment.id(), claimed.claimVersion() - 1, "TXN-STALE",
+                LocalDateTime.now())).isFalse();
+        assertThat(paymentRepository.completeClaimed(payment.id(), claimed.claimVersion(), "TXN-1",
+                LocalDateTime.now())).isTrue();
+        assertThat(paymentRepository.failClaimed(payment.id(), claimed.claimVersion(), "Too late",
+                LocalDateTime.now())).isFalse();
+
+        Payment completed = paymentRepository.findById(payment.id()).orElseThrow();
+        assertThat(completed.status()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(completed.transactionId()).isEqualTo("TXN-1");
+        assertThat(completed.failureReason()).isNull();
+    }
+
+    @Test
+    void resultOfATakenOverClaimIsDroppedEvenAtTheSameClaimTime() {
+        LocalDateTime claimedAt = LocalDateTime.now().minusHours(1);
+        assertThat(paymentRepository.claim(payment.id(), claimedAt)).isTrue();
+        Payment claimed = paymentRepository.findById(payment.id()).orElseThrow();
+
+        // Taken over as abandoned and stamped with the very same time, as a clock step back could
+        assertThat(paymentRepository.claimForCapture(LocalDateTime.of(2000, 1, 1, 0, 0), claimedAt.plusSeconds(1), Integer.MAX_VALUE,
+                claimed.updatedAt())).extracting(Payment::id).contains(payment.id());
+        Payment takenOver = paymentRepository.findById(payment.id()).orElseThrow();
+        assertThat(takenOver.updatedAt()).isEqualTo(claimed.updatedAt());
+
+        assertThat(paymentRepository.completeClaimed(payment.id(), claimed.claimVersion(), "TXN-STALE",
+                LocalDateTime.now())).isFalse();
+        assertThat(paymentRepository.saveCaptureResults(List.of(claimed.withFailureReason("Stale")))).isEmpty();
+        assertThat(paymentRepository.saveCaptureResults(List.of(takenOver.withStatus(PaymentStatus.COMPLETED)
+                .withTransactionId("TXN-2")))).hasSize(1);
+        assertThat(paymentRepository.findById(payment.id()).orElseThrow().transactionId()).isEqualTo("TXN-2");
+    }
+
+    private PaymentStatus status() {
+        return paymentRepository.findById(payment.id()).orElseThrow().status();
+    }
+}
@@ -0,0 +1,142 @@
+package com.negadras.modumart.payments;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that a stalled or failing provider is contained: calls are abandoned after the
+ * timeout, concurrent calls are capped, and the circuit breaker fails calls fast once the
+ * provider keeps failing, without reaching it again until it has had time to recover.
+ */
+class ResilientPaymentGatewayTests {
+
+    private static final Payment PAYMENT = new Payment(1L, 1L, 1L, new BigDecimal("10.00"), PaymentStatus.PROCESSING,
+            PaymentMethod.CREDIT_CARD, null, LocalDateTime.now(), LocalDateTime.now(), null, 1, "order-1-attempt-1", 1L);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void stalledCallIsAbandonedAfterTimeout() {
+        ResilientPaymentGateway gateway = gateway(payment -> stall(Duration.ofSeconds(5)), properties());
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> gateway.charge(PAYMENT))
+                .isInstanceOf(PaymentGatewayTimeoutException.class)
+                .hasMessageContaining("timed out");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(meterRegistry.get("modumart.payments.gateway.calls").tag("outcome", "timeout").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondTheLimit() throws InterruptedException {
+        PaymentsConfiguration.GatewayProperties properties = properties();
+        properties.setMaxConcurrentCalls(2);
+        properties.setTimeout(Duration.ofSeconds(5));
+        CountDownLatch inFlight = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ResilientPaymentGateway gateway = gateway(payment -> {
+            inFlight.countDown();
+            await(release);
+            return PaymentGateway.ChargeResult.approved("TXN-1");
+        }, properties);
+
+        Thread first = Thread.ofVirtual().start(() -> gateway.charge(PAYMENT));
+        Thread second = Thread.ofVirtual().start(() -> gateway.charge(PAYMENT));
+        assertThat(inFlight.await(1, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> gateway.charge(PAYMENT))
+                .isInstanceOf(PaymentGatewayRejectedException.class)
+                .hasMessageContaining("concurrent call limit");
+
+        release.countDown();
+        first.join();
+        second.join();
+        assertThat(gateway.charge(PAYMENT).approved()).isTrue();
+    }
+
+    @Test
+    void circuitOpensOnFailuresAndClosesAfterSuccessfulTrials() throws InterruptedException {
+        PaymentsConfiguration.GatewayProperties properties = properties();
+        properties.getCircuitBreaker().setOpenDuration(Duration.ofMillis(200));
+        AtomicInteger calls = new AtomicInteger();
+        boolean[] failing = {true};
+        ResilientPaymentGateway gateway = gateway(payment -> {
+            calls.incrementAndGet();
+            if (failing[0]) {
+                throw new IllegalStateException("provider down");
+            }
+            return PaymentGateway.ChargeResult.approved("TXN-1");
+        }, properties);
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> gateway.charge(PAYMENT))
+                    .isExactlyInstanceOf(PaymentGatewayException.class)
+                    .hasMessageContaining("provider down");
+        }
+        assertThat(gateway.circuitState()).isEqualTo(GatewayCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> gateway.charge(PAYMENT))
+                .isInstanceOf(PaymentGatewayRejectedException.class)
+                .hasMessageContaining("circuit breaker is open");
+        assertThat(calls).hasValue(4);
+
+        Thread.sleep(250);
+        failing[0] = false;
+        assertThat(gateway.charge(PAYMENT).approved()).isTrue();
+        assertThat(gateway.circuitState()).isEqualTo(GatewayCircuitBreaker.State.HALF_OPEN);
+        assertThat(gateway.charge(PAYMENT).approved()).isTrue();
+        assertThat(gateway.circuitState()).isEqualTo(GatewayCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void declinesDoNotOpenTheCircuit() {
+        ResilientPaymentGateway gateway = gateway(payment -> PaymentGateway.ChargeResult.declined("insufficient funds"),
+                properties());
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(gateway.charge(PAYMENT).approved()).isFalse();
+        }
+        assertThat(gateway.circuitState()).isEqualTo(GatewayCircuitBreaker.State.CLOSED);
+    }
+
+    private ResilientPaymentGateway gateway(PaymentGateway delegate, PaymentsConfiguration.GatewayProperties properties) {
+        return new ResilientPaymentGateway("test", delegate, properties, meterRegistry);
+    }
+
+    private static PaymentsConfiguration.GatewayProperties properties() {
+        PaymentsConfiguration.GatewayProperties properties = new PaymentsConfiguration.GatewayProperties();
+        properties.setTimeout(Duration.ofMillis(100));
+        properties.getCircuitBreaker().setSlidingWindowSize(4);
+        properties.getCircuitBreaker().setMinimumCalls(4);
+        properties.getCircuitBreaker().setHalfOpenCalls(2);
+        return properties;
+    }
+
+    private static PaymentGateway.ChargeResult stall(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return PaymentGateway.ChargeResult.approved("TXN-LATE");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}